@@ -0,0 +1,98 @@
+package ro.unibuc.hello.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+import ro.unibuc.hello.limit.RateLimiter;
+import ro.unibuc.hello.limit.TokenBucketTable;
+import ro.unibuc.hello.limit.TokenBucketTable.Decision;
+import ro.unibuc.hello.limit.TokenBucketTable.Limit;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one rate-limit decision: a single hot key (every thread contending on one CAS) and a spread of
+ * 10,000 client keys, then the whole {@link RateLimiter#check} as the filter calls it, for a plain read and for
+ * a robot status update (path match plus a client and a robot bucket). The budget is well under a microsecond
+ * per request; run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimitBenchmark {
+
+    private static final int KEYS = 10_000;
+    private static final int ROBOTS = 1_000;
+
+    // High enough that the allowed path is measured, not the rejection
+    private final Limit limit = new Limit("benchmark", 1_000_000_000, 1_000_000);
+    private TokenBucketTable table;
+    private String[] keys;
+    private RateLimiter rateLimiter;
+    private String[] clients;
+    private String[] statusPaths;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new TokenBucketTable();
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "writes:key:client" + i;
+            table.tryAcquire(keys[i], limit, System.nanoTime());
+        }
+
+        rateLimiter = new RateLimiter();
+        for (String rate : new String[] {"readsPerSecond", "writesPerSecond", "robotStatusPerSecond"}) {
+            set(rateLimiter, rate, 1_000_000_000d);
+        }
+        for (String burst : new String[] {"readsBurst", "writesBurst", "robotStatusBurst"}) {
+            set(rateLimiter, burst, 1_000_000);
+        }
+        rateLimiter.start();
+        clients = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            clients[i] = "key:client" + i;
+        }
+        statusPaths = new String[ROBOTS];
+        for (int i = 0; i < ROBOTS; i++) {
+            statusPaths[i] = "/robots/robot" + i + "/status";
+        }
+    }
+
+    @Benchmark
+    public Decision hotKey() {
+        return table.tryAcquire(keys[0], limit, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Decision hotKeyContended() {
+        return table.tryAcquire(keys[0], limit, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Decision spreadKeys() {
+        return table.tryAcquire(keys[ThreadLocalRandom.current().nextInt(KEYS)], limit, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Decision checkRead() {
+        return rateLimiter.check("GET", "/orders", clients[ThreadLocalRandom.current().nextInt(KEYS)], System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Decision checkStatusUpdate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return rateLimiter.check("PUT", statusPaths[random.nextInt(ROBOTS)], clients[random.nextInt(KEYS)], System.nanoTime());
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,86 @@
+package ro.unibuc.hello.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import ro.unibuc.hello.data.OrderStatus;
+import ro.unibuc.hello.dto.InventoryDTO;
+import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.RobotDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost and payload size of a 1,000 element listing per wire format.
+ * Payload sizes are printed once per trial; run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private List<OrderDTO> orders;
+    private List<RobotDTO> robots;
+    private List<InventoryDTO> inventory;
+    private byte[] encodedOrders;
+    private byte[] encodedRobots;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        mapper = new ObjectMapper(factory).findAndRegisterModules();
+
+        OrderStatus[] statuses = OrderStatus.values();
+        orders = new ArrayList<>();
+        robots = new ArrayList<>();
+        inventory = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            orders.add(new OrderDTO("65f0a1b2c3d4e5f6a7b8" + String.format("%04d", i), "robot" + (i % 50),
+                    statuses[i % statuses.length], "item" + (i % 300), 1 + i % 20, "Aisle " + (i % 40)));
+            robots.add(new RobotDTO("robot" + i, "IN_PROGRESS", "order" + i, i, null));
+            inventory.add(new InventoryDTO("item" + i, "Hex Bolt M" + (4 + i % 6), 100 + i, 10));
+        }
+
+        encodedOrders = mapper.writeValueAsBytes(orders);
+        encodedRobots = mapper.writeValueAsBytes(robots);
+        System.out.printf("%n[%s] bytes on the wire: orders=%d robots=%d inventory=%d%n",
+                format, encodedOrders.length, encodedRobots.length, mapper.writeValueAsBytes(inventory).length);
+    }
+
+    @Benchmark
+    public byte[] serializeOrders() throws Exception {
+        return mapper.writeValueAsBytes(orders);
+    }
+
+    @Benchmark
+    public byte[] serializeRobots() throws Exception {
+        return mapper.writeValueAsBytes(robots);
+    }
+
+    @Benchmark
+    public byte[] serializeInventory() throws Exception {
+        return mapper.writeValueAsBytes(inventory);
+    }
+
+    @Benchmark
+    public OrderDTO[] deserializeOrders() throws Exception {
+        return mapper.readValue(encodedOrders, OrderDTO[].class);
+    }
+
+    @Benchmark
+    public RobotDTO[] deserializeRobots() throws Exception {
+        return mapper.readValue(encodedRobots, RobotDTO[].class);
+    }
+}
@@ -0,0 +1,37 @@
+package ro.unibuc.hello.cluster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+
+/**
+ * With cluster leases enabled, keeps a copy of each write request's body as the controller reads it, so
+ * {@link OwnerProxy} can replay the request on the owning replica after ownership is checked.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ForwardableRequestFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !leaseManager.isEnabled() || "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(new ContentCachingRequestWrapper(request), response);
+    }
+}
@@ -0,0 +1,334 @@
+package ro.unibuc.hello.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.ClusterNodeEntity;
+import ro.unibuc.hello.data.PartitionLeaseEntity;
+import ro.unibuc.hello.data.RobotEntity;
+import ro.unibuc.hello.exception.PartitionNotOwnedException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Splits robots into a fixed number of partitions (by hash of the robot id) and keeps, in Mongo, one lease
+ * per partition naming the node that owns it. Every heartbeat a node renews its leases, works out its fair
+ * share among the live nodes, releases partitions above that share and takes over expired or released ones
+ * below it, so ownership rebalances when nodes join or leave.
+ *
+ * <p>A lease carries a fencing token that grows on every change of owner. Robot writes stamp the token onto
+ * the robot and refuse to overwrite a robot stamped with a newer one; together with the robot's
+ * {@code @Version} check this keeps a node that lost its lease (for example after a long GC pause) from
+ * writing over the new owner. With {@code cluster.enabled=false} this node owns everything.
+ */
+@Component
+public class LeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaseManager.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cluster.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${cluster.partitions:64}")
+    private int partitions = 64;
+
+    @Value("${cluster.lease-ttl-ms:10000}")
+    private long leaseTtlMs = 10000;
+
+    // Local validity ends this much before the lease expires in Mongo, to absorb clock skew between nodes
+    @Value("${cluster.clock-skew-ms:1000}")
+    private long clockSkewMs = 1000;
+
+    @Value("${cluster.node-id:${HOSTNAME:}}")
+    private String nodeId = "";
+
+    // Where the other replicas forward requests for robots this node owns; clients never see it
+    @Value("${cluster.advertised-url:http://${POD_IP:localhost}:${server.port:8080}}")
+    private String advertisedUrl = "http://localhost:8080";
+
+    private final Map<Integer, OwnedLease> owned = new ConcurrentHashMap<>();
+    private volatile Map<Integer, String> ownerUrls = Map.of();
+    private volatile Set<String> peerHosts = Set.of();
+    private Counter acquired;
+    private Counter lost;
+    private Counter released;
+
+    @PostConstruct
+    public void start() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        acquired = meterRegistry.counter("cluster.leases.acquired");
+        lost = meterRegistry.counter("cluster.leases.lost");
+        released = meterRegistry.counter("cluster.leases.released");
+        Gauge.builder("cluster.partitions.owned", owned, Map::size)
+                .description("Robot partitions whose lease this node holds")
+                .register(meterRegistry);
+        if (enabled) {
+            logger.info("Cluster leases enabled: node {} at {}, {} partitions", nodeId, advertisedUrl, partitions);
+            heartbeat();
+        }
+    }
+
+    public int partitionOf(String robotId) {
+        int hash = robotId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    public boolean isOwner(String robotId) {
+        return !enabled || validLease(partitionOf(robotId)) != null;
+    }
+
+    /**
+     * Whether this node should run jobs that must run on one node at a time, such as the order archiver. The
+     * holder of partition 0's lease is that node, so the role fails over with the lease.
+     */
+    public boolean isLeader() {
+        return !enabled || validLease(0) != null;
+    }
+
+    /** Throws unless this node currently holds the lease of the robot's partition. */
+    public void requireOwnership(String robotId) {
+        if (enabled && validLease(partitionOf(robotId)) == null) {
+            throw new PartitionNotOwnedException(robotId, ownerUrls.get(partitionOf(robotId)));
+        }
+    }
+
+    /**
+     * Checks ownership and stamps the robot with this node's fencing token before it is saved. A robot that
+     * already carries a newer token was written by a later owner, so this node's lease is stale.
+     */
+    public void fence(RobotEntity robot) {
+        if (!enabled) {
+            return;
+        }
+        int partition = partitionOf(robot.getId());
+        OwnedLease lease = validLease(partition);
+        if (lease == null) {
+            throw new PartitionNotOwnedException(robot.getId(), ownerUrls.get(partition));
+        }
+        if (robot.getFencingToken() != null && robot.getFencingToken() > lease.fencingToken) {
+            owned.remove(partition, lease);
+            lost.increment();
+            throw new PartitionNotOwnedException(robot.getId(), ownerUrls.get(partition));
+        }
+        robot.setFencingToken(lease.fencingToken);
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:3000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Date now = new Date();
+            mongoTemplate.upsert(new Query(where("_id").is(nodeId)),
+                    new Update().set("url", advertisedUrl).set("lastHeartbeat", now), ClusterNodeEntity.class);
+            List<ClusterNodeEntity> liveNodes = mongoTemplate.find(
+                    new Query(where("lastHeartbeat").gt(new Date(now.getTime() - leaseTtlMs))), ClusterNodeEntity.class);
+            refreshPeerHosts(liveNodes);
+            int fairShare = (int) Math.ceil(partitions / (double) Math.max(1, liveNodes.size()));
+
+            renewAll();
+            List<PartitionLeaseEntity> leases = mongoTemplate.findAll(PartitionLeaseEntity.class);
+            releaseAbove(fairShare);
+            acquireUpTo(fairShare, leases, now);
+            refreshOwnerUrls();
+        } catch (RuntimeException e) {
+            // Leases keep their local deadline, so a short Mongo outage does not drop ownership immediately
+            logger.warn("Cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        new ArrayList<>(owned.keySet()).forEach(this::release);
+        mongoTemplate.remove(new Query(where("_id").is(nodeId)), ClusterNodeEntity.class);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Whether an address belongs to another live replica, going by the URLs the nodes advertise in their heartbeats. */
+    public boolean isPeer(String address) {
+        return enabled && address != null && peerHosts.contains(address);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Map<Integer, Long> getOwnedPartitions() {
+        Map<Integer, Long> tokens = new HashMap<>();
+        owned.forEach((partition, lease) -> tokens.put(partition, lease.fencingToken));
+        return tokens;
+    }
+
+    private OwnedLease validLease(int partition) {
+        OwnedLease lease = owned.get(partition);
+        if (lease != null && System.nanoTime() - lease.validUntilNanos >= 0) {
+            owned.remove(partition, lease);
+            lost.increment();
+            return null;
+        }
+        return lease;
+    }
+
+    private void renewAll() {
+        for (Map.Entry<Integer, OwnedLease> entry : owned.entrySet()) {
+            int partition = entry.getKey();
+            OwnedLease lease = entry.getValue();
+            long startNanos = System.nanoTime();
+            PartitionLeaseEntity renewed = mongoTemplate.findAndModify(
+                    new Query(where("_id").is(partition).and("ownerId").is(nodeId).and("fencingToken").is(lease.fencingToken)),
+                    new Update().set("expiresAt", new Date(System.currentTimeMillis() + leaseTtlMs)),
+                    FindAndModifyOptions.options().returnNew(true),
+                    PartitionLeaseEntity.class);
+            if (renewed == null) {
+                owned.remove(partition, lease);
+                lost.increment();
+                logger.warn("Lost lease of partition {}", partition);
+            } else {
+                owned.replace(partition, lease, new OwnedLease(lease.fencingToken, deadline(startNanos)));
+            }
+        }
+    }
+
+    private void releaseAbove(int fairShare) {
+        List<Integer> mine = new ArrayList<>(owned.keySet());
+        mine.sort(null);
+        for (int i = fairShare; i < mine.size(); i++) {
+            release(mine.get(i));
+        }
+    }
+
+    private void release(int partition) {
+        OwnedLease lease = owned.remove(partition);
+        if (lease == null) {
+            return;
+        }
+        mongoTemplate.updateFirst(
+                new Query(where("_id").is(partition).and("ownerId").is(nodeId).and("fencingToken").is(lease.fencingToken)),
+                new Update().unset("ownerId").unset("ownerUrl").set("expiresAt", new Date()),
+                PartitionLeaseEntity.class);
+        released.increment();
+        logger.info("Released lease of partition {}", partition);
+    }
+
+    private void acquireUpTo(int fairShare, List<PartitionLeaseEntity> leases, Date now) {
+        Map<Integer, PartitionLeaseEntity> byPartition = new HashMap<>();
+        leases.forEach(lease -> byPartition.put(lease.getPartition(), lease));
+
+        // Start at a node-specific offset so nodes joining together do not race for the same partitions
+        int offset = Math.floorMod(nodeId.hashCode(), partitions);
+        for (int i = 0; i < partitions && owned.size() < fairShare; i++) {
+            int partition = (offset + i) % partitions;
+            PartitionLeaseEntity lease = byPartition.get(partition);
+            boolean free = lease == null || lease.getOwnerId() == null
+                    || lease.getExpiresAt() == null || lease.getExpiresAt().before(now);
+            if (free && !owned.containsKey(partition)) {
+                tryAcquire(partition);
+            }
+        }
+    }
+
+    private void tryAcquire(int partition) {
+        long startNanos = System.nanoTime();
+        Date now = new Date();
+        Query free = new Query(where("_id").is(partition).orOperator(
+                where("ownerId").is(null), where("expiresAt").lt(now)));
+        Update take = new Update()
+                .set("ownerId", nodeId)
+                .set("ownerUrl", advertisedUrl)
+                .set("expiresAt", new Date(now.getTime() + leaseTtlMs))
+                .inc("fencingToken", 1);
+        try {
+            PartitionLeaseEntity lease = mongoTemplate.findAndModify(free, take,
+                    FindAndModifyOptions.options().returnNew(true).upsert(true), PartitionLeaseEntity.class);
+            if (lease != null && nodeId.equals(lease.getOwnerId())) {
+                owned.put(partition, new OwnedLease(lease.getFencingToken(), deadline(startNanos)));
+                acquired.increment();
+                logger.info("Acquired lease of partition {} with fencing token {}", partition, lease.getFencingToken());
+            }
+        } catch (DuplicateKeyException e) {
+            // The partition has an owner and the upsert tried to create it again: someone else won
+        }
+    }
+
+    private void refreshOwnerUrls() {
+        Date now = new Date();
+        Map<Integer, String> urls = new HashMap<>();
+        Query live = new Query(where("expiresAt").gt(now).and("ownerUrl").ne(null));
+        for (PartitionLeaseEntity lease : mongoTemplate.find(live, PartitionLeaseEntity.class)) {
+            urls.put(lease.getPartition(), lease.getOwnerUrl());
+        }
+        ownerUrls = urls;
+    }
+
+    private void refreshPeerHosts(List<ClusterNodeEntity> liveNodes) {
+        Set<String> hosts = new HashSet<>();
+        for (ClusterNodeEntity node : liveNodes) {
+            if (node.getUrl() == null || nodeId.equals(node.getNodeId())) {
+                continue;
+            }
+            try {
+                String host = URI.create(node.getUrl()).getHost();
+                if (host != null) {
+                    hosts.add(host);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring node {} with malformed url {}", node.getNodeId(), node.getUrl());
+            }
+        }
+        peerHosts = hosts;
+    }
+
+    private long deadline(long startNanos) {
+        return startNanos + TimeUnit.MILLISECONDS.toNanos(leaseTtlMs - clockSkewMs);
+    }
+
+    private static final class OwnedLease {
+        private final long fencingToken;
+        private final long validUntilNanos;
+
+        private OwnedLease(long fencingToken, long validUntilNanos) {
+            this.fencingToken = fencingToken;
+            this.validUntilNanos = validUntilNanos;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ro.unibuc.hello.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Sends a request for a robot owned by another replica on to that replica and relays its answer, so clients
+ * only ever talk to the Service address and never see a pod IP. A forwarded request is marked with
+ * {@link #FORWARDED_HEADER}; if the receiving replica does not own the robot either (the lease moved while the
+ * request was in flight) it answers 503 rather than forwarding again. A request forwarded by a live peer has
+ * already been rate and concurrency limited on the replica the client reached, so the owner lets it through.
+ */
+@Component
+public class OwnerProxy {
+
+    public static final String FORWARDED_HEADER = "X-Forwarded-To-Owner";
+
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host", "content-length");
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Value("${cluster.forward-timeout-ms:5000}")
+    private int forwardTimeoutMs = 5000;
+
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void start() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(forwardTimeoutMs);
+        requestFactory.setReadTimeout(forwardTimeoutMs);
+        restTemplate = new RestTemplate(requestFactory);
+        // The owner's answer is relayed as it is, errors included
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    public static boolean isForwarded(HttpServletRequest request) {
+        return request.getHeader(FORWARDED_HEADER) != null;
+    }
+
+    /** A forwarded request that really comes from another replica; the header alone can be set by any client. */
+    public boolean isForwardedByPeer(HttpServletRequest request) {
+        return isForwarded(request) && leaseManager != null && leaseManager.isPeer(request.getRemoteAddr());
+    }
+
+    /** Replays an incoming request on the owner; the body is only available if {@link ForwardableRequestFilter} kept it. */
+    public ResponseEntity<byte[]> forward(HttpServletRequest request, String ownerUrl) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            headers.addAll(name, Collections.list(request.getHeaders(name)));
+        }
+        headers.add("X-Forwarded-For", request.getRemoteAddr());
+        ContentCachingRequestWrapper cached = WebUtils.getNativeRequest(request, ContentCachingRequestWrapper.class);
+        byte[] body = cached != null ? cached.getContentAsByteArray() : null;
+        String query = request.getQueryString() != null ? "?" + request.getQueryString() : "";
+        return forward(ownerUrl, HttpMethod.valueOf(request.getMethod()), request.getRequestURI() + query, headers, body);
+    }
+
+    public ResponseEntity<byte[]> forward(String ownerUrl, HttpMethod method, String pathAndQuery, HttpHeaders headers, byte[] body) {
+        HttpHeaders outgoing = withoutHopByHop(headers);
+        outgoing.set(FORWARDED_HEADER, "true");
+        ResponseEntity<byte[]> response = restTemplate.exchange(URI.create(ownerUrl + pathAndQuery), method,
+                new HttpEntity<>(body, outgoing), byte[].class);
+        return new ResponseEntity<>(response.getBody(), withoutHopByHop(response.getHeaders()), response.getStatusCode());
+    }
+
+    RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    private static HttpHeaders withoutHopByHop(HttpHeaders headers) {
+        HttpHeaders kept = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                kept.addAll(name, values);
+            }
+        });
+        return kept;
+    }
+}
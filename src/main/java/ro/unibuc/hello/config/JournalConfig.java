@@ -0,0 +1,42 @@
+package ro.unibuc.hello.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ro.unibuc.hello.journal.OrderEventJournal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class JournalConfig {
+
+    @Value("${journal.dir:${JOURNAL_DIR:data/journal}}")
+    private String directory;
+
+    @Value("${journal.segment-size:67108864}")
+    private int segmentSize = 64 * 1024 * 1024;
+
+    // Older segments are deleted past this count; segment-size * max-segments must stay below the journal
+    // volume (8 x 64MB = 512MB against the 1Gi claim in hello.yaml, leaving room for the segment being rolled)
+    @Value("${journal.max-segments:8}")
+    private int maxSegments = 8;
+
+    @Value("${journal.flush-interval-ms:2}")
+    private long flushIntervalMs = 2;
+
+    // Appends come from the lifecycle pipeline, which waits for durability once per batch
+    @Value("${journal.await-durable:false}")
+    private boolean awaitDurable = false;
+
+    // How long a caller waits for a group commit before giving up on durability
+    @Value("${journal.durable-timeout-ms:5000}")
+    private long durableTimeoutMs = 5000;
+
+    @Bean(destroyMethod = "close")
+    public OrderEventJournal orderEventJournal() throws IOException {
+        OrderEventJournal journal = new OrderEventJournal(Path.of(directory), segmentSize, maxSegments, flushIntervalMs, awaitDurable, durableTimeoutMs);
+        journal.open();
+        return journal;
+    }
+}
@@ -0,0 +1,26 @@
+package ro.unibuc.hello.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import ro.unibuc.hello.stream.RobotStreamHandler;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private RobotStreamHandler robotStreamHandler;
+
+    // Robots connect without an Origin header and are unaffected; browsers are limited to these origins (same origin if empty)
+    @Value("${stream.allowed-origins:}")
+    private String[] allowedOrigins = new String[0];
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(robotStreamHandler, "/stream/robots").setAllowedOrigins(allowedOrigins);
+    }
+}
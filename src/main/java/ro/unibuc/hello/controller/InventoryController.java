@@ -1,28 +1,82 @@
 package ro.unibuc.hello.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ro.unibuc.hello.data.StockOperation;
 import ro.unibuc.hello.dto.InventoryDTO;
+import ro.unibuc.hello.dto.InventorySearchResultDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.resilience.MongoGuard;
+import ro.unibuc.hello.service.InventoryBulkService;
+import ro.unibuc.hello.service.InventorySearchIndex;
 import ro.unibuc.hello.service.InventoryService;
+import ro.unibuc.hello.service.ResourceVersions;
+import ro.unibuc.hello.service.StockLedgerService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/inventory")
 public class InventoryController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private InventoryBulkService inventoryBulkService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public List<InventoryDTO> getAllInventoryItems() {
-        return inventoryService.getAllInventoryItems();
+    public ResponseEntity<List<InventoryDTO>> getAllInventoryItems(WebRequest request) {
+        String etag = resourceVersions.collectionTag(ResourceVersions.INVENTORY, null);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<InventoryDTO> items = inventoryService.getAllInventoryItems();
+        return ResponseEntity.ok().eTag(MongoGuard.servedStale() ? null : etag).body(items);
+    }
+
+    @GetMapping("/search")
+    public List<InventorySearchResultDTO> searchInventory(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return inventorySearchIndex.search(q, Math.min(limit, 100));
     }
 
     @GetMapping("/{id}")
-    public InventoryDTO getInventoryItemById(@PathVariable String id) throws EntityNotFoundException {
-        return inventoryService.getInventoryItemById(id);
+    public ResponseEntity<InventoryDTO> getInventoryItemById(@PathVariable String id, WebRequest request) throws EntityNotFoundException {
+        InventoryDTO item = inventoryService.getInventoryItemById(id);
+        String etag = ResourceVersions.documentTag("item", item.getItemId(), item.getVersion());
+        // A stale body is neither tagged nor revalidated
+        if (MongoGuard.servedStale()) {
+            return ResponseEntity.ok().body(item);
+        }
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(item);
     }
 
     @PostMapping
@@ -30,11 +84,53 @@ public class InventoryController {
         return inventoryService.createInventoryItem(inventoryDTO);
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public void importInventory(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                InputStream body,
+                                HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        boolean csv = contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE));
+        inventoryBulkService.importInventory(body, csv, report -> {
+            try {
+                response.getOutputStream().write(objectMapper.writeValueAsBytes(report));
+                response.getOutputStream().write('\n');
+                response.flushBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInventory(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        StreamingResponseBody body = output -> inventoryBulkService.exportInventory(output, csv);
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType(TEXT_CSV_VALUE) : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PutMapping("/{id}/stock")
     public InventoryDTO updateInventoryStock(@PathVariable String id, @RequestParam Integer stock) throws EntityNotFoundException {
         return inventoryService.updateInventoryStock(id, stock);
     }
 
+    @PostMapping("/{id}/stock/{operation}")
+    public InventoryDTO applyStockDelta(@PathVariable String id, @PathVariable String operation, @RequestParam Integer quantity) throws EntityNotFoundException {
+        StockOperation stockOperation;
+        try {
+            stockOperation = StockOperation.valueOf(operation.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid stock operation: must be receive, pick or adjust");
+        }
+        return stockLedgerService.applyDelta(id, stockOperation, quantity);
+    }
+
+    @GetMapping("/{id}/stock/ledger")
+    public InventoryDTO rebuildStockFromLedger(@PathVariable String id) throws EntityNotFoundException {
+        return stockLedgerService.rebuildStock(id);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteInventoryItem(@PathVariable String id) throws EntityNotFoundException {
         inventoryService.deleteInventoryItem(id);
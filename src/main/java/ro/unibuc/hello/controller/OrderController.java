@@ -4,13 +4,24 @@ import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;  
 import org.springframework.http.HttpStatus;  
 import org.springframework.beans.factory.annotation.Autowired;  
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;  
+import org.springframework.web.context.request.WebRequest;
+import ro.unibuc.hello.dto.CycleTimeStatsDTO;
+import ro.unibuc.hello.dto.HotKeyDTO;
 import ro.unibuc.hello.dto.OrderDTO;  
+import ro.unibuc.hello.dto.OrderGroupDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;  
+import ro.unibuc.hello.resilience.MongoGuard;
+import ro.unibuc.hello.service.CycleTimeAnalytics;
+import ro.unibuc.hello.service.HotKeyService;
+import ro.unibuc.hello.service.OrderColumnStore;
 import ro.unibuc.hello.service.OrderService;  
+import ro.unibuc.hello.service.ResourceVersions;
 import ro.unibuc.hello.data.OrderStatus;  
 
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -21,14 +32,42 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CycleTimeAnalytics cycleTimeAnalytics;
+
+    @Autowired
+    private OrderColumnStore orderColumnStore;
+
+    @Autowired
+    private HotKeyService hotKeyService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public List<OrderDTO> getAllOrders() {
-        return orderService.getAllOrders();
+    public ResponseEntity<List<?>> getAllOrders(@RequestParam(required = false) List<String> fields, WebRequest request) {
+        String etag = resourceVersions.collectionTag(ResourceVersions.ORDERS, fields);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<?> orders = fields != null ? orderService.getAllOrders(fields) : orderService.getAllOrders();
+        return ResponseEntity.ok().eTag(MongoGuard.servedStale() ? null : etag).body(orders);
     }
 
     @GetMapping("/{id}")
-    public OrderDTO getOrderById(@PathVariable String id) throws EntityNotFoundException {
-        return orderService.getOrderById(id);
+    public ResponseEntity<OrderDTO> getOrderById(@PathVariable String id, WebRequest request) throws EntityNotFoundException {
+        OrderDTO order = orderService.getOrderById(id);
+        // Orders carry no version field, so their tag hashes what the representation shows
+        String etag = ResourceVersions.contentTag("order", order.getId(),
+                order.getRobotId(), order.getStatus(), order.getItemId(), order.getQuantity(), order.getLocation());
+        // A stale body is neither tagged nor revalidated
+        if (MongoGuard.servedStale()) {
+            return ResponseEntity.ok().body(order);
+        }
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(order);
     }
 
     @PostMapping
@@ -70,6 +109,27 @@ public class OrderController {
         );
     }
 
+    @GetMapping("/analytics/cycle-time")
+    public CycleTimeStatsDTO getCycleTime(@RequestParam(required = false) String robotId,
+                                          @RequestParam(required = false) String itemId) {
+        return cycleTimeAnalytics.getStats(robotId, itemId);
+    }
+
+    @GetMapping("/analytics/group-by")
+    public List<OrderGroupDTO> groupBy(@RequestParam String by,
+                                       @RequestParam(required = false) String status,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        OrderColumnStore.Dimension dimension = OrderColumnStore.Dimension.valueOf(by.toUpperCase());
+        OrderStatus orderStatus = status == null ? null : OrderStatus.valueOf(status.toUpperCase());
+        return orderColumnStore.aggregate(dimension, orderStatus, from, to);
+    }
+
+    @GetMapping("/hot-items")
+    public List<HotKeyDTO> getHotItems(@RequestParam(defaultValue = "10") int limit) {
+        return hotKeyService.getHotItems(limit);
+    }
+
     @ExceptionHandler({EntityNotFoundException.class, IllegalArgumentException.class})
     public ResponseEntity<String> handleExceptions(Exception ex) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
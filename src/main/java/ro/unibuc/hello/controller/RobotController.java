@@ -1,9 +1,15 @@
 package ro.unibuc.hello.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ro.unibuc.hello.dto.HotKeyDTO;
 import ro.unibuc.hello.dto.RobotDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.resilience.MongoGuard;
+import ro.unibuc.hello.service.HotKeyService;
+import ro.unibuc.hello.service.ResourceVersions;
 import ro.unibuc.hello.service.RobotService;
 
 import java.util.List;
@@ -15,14 +21,40 @@ public class RobotController {
     @Autowired
     private RobotService robotService;
 
+    @Autowired
+    private HotKeyService hotKeyService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public List<RobotDTO> getAllRobots() {
-        return robotService.getAllRobots();
+    public ResponseEntity<List<?>> getAllRobots(@RequestParam(required = false) List<String> fields, WebRequest request) {
+        // Taken before the read, so a write racing with it can only make the next tag differ
+        String etag = resourceVersions.collectionTag(ResourceVersions.ROBOTS, fields);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<?> robots = fields != null ? robotService.getAllRobots(fields) : robotService.getAllRobots();
+        return ResponseEntity.ok().eTag(MongoGuard.servedStale() ? null : etag).body(robots);
+    }
+
+    @GetMapping("/top")
+    public List<HotKeyDTO> getTopRobots(@RequestParam(defaultValue = "10") int limit) {
+        return hotKeyService.getTopRobots(limit);
     }
 
     @GetMapping("/{id}")
-    public RobotDTO getRobotById(@PathVariable String id) throws EntityNotFoundException {
-        return robotService.getRobotById(id);
+    public ResponseEntity<RobotDTO> getRobotById(@PathVariable String id, WebRequest request) throws EntityNotFoundException {
+        RobotDTO robot = robotService.getRobotById(id);
+        String etag = ResourceVersions.documentTag("robot", robot.getId(), robot.getVersion());
+        // A stale body is neither tagged nor revalidated
+        if (MongoGuard.servedStale()) {
+            return ResponseEntity.ok().body(robot);
+        }
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(robot);
     }
 
     @PostMapping
@@ -0,0 +1,326 @@
+package ro.unibuc.hello.data;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Group commit for repository saves. Callers enqueue their entity and block on a future; a single writer
+ * thread collects everything that arrives within a short window (or until the batch is full), sends one
+ * unordered bulk write per collection and completes each caller with its own entity or its own error.
+ * Saves keep {@code MongoTemplate.save} semantics: a missing id is generated and the document is upserted,
+ * or, for {@code @Version} entities, inserted or replaced only if the stored version is unchanged.
+ * A caller waits at most {@code join-timeout-ms}; past that it gets a {@link QueryTimeoutException}, although
+ * its save may still be written once the batch it sits in goes through.
+ */
+@Component
+public class BatchingMongoWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingMongoWriter.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mongo.write-batching.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${mongo.write-batching.window-micros:1000}")
+    private long windowMicros = 1000;
+
+    @Value("${mongo.write-batching.max-batch-size:64}")
+    private int maxBatchSize = 64;
+
+    @Value("${mongo.write-batching.join-timeout-ms:10000}")
+    private long joinTimeoutMs = 10000;
+
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private DistributionSummary batchSize;
+    private Timer batchLatency;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        batchSize = DistributionSummary.builder("mongo.write.batch.size")
+                .description("Single-document saves merged into one bulk write")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        batchLatency = Timer.builder("mongo.write.batch.latency")
+                .description("Round trip of one merged bulk write")
+                .register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "mongo-write-batcher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    public <S> S save(S entity) {
+        if (!running) {
+            return mongoTemplate.save(entity);
+        }
+        PendingWrite pending = new PendingWrite(entity);
+        queue.add(pending);
+        pending.join(joinTimeoutMs);
+        return entity;
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingWrite first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(windowMicros);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: whatever was already collected is still written below
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    // Never let one batch take the writer thread down with it
+                    logger.error("Batched write of {} documents failed", batch.size(), e);
+                    batch.forEach(pending -> pending.fail(e));
+                }
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        }
+    }
+
+    void write(List<PendingWrite> batch) {
+        batchSize.record(batch.size());
+        Map<Class<?>, List<PendingWrite>> byType = new LinkedHashMap<>();
+        for (PendingWrite pending : batch) {
+            byType.computeIfAbsent(pending.entity.getClass(), type -> new ArrayList<>()).add(pending);
+        }
+        byType.forEach((type, writes) -> {
+            try {
+                batchLatency.record(() -> writeCollection(type, writes));
+            } catch (RuntimeException e) {
+                logger.warn("Bulk write of {} {} documents failed", writes.size(), type.getSimpleName(), e);
+                writes.forEach(pending -> pending.fail(e));
+            }
+        });
+    }
+
+    private void writeCollection(Class<?> type, List<PendingWrite> writes) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        MongoPersistentEntity<?> persistentEntity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        MongoPersistentProperty versionProperty = persistentEntity.getVersionProperty();
+        for (PendingWrite pending : writes) {
+            pending.id = assignId(persistentEntity, pending.entity);
+            if (versionProperty == null) {
+                operations.replaceOne(new Query(where("_id").is(pending.id)), pending.entity, FindAndReplaceOptions.options().upsert());
+                continue;
+            }
+
+            // Same rules as MongoTemplate.save for @Version entities: no version inserts, otherwise the
+            // replace only matches the version that was read and bumps it
+            PersistentPropertyAccessor<Object> accessor = persistentEntity.getPropertyAccessor(pending.entity);
+            Number current = (Number) accessor.getProperty(versionProperty);
+            pending.previousVersion = current;
+            pending.restoreVersion = () -> accessor.setProperty(versionProperty, current);
+            if (current == null) {
+                accessor.setProperty(versionProperty, versionValue(versionProperty, 0));
+                operations.insert(pending.entity);
+            } else {
+                accessor.setProperty(versionProperty, versionValue(versionProperty, current.longValue() + 1));
+                pending.versionChecked = true;
+                operations.replaceOne(new Query(where("_id").is(pending.id).and(versionProperty.getName()).is(current)),
+                        pending.entity, FindAndReplaceOptions.none());
+            }
+        }
+
+        Map<Integer, BulkWriteError> errors = new LinkedHashMap<>();
+        BulkWriteResult result;
+        try {
+            result = operations.execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> errors.put(error.getIndex(), error));
+            result = e.getResult();
+        }
+
+        Set<Integer> conflicts = findVersionConflicts(type, persistentEntity, versionProperty, writes, errors, result);
+        for (int i = 0; i < writes.size(); i++) {
+            PendingWrite pending = writes.get(i);
+            BulkWriteError error = errors.get(i);
+            if (error != null) {
+                pending.fail(translate(error));
+            } else if (conflicts.contains(i)) {
+                pending.fail(new OptimisticLockingFailureException(
+                        "Cannot save " + type.getSimpleName() + " " + pending.id + ": version " + pending.previousVersion + " is stale"));
+            } else {
+                pending.future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * A bulk result only reports how many replaces matched in total. When that falls short, the versions now
+     * stored tell which writes lost: every replace that went through left exactly the version it wrote.
+     */
+    private Set<Integer> findVersionConflicts(Class<?> type, MongoPersistentEntity<?> persistentEntity,
+                                              MongoPersistentProperty versionProperty, List<PendingWrite> writes,
+                                              Map<Integer, BulkWriteError> errors, BulkWriteResult result) {
+        List<Integer> checked = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            if (writes.get(i).versionChecked && !errors.containsKey(i)) {
+                checked.add(i);
+            }
+        }
+        if (checked.isEmpty() || result == null || result.getMatchedCount() >= checked.size()) {
+            return Set.of();
+        }
+
+        Query query = new Query(where("_id").in(checked.stream().map(i -> writes.get(i).id).toList()));
+        query.fields().include("_id").include(versionProperty.getName());
+        Map<Object, Object> stored = new HashMap<>();
+        for (Object document : mongoTemplate.find(query, type)) {
+            PersistentPropertyAccessor<Object> accessor = persistentEntity.getPropertyAccessor(document);
+            stored.put(accessor.getProperty(persistentEntity.getRequiredIdProperty()), accessor.getProperty(versionProperty));
+        }
+
+        Set<Integer> conflicts = new HashSet<>();
+        for (int i : checked) {
+            PendingWrite pending = writes.get(i);
+            Object written = persistentEntity.getPropertyAccessor(pending.entity).getProperty(versionProperty);
+            if (!Objects.equals(stored.get(pending.id), written)) {
+                conflicts.add(i);
+            }
+        }
+        return conflicts;
+    }
+
+    private static Object versionValue(MongoPersistentProperty versionProperty, long value) {
+        Class<?> type = versionProperty.getType();
+        return type == Integer.class || type == int.class ? Integer.valueOf((int) value) : Long.valueOf(value);
+    }
+
+    private static RuntimeException translate(BulkWriteError error) {
+        if (error.getCode() == DUPLICATE_KEY) {
+            return new DuplicateKeyException(error.getMessage());
+        }
+        return new DataIntegrityViolationException(error.getMessage());
+    }
+
+    private static Object assignId(MongoPersistentEntity<?> persistentEntity, Object entity) {
+        MongoPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        PersistentPropertyAccessor<Object> accessor = persistentEntity.getPropertyAccessor(entity);
+        Object id = accessor.getProperty(idProperty);
+        if (id == null) {
+            id = idProperty.getType() == ObjectId.class ? new ObjectId() : new ObjectId().toHexString();
+            accessor.setProperty(idProperty, id);
+        }
+        return id;
+    }
+
+    static class PendingWrite {
+        private final Object entity;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Object id;
+        private Number previousVersion;
+        private boolean versionChecked;
+        private Runnable restoreVersion;
+
+        PendingWrite(Object entity) {
+            this.entity = entity;
+        }
+
+        /** Puts back the version the caller passed in and fails it, unless it already has its answer. */
+        void fail(RuntimeException error) {
+            if (future.isDone()) {
+                return;
+            }
+            if (restoreVersion != null) {
+                restoreVersion.run();
+            }
+            future.completeExceptionally(error);
+        }
+
+        void join(long timeoutMs) {
+            try {
+                future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new QueryTimeoutException("Batched save not written within " + timeoutMs + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryTimeoutException("Interrupted while waiting for a batched save");
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ro.unibuc.hello.data;
+
+/**
+ * Repository fragment that routes single-document saves through {@link BatchingMongoWriter}, so concurrent
+ * callers share one bulk write instead of paying a round trip each.
+ */
+public interface BatchingSave<T> {
+
+    <S extends T> S save(S entity);
+}
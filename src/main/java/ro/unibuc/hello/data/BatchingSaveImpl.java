@@ -0,0 +1,14 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class BatchingSaveImpl<T> implements BatchingSave<T> {
+
+    @Autowired
+    private BatchingMongoWriter batchingMongoWriter;
+
+    @Override
+    public <S extends T> S save(S entity) {
+        return batchingMongoWriter.save(entity);
+    }
+}
@@ -0,0 +1,28 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "cluster_nodes")
+public class ClusterNodeEntity {
+
+    @Id
+    private String nodeId;
+    private String url;
+    @Indexed
+    private Date lastHeartbeat;
+
+    public ClusterNodeEntity() {}
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+
+    public Date getLastHeartbeat() { return lastHeartbeat; }
+    public void setLastHeartbeat(Date lastHeartbeat) { this.lastHeartbeat = lastHeartbeat; }
+}
@@ -0,0 +1,55 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import ro.unibuc.hello.sketch.SpaceSaving;
+
+import java.util.Date;
+import java.util.List;
+
+/** One replica's rolling hot-key summary for one stream, shared so every replica can answer with global top-K. */
+@Document(collection = "hotkey_sketches")
+public class HotKeySketchEntity {
+
+    @Id
+    private String id;
+    private String nodeId;
+    private String stream;
+    private int depth;
+    private int width;
+    private byte[] counters;
+    private int capacity;
+    private List<SpaceSaving.Entry> heavyHitters;
+    @Indexed
+    private Date updatedAt;
+
+    public HotKeySketchEntity() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public String getStream() { return stream; }
+    public void setStream(String stream) { this.stream = stream; }
+
+    public int getDepth() { return depth; }
+    public void setDepth(int depth) { this.depth = depth; }
+
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public byte[] getCounters() { return counters; }
+    public void setCounters(byte[] counters) { this.counters = counters; }
+
+    public int getCapacity() { return capacity; }
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    public List<SpaceSaving.Entry> getHeavyHitters() { return heavyHitters; }
+    public void setHeavyHitters(List<SpaceSaving.Entry> heavyHitters) { this.heavyHitters = heavyHitters; }
+
+    public Date getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+}
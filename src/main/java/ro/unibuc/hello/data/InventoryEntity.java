@@ -1,18 +1,30 @@
 package ro.unibuc.hello.data;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "inventory")
+@CompoundIndex(name = "pending_ledger", def = "{'pendingLedger._id': 1}", sparse = true)
 public class InventoryEntity {
 
     @Id
     private String itemId;
+    @Indexed
     private String name;
+    @Indexed
     private Integer stock;
+    @Indexed
     private Integer threshold;
+    @Version
+    private Long version;
+    // Ledger entries stored with the stock change they record, until StockLedgerService moves them to stock_ledger
+    private List<StockLedgerEntry> pendingLedger;
 
     public InventoryEntity() {}
 
@@ -55,9 +67,24 @@ public class InventoryEntity {
         this.threshold = threshold;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<StockLedgerEntry> getPendingLedger() {
+        return pendingLedger;
+    }
+
+    public void setPendingLedger(List<StockLedgerEntry> pendingLedger) {
+        this.pendingLedger = pendingLedger;
+    }
+
     @Override
     public String toString() {
-        return String.format("Inventory[itemId='%s', name='%s', stock=%d, threshold=%d]", 
-                itemId, name, stock, threshold);
+        return "Inventory[itemId='" + itemId + "', name='" + name + "', stock=" + stock + ", threshold=" + threshold + "]";
     }
 }
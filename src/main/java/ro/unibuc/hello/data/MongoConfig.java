@@ -4,12 +4,18 @@ import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.observability.ContextProviderFactory;
+import org.springframework.data.mongodb.observability.MongoObservationCommandListener;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 @Configuration
 public class MongoConfig extends AbstractMongoClientConfiguration {
@@ -17,6 +23,15 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${mongodb.connection.url}")
     private String connectionURL;
 
+    @Value("${mongodb.auto-index-creation:true}")
+    private boolean autoIndexCreation = true;
+
+    @Autowired
+    private List<CommandListener> commandListeners;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
     @Override
     protected String getDatabaseName() {
         return "test";
@@ -24,13 +39,23 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
 
     @Override
     public MongoClient mongoClient() {
-        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
-                .applyConnectionString(new ConnectionString(connectionURL))
-                .build();
+        ConnectionString connectionString = new ConnectionString(connectionURL);
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(connectionString)
+                .contextProvider(ContextProviderFactory.create(observationRegistry))
+                .addCommandListener(new MongoObservationCommandListener(observationRegistry, connectionString));
+        commandListeners.forEach(builder::addCommandListener);
+        MongoClientSettings mongoClientSettings = builder.build();
 
         return MongoClients.create(mongoClientSettings);
     }
 
+    // Creates the @Indexed/@CompoundIndex indexes of every entity in the mapping base package at startup
+    @Override
+    protected boolean autoIndexCreation() {
+        return autoIndexCreation;
+    }
+
     @Override
     public Collection<String> getMappingBasePackages() {
         return Collections.singleton("ro.unibuc.hello.data");
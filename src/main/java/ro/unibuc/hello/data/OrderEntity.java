@@ -1,17 +1,23 @@
 package ro.unibuc.hello.data;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "orders")
+// robotId first serves findByRobotId and the active-order check; status first serves the status lookups and the archiver
+@CompoundIndex(name = "robot_status", def = "{'robotId': 1, 'status': 1}")
+@CompoundIndex(name = "status_completed", def = "{'status': 1, 'completedAt': 1}")
 public class OrderEntity {
 
     @Id
     private String id;
     private String robotId;
     private OrderStatus status; 
+    @Indexed
     private String itemId;
     private int quantity;
     private String location;
@@ -64,7 +70,7 @@ public class OrderEntity {
 
     @Override
     public String toString() {
-        return String.format("Order[id='%s', robotId='%s', status='%s', item='%s', quantity=%d, location='%s']",
-                id, robotId, status, itemId, quantity, location);
+        return "Order[id='" + id + "', robotId='" + robotId + "', status='" + status + "', item='" + itemId
+                + "', quantity=" + quantity + ", location='" + location + "']";
     }
 }
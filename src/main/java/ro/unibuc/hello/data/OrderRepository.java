@@ -1,13 +1,21 @@
 package ro.unibuc.hello.data;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface OrderRepository extends MongoRepository<OrderEntity, String> {
+public interface OrderRepository extends MongoRepository<OrderEntity, String>, BatchingSave<OrderEntity> {
 
-    List<OrderEntity> findByWorkerId(String robotId);
-    List<OrderEntity> findByStatus(String status);
+    List<OrderEntity> findByRobotId(String robotId);
+    List<OrderEntity> findByStatus(OrderStatus status);
     List<OrderEntity> findByItemId(String itemId);
+    boolean existsByRobotIdAndStatusIn(String robotId, Collection<OrderStatus> statuses);
+    long countByStatus(OrderStatus status);
+
+    // Only the fields OrderDTO exposes; createdAt, completedAt, error and stockChecked stay in Mongo
+    @Query(value = "{}", fields = "{ 'robotId': 1, 'status': 1, 'itemId': 1, 'quantity': 1, 'location': 1 }")
+    List<OrderEntity> findAllSummaries();
 }
@@ -0,0 +1,37 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "partition_leases")
+public class PartitionLeaseEntity {
+
+    @Id
+    private Integer partition;
+    private String ownerId;
+    private String ownerUrl;
+    @Indexed
+    private Date expiresAt;
+    // Incremented on every change of owner, never reset
+    private long fencingToken;
+
+    public PartitionLeaseEntity() {}
+
+    public Integer getPartition() { return partition; }
+    public void setPartition(Integer partition) { this.partition = partition; }
+
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+
+    public String getOwnerUrl() { return ownerUrl; }
+    public void setOwnerUrl(String ownerUrl) { this.ownerUrl = ownerUrl; }
+
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+
+    public long getFencingToken() { return fencingToken; }
+    public void setFencingToken(long fencingToken) { this.fencingToken = fencingToken; }
+}
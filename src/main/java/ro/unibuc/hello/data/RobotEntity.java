@@ -1,6 +1,8 @@
 package ro.unibuc.hello.data;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -9,11 +11,16 @@ public class RobotEntity {
 
     @Id
     private String id;
+    @Indexed
     private String status;
     private String currentOrderId;
+    @Indexed
     private Integer completedOrders;
     private String errors;
     private LocalDateTime lastUpdatedAt;  
+    @Version
+    private Long version;
+    private Long fencingToken;
 
     public RobotEntity() {}
 
@@ -73,9 +80,25 @@ public class RobotEntity {
         this.lastUpdatedAt = lastUpdatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(Long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
+
     @Override
     public String toString() {
-        return String.format("Robot[id='%s', status='%s', currentOrderId='%s', completedOrders=%d, errors='%s', lastUpdatedAt='%s']",
-                id, status, currentOrderId, completedOrders, errors, lastUpdatedAt);
+        return "Robot[id='" + id + "', status='" + status + "', currentOrderId='" + currentOrderId
+                + "', completedOrders=" + completedOrders + ", errors='" + errors + "', lastUpdatedAt='" + lastUpdatedAt + "']";
     }
 }
@@ -2,16 +2,21 @@ package ro.unibuc.hello.data;
 
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface RobotRepository extends MongoRepository<RobotEntity, String> {
+public interface RobotRepository extends MongoRepository<RobotEntity, String>, BatchingSave<RobotEntity> {
 
     Optional<RobotEntity> findById(String id);
 
     List<RobotEntity> findByStatus(String status);
 
     List<RobotEntity> findByCompletedOrders(Integer orders);
+
+    // Only the fields RobotDTO exposes; lastUpdatedAt stays in Mongo
+    @Query(value = "{}", fields = "{ 'status': 1, 'currentOrderId': 1, 'completedOrders': 1, 'errors': 1 }")
+    List<RobotEntity> findAllSummaries();
 }
@@ -0,0 +1,49 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "stock_ledger")
+@CompoundIndex(name = "item_entries", def = "{'itemId': 1, '_id': 1}")
+public class StockLedgerEntry {
+
+    @Id
+    private String id;
+    private String itemId;
+    private StockOperation operation;
+    private int delta;
+    private int stockAfter;
+    private LocalDateTime recordedAt;
+
+    public StockLedgerEntry() {}
+
+    public StockLedgerEntry(String id, String itemId, StockOperation operation, int delta, int stockAfter) {
+        this.id = id;
+        this.itemId = itemId;
+        this.operation = operation;
+        this.delta = delta;
+        this.stockAfter = stockAfter;
+        this.recordedAt = LocalDateTime.now();
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public StockOperation getOperation() { return operation; }
+    public void setOperation(StockOperation operation) { this.operation = operation; }
+
+    public int getDelta() { return delta; }
+    public void setDelta(int delta) { this.delta = delta; }
+
+    public int getStockAfter() { return stockAfter; }
+    public void setStockAfter(int stockAfter) { this.stockAfter = stockAfter; }
+
+    public LocalDateTime getRecordedAt() { return recordedAt; }
+    public void setRecordedAt(LocalDateTime recordedAt) { this.recordedAt = recordedAt; }
+}
@@ -0,0 +1,7 @@
+package ro.unibuc.hello.data;
+
+public enum StockOperation {
+    RECEIVE,
+    PICK,
+    ADJUST
+}
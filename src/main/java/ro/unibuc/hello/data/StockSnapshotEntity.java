@@ -0,0 +1,37 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "stock_snapshots")
+public class StockSnapshotEntity {
+
+    @Id
+    private String itemId;
+    private int stock;
+    private String lastEntryId;
+    private LocalDateTime takenAt;
+
+    public StockSnapshotEntity() {}
+
+    public StockSnapshotEntity(String itemId, int stock, String lastEntryId) {
+        this.itemId = itemId;
+        this.stock = stock;
+        this.lastEntryId = lastEntryId;
+        this.takenAt = LocalDateTime.now();
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public int getStock() { return stock; }
+    public void setStock(int stock) { this.stock = stock; }
+
+    public String getLastEntryId() { return lastEntryId; }
+    public void setLastEntryId(String lastEntryId) { this.lastEntryId = lastEntryId; }
+
+    public LocalDateTime getTakenAt() { return takenAt; }
+    public void setTakenAt(LocalDateTime takenAt) { this.takenAt = takenAt; }
+}
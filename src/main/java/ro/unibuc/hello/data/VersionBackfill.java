@@ -0,0 +1,40 @@
+package ro.unibuc.hello.data;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Gives robots and inventory items written before they had a {@code @Version} field a version of 0. Spring Data
+ * treats an entity whose version is null as new and inserts it, so without this the first update of such a
+ * document fails with a duplicate key. Runs before the application takes traffic; once every document has a
+ * version the update matches nothing.
+ */
+@Component
+public class VersionBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionBackfill.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        for (Class<?> type : List.of(RobotEntity.class, InventoryEntity.class)) {
+            long count = mongoTemplate.updateMulti(new Query(where("version").exists(false)),
+                    new Update().set("version", 0L), type).getModifiedCount();
+            if (count > 0) {
+                logger.info("Set version 0 on {} {} documents that had none", count, mongoTemplate.getCollectionName(type));
+            }
+        }
+    }
+}
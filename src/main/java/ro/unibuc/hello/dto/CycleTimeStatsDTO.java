@@ -0,0 +1,56 @@
+package ro.unibuc.hello.dto;
+
+public class CycleTimeStatsDTO {
+
+    private String scope;
+    private String key;
+    private long windowSeconds;
+    private long count;
+    private long p50Ms;
+    private long p90Ms;
+    private long p99Ms;
+    private long maxMs;
+    private double meanMs;
+
+    public CycleTimeStatsDTO() {}
+
+    public CycleTimeStatsDTO(String scope, String key, long windowSeconds, long count,
+                             long p50Ms, long p90Ms, long p99Ms, long maxMs, double meanMs) {
+        this.scope = scope;
+        this.key = key;
+        this.windowSeconds = windowSeconds;
+        this.count = count;
+        this.p50Ms = p50Ms;
+        this.p90Ms = p90Ms;
+        this.p99Ms = p99Ms;
+        this.maxMs = maxMs;
+        this.meanMs = meanMs;
+    }
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public long getWindowSeconds() { return windowSeconds; }
+    public void setWindowSeconds(long windowSeconds) { this.windowSeconds = windowSeconds; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public long getP50Ms() { return p50Ms; }
+    public void setP50Ms(long p50Ms) { this.p50Ms = p50Ms; }
+
+    public long getP90Ms() { return p90Ms; }
+    public void setP90Ms(long p90Ms) { this.p90Ms = p90Ms; }
+
+    public long getP99Ms() { return p99Ms; }
+    public void setP99Ms(long p99Ms) { this.p99Ms = p99Ms; }
+
+    public long getMaxMs() { return maxMs; }
+    public void setMaxMs(long maxMs) { this.maxMs = maxMs; }
+
+    public double getMeanMs() { return meanMs; }
+    public void setMeanMs(double meanMs) { this.meanMs = meanMs; }
+}
@@ -0,0 +1,25 @@
+package ro.unibuc.hello.dto;
+
+public class HotKeyDTO {
+
+    private String key;
+    private long count;
+    private long maxError;
+
+    public HotKeyDTO() {}
+
+    public HotKeyDTO(String key, long count, long maxError) {
+        this.key = key;
+        this.count = count;
+        this.maxError = maxError;
+    }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public long getMaxError() { return maxError; }
+    public void setMaxError(long maxError) { this.maxError = maxError; }
+}
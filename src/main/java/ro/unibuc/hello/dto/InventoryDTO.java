@@ -1,5 +1,7 @@
 package ro.unibuc.hello.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class InventoryDTO {
 
     private String itemId; 
@@ -7,6 +9,10 @@ public class InventoryDTO {
     private Integer stock;
     private Integer threshold;
 
+    // Source of the ETag, not part of the representation
+    @JsonIgnore
+    private Long version;
+
     public InventoryDTO() {}
 
     public InventoryDTO(String itemId, String name, Integer stock, Integer threshold) {
@@ -27,4 +33,7 @@ public class InventoryDTO {
 
     public Integer getThreshold() { return threshold; }
     public void setThreshold(Integer threshold) { this.threshold = threshold; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -0,0 +1,45 @@
+package ro.unibuc.hello.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InventoryImportReport {
+
+    private static final int MAX_ERRORS = 100;
+
+    private long processed;
+    private long imported;
+    private long rejected;
+    private int batches;
+    private boolean done;
+    private final List<String> errors = new ArrayList<>();
+
+    public InventoryImportReport() {}
+
+    public void incrementProcessed() { processed++; }
+
+    public void addImported(long count) {
+        imported += count;
+        batches++;
+    }
+
+    public void reject(long line, String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + line + ": " + reason);
+        }
+    }
+
+    public long getProcessed() { return processed; }
+
+    public long getImported() { return imported; }
+
+    public long getRejected() { return rejected; }
+
+    public int getBatches() { return batches; }
+
+    public boolean isDone() { return done; }
+    public void setDone(boolean done) { this.done = done; }
+
+    public List<String> getErrors() { return errors; }
+}
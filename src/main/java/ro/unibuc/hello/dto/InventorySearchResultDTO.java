@@ -0,0 +1,20 @@
+package ro.unibuc.hello.dto;
+
+public class InventorySearchResultDTO {
+
+    private String itemId;
+    private String name;
+
+    public InventorySearchResultDTO() {}
+
+    public InventorySearchResultDTO(String itemId, String name) {
+        this.itemId = itemId;
+        this.name = name;
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -1,5 +1,7 @@
 package ro.unibuc.hello.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class RobotDTO {
 
     private String id;
@@ -8,6 +10,10 @@ public class RobotDTO {
     private Integer completedOrders;
     private String errors;
 
+    // Source of the ETag, not part of the representation
+    @JsonIgnore
+    private Long version;
+
     public RobotDTO() {}
 
     public RobotDTO(String id, String status, String currentOrderId, Integer completedOrders, String errors) {
@@ -32,4 +38,7 @@ public class RobotDTO {
 
     public String getErrors() { return errors; }
     public void setErrors(String errors) { this.errors = errors; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -0,0 +1,50 @@
+package ro.unibuc.hello.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RobotStreamMessage {
+
+    public static final String HEARTBEAT = "HEARTBEAT";
+    public static final String STATUS = "STATUS";
+    public static final String ORDER_STATUS = "ORDER_STATUS";
+    public static final String ACK = "ACK";
+    public static final String ERROR = "ERROR";
+    public static final String ORDER_ASSIGNED = "ORDER_ASSIGNED";
+
+    private String type;
+    private Long seq;
+    private String status;
+    private String orderId;
+    private String error;
+    private RobotDTO robot;
+    private OrderDTO order;
+
+    public RobotStreamMessage() {}
+
+    public RobotStreamMessage(String type, Long seq) {
+        this.type = type;
+        this.seq = seq;
+    }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public RobotDTO getRobot() { return robot; }
+    public void setRobot(RobotDTO robot) { this.robot = robot; }
+
+    public OrderDTO getOrder() { return order; }
+    public void setOrder(OrderDTO order) { this.order = order; }
+}
@@ -1,17 +1,26 @@
 package ro.unibuc.hello.exception;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.client.RestClientException;
+import ro.unibuc.hello.cluster.OwnerProxy;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    @Autowired(required = false)
+    private OwnerProxy ownerProxy;
+
     @ExceptionHandler({
             RobotNotFoundException.class,
             RobotBusyException.class,
@@ -19,6 +28,7 @@ public class GlobalExceptionHandler {
             InsufficientStockException.class,
             InvalidStatusException.class,
             InvalidQuantityException.class,
+            ValidationException.class,
             EntityNotFoundException.class
     })
     public ResponseEntity<String> handleCustomException(RuntimeException ex) {
@@ -26,6 +36,35 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConflict(OptimisticLockingFailureException ex) {
+        logger.warn("Concurrent modification: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    // Robots owned by another replica: pass the request on to it and relay its answer, or ask to retry if no owner
+    // is known, the owner cannot be reached, or the request was already forwarded once
+    @ExceptionHandler(PartitionNotOwnedException.class)
+    public ResponseEntity<?> handleNotOwned(PartitionNotOwnedException ex, HttpServletRequest request) {
+        if (ex.getOwnerUrl() != null && ownerProxy != null && !OwnerProxy.isForwarded(request)) {
+            try {
+                return ownerProxy.forward(request, ex.getOwnerUrl());
+            } catch (RestClientException e) {
+                logger.warn("Could not forward {} {} to {}: {}", request.getMethod(), request.getRequestURI(), ex.getOwnerUrl(), e.getMessage());
+            }
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(ex.getMessage());
+    }
+
+    // Mongo is failing or saturated: fail fast and let the client come back once the breaker may have closed
+    @ExceptionHandler(StoreUnavailableException.class)
+    public ResponseEntity<String> handleStoreUnavailable(StoreUnavailableException ex) {
+        logger.warn("Store unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception ex) {
         logger.error("Unexpected error occurred: ", ex);
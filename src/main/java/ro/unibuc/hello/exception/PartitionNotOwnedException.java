@@ -0,0 +1,15 @@
+package ro.unibuc.hello.exception;
+
+public class PartitionNotOwnedException extends RuntimeException {
+
+    private final String ownerUrl;
+
+    public PartitionNotOwnedException(String robotId, String ownerUrl) {
+        super("Robot " + robotId + " is owned by " + (ownerUrl != null ? ownerUrl : "no live node yet"));
+        this.ownerUrl = ownerUrl;
+    }
+
+    public String getOwnerUrl() {
+        return ownerUrl;
+    }
+}
@@ -0,0 +1,21 @@
+package ro.unibuc.hello.exception;
+
+public class StoreUnavailableException extends RuntimeException {
+
+    private final String collection;
+    private final long retryAfterSeconds;
+
+    public StoreUnavailableException(String collection, String reason, long retryAfterSeconds, Throwable cause) {
+        super("The " + collection + " store is unavailable: " + reason, cause);
+        this.collection = collection;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,64 @@
+package ro.unibuc.hello.journal;
+
+import ro.unibuc.hello.data.OrderEntity;
+import ro.unibuc.hello.data.OrderStatus;
+
+/**
+ * One order lifecycle transition as stored in the journal. During replay the same instance is reused for
+ * every record, so handlers that keep events must {@link #copy()} them.
+ */
+public class OrderEvent {
+
+    private OrderEventType type;
+    private long timestamp;
+    private String orderId;
+    private String robotId;
+    private String itemId;
+    private OrderStatus status;
+    private int quantity;
+
+    public OrderEvent() {}
+
+    public OrderEvent(OrderEventType type, long timestamp, String orderId, String robotId, String itemId, OrderStatus status, int quantity) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.robotId = robotId;
+        this.itemId = itemId;
+        this.status = status;
+        this.quantity = quantity;
+    }
+
+    public static OrderEvent of(OrderEventType type, OrderEntity order) {
+        return new OrderEvent(type, System.currentTimeMillis(), order.getId(), order.getRobotId(), order.getItemId(),
+                order.getStatus(), order.getQuantity());
+    }
+
+    public OrderEvent copy() {
+        return new OrderEvent(type, timestamp, orderId, robotId, itemId, status, quantity);
+    }
+
+    void set(OrderEventType type, long timestamp, String orderId, String robotId, String itemId, OrderStatus status, int quantity) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.robotId = robotId;
+        this.itemId = itemId;
+        this.status = status;
+        this.quantity = quantity;
+    }
+
+    public OrderEventType getType() { return type; }
+
+    public long getTimestamp() { return timestamp; }
+
+    public String getOrderId() { return orderId; }
+
+    public String getRobotId() { return robotId; }
+
+    public String getItemId() { return itemId; }
+
+    public OrderStatus getStatus() { return status; }
+
+    public int getQuantity() { return quantity; }
+}
@@ -0,0 +1,428 @@
+package ro.unibuc.hello.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.unibuc.hello.data.OrderStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of order lifecycle events stored in fixed-size memory-mapped segment files.
+ *
+ * <p>Each record is {@code [int length][int crc32c][payload]}; a zero length marks the end of the written
+ * part of a segment. Appends copy into the mapped segment under a short lock. A background flusher forces
+ * every dirty range to disk, so concurrent appenders waiting for durability share a single fsync
+ * (group commit). When a segment cannot fit the next record it is forced and a new one is started.
+ *
+ * <p>Waiting for durability is bounded by {@code durableTimeoutMs}: if forcing keeps failing (a full or
+ * read-only disk) callers get {@code false} instead of blocking forever, and {@link #getFlushFailure()} reports
+ * the last error until a flush succeeds again.
+ *
+ * <p>At most {@code maxSegments} segments are kept (zero keeps all): after a roll the oldest ones are deleted,
+ * so the journal never needs more than {@code maxSegments * segmentSize} bytes of disk and replays only cover
+ * the events in the segments that are left.
+ */
+public class OrderEventJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventJournal.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final OrderEventType[] TYPES = OrderEventType.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long flushIntervalNanos;
+    private final boolean awaitDurable;
+    private final long durableTimeoutNanos;
+
+    // Guarded by writeLock
+    private final Object writeLock = new Object();
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int flushedPosition;
+    private long appendedSeq;
+
+    private final AtomicLong durableSeq = new AtomicLong();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition flushRequested = commitLock.newCondition();
+    private final Condition flushed = commitLock.newCondition();
+    private boolean flushPending;
+    private volatile boolean running;
+    private volatile RuntimeException flushFailure;
+    private Thread flusher;
+
+    public OrderEventJournal(Path directory, int segmentSize, int maxSegments, long flushIntervalMs, boolean awaitDurable, long durableTimeoutMs) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.awaitDurable = awaitDurable;
+        this.durableTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(durableTimeoutMs);
+    }
+
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        synchronized (writeLock) {
+            if (segments.isEmpty()) {
+                mapSegment(0, 0);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                long index = segmentIndexOf(last);
+                MappedByteBuffer existing = readOnly(last);
+                forEachRecord(existing, null);
+                int end = existing.position();
+                mapSegment(index, end);
+                logger.info("Order journal recovered: {} segments, last segment {} ends at byte {}", segments.size(), index, end);
+            }
+        }
+        logger.info("Order journal open in {}", directory.toAbsolutePath());
+        running = true;
+        flusher = new Thread(this::flushLoop, "order-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Appends an event and, when the journal was opened with {@code awaitDurable}, blocks until a group
+     * commit has forced it to disk, failing if that takes longer than the durability timeout. Returns the
+     * event's sequence number within this process.
+     */
+    public long append(OrderEvent event) {
+        byte[] payload = encode(event);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int recordSize = HEADER_BYTES + payload.length;
+        if (recordSize + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + recordSize + " bytes does not fit a segment");
+        }
+
+        long seq;
+        synchronized (writeLock) {
+            // Keep room for the zero length that terminates the segment
+            if (segment.remaining() < recordSize + Integer.BYTES) {
+                roll();
+            }
+            segment.putInt(payload.length);
+            segment.putInt((int) crc.getValue());
+            segment.put(payload);
+            seq = ++appendedSeq;
+        }
+
+        if (awaitDurable && !awaitDurable(seq)) {
+            throw new IllegalStateException("Order journal event " + seq + " was not forced to disk in time", flushFailure);
+        }
+        return seq;
+    }
+
+    /** Replays every valid record of every segment, in append order. */
+    public long replay(Consumer<OrderEvent> handler) throws IOException {
+        long count = 0;
+        OrderEvent event = new OrderEvent();
+        for (Path path : listSegments()) {
+            MappedByteBuffer segment;
+            try {
+                segment = readOnly(path);
+            } catch (NoSuchFileException e) {
+                // Deleted by retention since it was listed
+                continue;
+            }
+            count += forEachRecord(segment, buffer -> {
+                decode(buffer, event);
+                handler.accept(event);
+            });
+        }
+        return count;
+    }
+
+    public long getDurableSequence() {
+        return durableSeq.get();
+    }
+
+    public long getAppendedSequence() {
+        synchronized (writeLock) {
+            return appendedSeq;
+        }
+    }
+
+    /** The error of the last flush if it failed, or null once a flush succeeds. */
+    public RuntimeException getFlushFailure() {
+        return flushFailure;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (flusher != null) {
+            commitLock.lock();
+            try {
+                flushRequested.signalAll();
+            } finally {
+                commitLock.unlock();
+            }
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushOnce();
+    }
+
+    /**
+     * Blocks until the event with this sequence number has been forced to disk, for at most the durability
+     * timeout. Returns whether it is durable.
+     */
+    public boolean awaitDurable(long seq) {
+        long deadline = System.nanoTime() + durableTimeoutNanos;
+        commitLock.lock();
+        try {
+            while (durableSeq.get() < seq && running) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                flushPending = true;
+                flushRequested.signal();
+                flushed.awaitNanos(Math.min(remaining, flushIntervalNanos + TimeUnit.MILLISECONDS.toNanos(100)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            commitLock.unlock();
+        }
+        return durableSeq.get() >= seq;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            commitLock.lock();
+            try {
+                if (!flushPending) {
+                    flushRequested.awaitNanos(flushIntervalNanos);
+                }
+                flushPending = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                commitLock.unlock();
+            }
+            try {
+                flushOnce();
+                flushFailure = null;
+            } catch (RuntimeException e) {
+                if (flushFailure == null) {
+                    logger.error("Order journal flush failed", e);
+                }
+                flushFailure = e;
+            }
+        }
+    }
+
+    private void flushOnce() {
+        MappedByteBuffer dirty;
+        int from;
+        int to;
+        long seq;
+        synchronized (writeLock) {
+            if (segment == null) {
+                return;
+            }
+            dirty = segment;
+            from = flushedPosition;
+            to = segment.position();
+            seq = appendedSeq;
+        }
+
+        if (to > from) {
+            dirty.force(from, to - from);
+            synchronized (writeLock) {
+                if (dirty == segment) {
+                    flushedPosition = Math.max(flushedPosition, to);
+                }
+            }
+        }
+        markDurable(seq);
+    }
+
+    private void markDurable(long seq) {
+        durableSeq.accumulateAndGet(seq, Math::max);
+        commitLock.lock();
+        try {
+            flushed.signalAll();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Called with writeLock held
+    private void roll() {
+        segment.force();
+        long seq = appendedSeq;
+        try {
+            mapSegment(segmentIndex + 1, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll order journal segment", e);
+        }
+        durableSeq.accumulateAndGet(seq, Math::max);
+        deleteOldSegments();
+    }
+
+    // Called with writeLock held
+    private void deleteOldSegments() {
+        if (maxSegments <= 0) {
+            return;
+        }
+        try {
+            List<Path> segments = listSegments();
+            for (int i = 0; i < segments.size() - maxSegments; i++) {
+                Files.deleteIfExists(segments.get(i));
+                logger.info("Order journal segment {} deleted, keeping the last {}", segments.get(i).getFileName(), maxSegments);
+            }
+        } catch (IOException e) {
+            // The append itself succeeded; the next roll tries again
+            logger.warn("Could not delete old order journal segments: {}", e.getMessage());
+        }
+    }
+
+    // Called with writeLock held
+    private void mapSegment(long index, int position) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.position(position);
+        segmentIndex = index;
+        flushedPosition = position;
+    }
+
+    private MappedByteBuffer readOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /** Walks the valid records of a segment and returns how many it saw; the buffer ends positioned after the last one. */
+    private static int forEachRecord(ByteBuffer buffer, Consumer<ByteBuffer> recordHandler) {
+        CRC32C crc = new CRC32C();
+        int count = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                buffer.position(start);
+                break;
+            }
+            int expectedCrc = buffer.getInt();
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                logger.warn("Order journal record at byte {} failed its CRC check, stopping", start);
+                buffer.position(start);
+                break;
+            }
+            if (recordHandler != null) {
+                recordHandler.accept(payload);
+            }
+            buffer.position(buffer.position() + length);
+            count++;
+        }
+        return count;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long segmentIndexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(OrderEvent event) {
+        byte[] orderId = bytes(event.getOrderId());
+        byte[] robotId = bytes(event.getRobotId());
+        byte[] itemId = bytes(event.getItemId());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + 1
+                + 3 * Short.BYTES + length(orderId) + length(robotId) + length(itemId));
+        buffer.put((byte) event.getType().ordinal());
+        buffer.putLong(event.getTimestamp());
+        buffer.putInt(event.getQuantity());
+        buffer.put(event.getStatus() == null ? -1 : (byte) event.getStatus().ordinal());
+        putString(buffer, orderId);
+        putString(buffer, robotId);
+        putString(buffer, itemId);
+        return buffer.array();
+    }
+
+    private static void decode(ByteBuffer buffer, OrderEvent event) {
+        OrderEventType type = TYPES[buffer.get()];
+        long timestamp = buffer.getLong();
+        int quantity = buffer.getInt();
+        byte status = buffer.get();
+        event.set(type, timestamp, getString(buffer), getString(buffer), getString(buffer),
+                status < 0 ? null : STATUSES[status], quantity);
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal field exceeds " + Short.MAX_VALUE + " bytes");
+        }
+        return encoded;
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
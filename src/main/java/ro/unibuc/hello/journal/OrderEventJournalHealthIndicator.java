@@ -0,0 +1,29 @@
+package ro.unibuc.hello.journal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Journal durability under {@code /actuator/health}: down while forcing segments to disk keeps failing, with
+ * how many appended events are not yet durable.
+ */
+@Component
+public class OrderEventJournalHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private OrderEventJournal orderEventJournal;
+
+    @Override
+    public Health health() {
+        long appended = orderEventJournal.getAppendedSequence();
+        long durable = orderEventJournal.getDurableSequence();
+        RuntimeException failure = orderEventJournal.getFlushFailure();
+        Health.Builder builder = failure == null ? Health.up() : Health.down(failure);
+        return builder.withDetail("appendedSequence", appended)
+                .withDetail("durableSequence", durable)
+                .withDetail("notDurable", Math.max(0, appended - durable))
+                .build();
+    }
+}
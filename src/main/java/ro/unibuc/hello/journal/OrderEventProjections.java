@@ -0,0 +1,34 @@
+package ro.unibuc.hello.journal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Read models rebuilt by replaying the order journal, without touching Mongo. */
+public final class OrderEventProjections {
+
+    private OrderEventProjections() {}
+
+    public static List<OrderEvent> robotHistory(OrderEventJournal journal, String robotId) throws IOException {
+        List<OrderEvent> history = new ArrayList<>();
+        journal.replay(event -> {
+            if (robotId.equals(event.getRobotId())) {
+                history.add(event.copy());
+            }
+        });
+        return history;
+    }
+
+    /** Total quantity ordered per item, counting each order once. */
+    public static Map<String, Long> itemDemand(OrderEventJournal journal) throws IOException {
+        Map<String, Long> demand = new HashMap<>();
+        journal.replay(event -> {
+            if (event.getType() == OrderEventType.CREATED && event.getItemId() != null) {
+                demand.merge(event.getItemId(), (long) event.getQuantity(), Long::sum);
+            }
+        });
+        return demand;
+    }
+}
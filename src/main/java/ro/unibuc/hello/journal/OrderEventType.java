@@ -0,0 +1,7 @@
+package ro.unibuc.hello.journal;
+
+public enum OrderEventType {
+    CREATED,
+    STATUS_CHANGED,
+    DELETED
+}
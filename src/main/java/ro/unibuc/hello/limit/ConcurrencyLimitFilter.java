@@ -0,0 +1,123 @@
+package ro.unibuc.hello.limit;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ro.unibuc.hello.cluster.OwnerProxy;
+import ro.unibuc.hello.limit.ConcurrencyLimiter.Permit;
+import ro.unibuc.hello.limit.ConcurrencyLimiter.Priority;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Puts the robot, order and inventory endpoints behind the {@link ConcurrencyLimiter}. A shed request gets an
+ * immediate 503 with {@code Retry-After} instead of queueing in Tomcat. Streaming responses hold their permit
+ * until the async request completes. A request forwarded by a peer replica already holds a permit there, so it
+ * does not take a second one on the owner.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Pattern ROBOT_STATUS = Pattern.compile("/robots/[^/]+/status");
+    private static final Set<String> BULK = Set.of("/robots", "/orders", "/inventory", "/inventory/export", "/inventory/import");
+
+    @Autowired
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private OwnerProxy ownerProxy;
+
+    @Value("${concurrency-limit.retry-after-seconds:1}")
+    private int retryAfterSeconds = 1;
+
+    static Priority classify(String method, String path) {
+        if (!isLimited(path, "/robots") && !isLimited(path, "/orders") && !isLimited(path, "/inventory")) {
+            return null;
+        }
+        if ("PUT".equals(method) && ROBOT_STATUS.matcher(path).matches()) {
+            return Priority.CRITICAL;
+        }
+        if ("POST".equals(method) && "/orders".equals(path)) {
+            return Priority.HIGH;
+        }
+        if (BULK.contains(path) && ("GET".equals(method) || "/inventory/import".equals(path))) {
+            return Priority.LOW;
+        }
+        return Priority.NORMAL;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Priority priority = classify(request.getMethod(), request.getRequestURI().substring(request.getContextPath().length()));
+        if (priority == null || ownerProxy.isForwardedByPeer(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Permit permit = concurrencyLimiter.tryAcquire(priority);
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Server is overloaded, retry later");
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(permit));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permit.release();
+            }
+        }
+    }
+
+    private static boolean isLimited(String path, String prefix) {
+        return path.equals(prefix) || path.startsWith(prefix + "/");
+    }
+
+    private static class ReleasingListener implements AsyncListener {
+        private final Permit permit;
+
+        private ReleasingListener(Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ro.unibuc.hello.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests in flight at a limit that adapts to latency ({@link GradientLimit}). Lower priorities
+ * may only use part of the limit, so when the service saturates bulk reads are turned away first and robot
+ * status updates last. Nothing waits for a permit: a request over its share is rejected immediately.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    public enum Priority {
+        CRITICAL(1.0),
+        HIGH(0.9),
+        NORMAL(0.8),
+        LOW(0.6);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${concurrency-limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${concurrency-limit.initial-limit:50}")
+    private int initialLimit = 50;
+
+    @Value("${concurrency-limit.min-limit:8}")
+    private int minLimit = 8;
+
+    @Value("${concurrency-limit.max-limit:400}")
+    private int maxLimit = 400;
+
+    @Value("${concurrency-limit.smoothing:0.2}")
+    private double smoothing = 0.2;
+
+    // Latency may rise this far above the long-term average before the limit shrinks
+    @Value("${concurrency-limit.tolerance:1.5}")
+    private double tolerance = 1.5;
+
+    @Value("${concurrency-limit.window-ms:250}")
+    private long windowMs = 250;
+
+    @Value("${concurrency-limit.min-window-samples:10}")
+    private int minWindowSamples = 10;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private GradientLimit gradientLimit;
+
+    @PostConstruct
+    public void start() {
+        gradientLimit = new GradientLimit(initialLimit, minLimit, maxLimit, smoothing, tolerance,
+                TimeUnit.MILLISECONDS.toNanos(windowMs), minWindowSamples);
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("http.concurrency.limit", gradientLimit, GradientLimit::getLimit)
+                .description("Requests the adaptive limiter currently lets run at once")
+                .register(meterRegistry);
+        Gauge.builder("http.concurrency.in-flight", inFlight, AtomicInteger::get)
+                .description("Requests currently holding a permit")
+                .register(meterRegistry);
+    }
+
+    /** Returns a permit to release when the request completes, or null if the request should be shed. */
+    public Permit tryAcquire(Priority priority) {
+        if (!enabled) {
+            return new Permit(false);
+        }
+        int allowed = Math.max(1, (int) (gradientLimit.getLimit() * priority.share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                if (meterRegistry != null) {
+                    meterRegistry.counter("http.concurrency.rejected", "priority", priority.name()).increment();
+                }
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(true);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return gradientLimit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public class Permit {
+        private final boolean counted;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(boolean counted) {
+            this.counted = counted;
+        }
+
+        public void release() {
+            if (!counted || !released.compareAndSet(false, true)) {
+                return;
+            }
+            long now = System.nanoTime();
+            // Sampled before giving the permit back, so the window sees the concurrency this request ran at
+            gradientLimit.onSample(now, now - start, inFlight.get());
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ro.unibuc.hello.limit;
+
+/**
+ * Concurrency limit estimated from latency, after the gradient algorithm: a long-term average of request
+ * latency is the baseline, and each window compares its own average against it. While latency stays
+ * within {@code tolerance} of the baseline the limit grows by about its square root; as requests start
+ * queueing and latency climbs, the limit shrinks in proportion to the ratio. Each window only moves the
+ * limit by {@code smoothing} of the computed step, so one slow window cannot collapse it.
+ *
+ * <p>Windows in which fewer than half of the permits were used say nothing about the limit and leave it alone.
+ */
+public class GradientLimit {
+
+    // Long-term baseline as an average over this many windows
+    private static final double LONG_WINDOWS = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int minWindowSamples;
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRtt;
+
+    private long windowStart;
+    private long windowSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance,
+                         long windowNanos, int minWindowSamples) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.windowNanos = windowNanos;
+        this.minWindowSamples = minWindowSamples;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public synchronized void onSample(long now, long rttNanos, int inFlight) {
+        if (windowSamples == 0) {
+            windowStart = now;
+        }
+        windowSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        if (now - windowStart < windowNanos || windowSamples < minWindowSamples) {
+            return;
+        }
+
+        double shortRtt = Math.max(1, (double) windowSum / windowSamples);
+        int maxInFlight = windowMaxInFlight;
+        windowSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        update(shortRtt, maxInFlight);
+    }
+
+    private void update(double shortRtt, int inFlight) {
+        longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) / LONG_WINDOWS;
+        // After a long slow period the baseline has drifted up; pull it back once latency recovers
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double next = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        next = estimatedLimit * (1 - smoothing) + next * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimatedLimit;
+    }
+}
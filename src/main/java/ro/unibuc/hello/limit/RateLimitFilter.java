@@ -0,0 +1,83 @@
+package ro.unibuc.hello.limit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ro.unibuc.hello.cluster.OwnerProxy;
+import ro.unibuc.hello.limit.TokenBucketTable.Decision;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@link RateLimiter} and reports the outcome in {@code RateLimit-Limit}, {@code RateLimit-Remaining}
+ * and {@code RateLimit-Reset} headers; a rejected request gets 429 with {@code Retry-After}. Clients are told
+ * apart by their API key header when it holds one of {@code rate-limit.api-keys}, and by address otherwise, so
+ * made-up keys cannot buy a fresh bucket per request. Runs before the concurrency limit, so a throttled client
+ * never occupies a permit. Requests a peer replica forwarded to the robot's owner were already counted where the
+ * client came in, against the client's own bucket, and pass without being counted again.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String RATE_LIMIT_LIMIT = "RateLimit-Limit";
+    static final String RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+    static final String RATE_LIMIT_RESET = "RateLimit-Reset";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private OwnerProxy ownerProxy;
+
+    @Value("${rate-limit.api-key-header:X-API-Key}")
+    private String apiKeyHeader = "X-API-Key";
+
+    @Value("${rate-limit.api-keys:}")
+    private Set<String> apiKeys = Set.of();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (ownerProxy.isForwardedByPeer(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String apiKey = request.getHeader(apiKeyHeader);
+        String client = apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+        Decision decision = rateLimiter.check(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()), client, System.nanoTime());
+        if (decision == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(RATE_LIMIT_LIMIT, Integer.toString(decision.getLimit()));
+        response.setHeader(RATE_LIMIT_REMAINING, Integer.toString(decision.getRemaining()));
+        response.setHeader(RATE_LIMIT_RESET, Long.toString(toSeconds(decision.getResetNanos())));
+        if (!decision.isAllowed()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, toSeconds(decision.getRetryAfterNanos()))));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Rate limit exceeded, retry later");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,135 @@
+package ro.unibuc.hello.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.limit.TokenBucketTable.Decision;
+import ro.unibuc.hello.limit.TokenBucketTable.Limit;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-client rate limits on the robot, order and inventory endpoints. Every request spends a token from its
+ * client's bucket for the endpoint group (reads, writes or order creation); a robot status update also spends
+ * one from that robot's own bucket, so a single chatty robot is throttled even when it shares a key with others.
+ * Both buckets are checked before either is spent, so a request rejected by one never costs a token from the other.
+ */
+@Component
+public class RateLimiter {
+
+    private static final Pattern ROBOT_STATUS = Pattern.compile("/robots/([^/]+)/status");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${rate-limit.reads.per-second:500}")
+    private double readsPerSecond = 500;
+
+    @Value("${rate-limit.reads.burst:1000}")
+    private int readsBurst = 1000;
+
+    @Value("${rate-limit.writes.per-second:100}")
+    private double writesPerSecond = 100;
+
+    @Value("${rate-limit.writes.burst:200}")
+    private int writesBurst = 200;
+
+    @Value("${rate-limit.order-create.per-second:20}")
+    private double orderCreatePerSecond = 20;
+
+    @Value("${rate-limit.order-create.burst:40}")
+    private int orderCreateBurst = 40;
+
+    @Value("${rate-limit.robot-status.per-second:5}")
+    private double robotStatusPerSecond = 5;
+
+    @Value("${rate-limit.robot-status.burst:10}")
+    private int robotStatusBurst = 10;
+
+    private final TokenBucketTable buckets = new TokenBucketTable();
+    private Limit reads;
+    private Limit writes;
+    private Limit orderCreate;
+    private Limit robotStatus;
+
+    @PostConstruct
+    public void start() {
+        reads = new Limit("reads", readsPerSecond, readsBurst);
+        writes = new Limit("writes", writesPerSecond, writesBurst);
+        orderCreate = new Limit("order-create", orderCreatePerSecond, orderCreateBurst);
+        robotStatus = new Limit("robot-status", robotStatusPerSecond, robotStatusBurst);
+        if (meterRegistry != null) {
+            Gauge.builder("rate-limit.buckets", buckets, TokenBucketTable::size)
+                    .description("Client and robot buckets currently tracked")
+                    .register(meterRegistry);
+        }
+    }
+
+    /** Spends the request's tokens; returns the most restrictive outcome, or null for unlimited requests. */
+    public Decision check(String method, String path, String client, long now) {
+        if (!enabled || !(isLimited(path, "/robots") || isLimited(path, "/orders") || isLimited(path, "/inventory"))) {
+            return null;
+        }
+
+        Limit limit;
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            limit = reads;
+        } else if ("POST".equals(method) && "/orders".equals(path)) {
+            limit = orderCreate;
+        } else {
+            limit = writes;
+        }
+
+        String clientKey = limit.getName() + ":" + client;
+        Matcher matcher = "PUT".equals(method) ? ROBOT_STATUS.matcher(path) : null;
+        if (matcher == null || !matcher.matches()) {
+            return acquire(clientKey, limit, now);
+        }
+
+        String robotKey = robotStatus.getName() + ":" + matcher.group(1);
+        Decision clientPeek = buckets.peek(clientKey, limit, now);
+        if (!clientPeek.isAllowed()) {
+            return rejected(clientPeek, limit);
+        }
+        Decision robotPeek = buckets.peek(robotKey, robotStatus, now);
+        if (!robotPeek.isAllowed()) {
+            return rejected(robotPeek, robotStatus);
+        }
+        // A request racing for the last token may still lose it here; then only that bucket's token is spent
+        Decision decision = acquire(clientKey, limit, now);
+        if (!decision.isAllowed()) {
+            return decision;
+        }
+        Decision robot = acquire(robotKey, robotStatus, now);
+        return !robot.isAllowed() || robot.getRemaining() < decision.getRemaining() ? robot : decision;
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.evict-interval-ms:10000}")
+    public void evictIdle() {
+        buckets.evictIdle(System.nanoTime());
+    }
+
+    private Decision acquire(String key, Limit limit, long now) {
+        Decision decision = buckets.tryAcquire(key, limit, now);
+        return decision.isAllowed() ? decision : rejected(decision, limit);
+    }
+
+    private Decision rejected(Decision decision, Limit limit) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("rate-limit.rejected", "limit", limit.getName()).increment();
+        }
+        return decision;
+    }
+
+    private static boolean isLimited(String path, String prefix) {
+        return path.equals(prefix) || path.startsWith(prefix + "/");
+    }
+}
@@ -0,0 +1,106 @@
+package ro.unibuc.hello.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by client, one {@code long} per key. Following the generic cell rate algorithm, a
+ * bucket stores the time at which it will be full again: refilling is computed on access, taking a token
+ * is a single CAS, and no timer runs per bucket. A bucket whose full-again time has passed holds no
+ * information, so {@link #evictIdle} can drop it without changing any later decision.
+ *
+ * <p>Times are {@link System#nanoTime()} values and only compared by difference.
+ */
+public class TokenBucketTable {
+
+    public static class Limit {
+        private final String name;
+        private final int burst;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+
+        public Limit(String name, double perSecond, int burst) {
+            if (perSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Rate limit " + name + " needs a positive rate and burst");
+            }
+            this.name = name;
+            this.burst = burst;
+            this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+            this.toleranceNanos = intervalNanos * burst;
+        }
+
+        public String getName() { return name; }
+        public int getBurst() { return burst; }
+    }
+
+    public static class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final long resetNanos;
+        private final long retryAfterNanos;
+
+        private Decision(boolean allowed, int limit, int remaining, long resetNanos, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetNanos = resetNanos;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAllowed() { return allowed; }
+        public int getLimit() { return limit; }
+        public int getRemaining() { return remaining; }
+        /** Time until the bucket is full again. */
+        public long getResetNanos() { return resetNanos; }
+        /** Time until the next token, when rejected. */
+        public long getRetryAfterNanos() { return retryAfterNanos; }
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /** The decision {@link #tryAcquire} would make now, without taking a token. */
+    public Decision peek(String key, Limit limit, long now) {
+        AtomicLong bucket = buckets.get(key);
+        long fullAt = bucket == null ? now : bucket.get();
+        long base = fullAt - now > 0 ? fullAt : now;
+        long ahead = base + limit.intervalNanos - now;
+        if (ahead > limit.toleranceNanos) {
+            return new Decision(false, limit.burst, 0, base - now, ahead - limit.toleranceNanos);
+        }
+        return new Decision(true, limit.burst, (int) ((limit.toleranceNanos - ahead) / limit.intervalNanos), ahead, 0);
+    }
+
+    public Decision tryAcquire(String key, Limit limit, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long base = fullAt - now > 0 ? fullAt : now;
+            long next = base + limit.intervalNanos;
+            long ahead = next - now;
+            if (ahead > limit.toleranceNanos) {
+                return new Decision(false, limit.burst, 0, base - now, ahead - limit.toleranceNanos);
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return new Decision(true, limit.burst, (int) ((limit.toleranceNanos - ahead) / limit.intervalNanos), ahead, 0);
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely. A take racing with the removal lands on the dropped bucket
+     * and is forgotten, which at worst grants that client one extra token.
+     */
+    public int evictIdle(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,57 @@
+package ro.unibuc.hello.logging;
+
+import org.slf4j.Logger;
+import ro.unibuc.hello.limit.TokenBucketTable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limited INFO logging for hot paths. Each message key gets a token bucket; once it runs dry, further
+ * messages under that key are only counted, and the next one let through carries the number dropped in
+ * between as a {@code suppressed} key-value pair. Keys name a call site, not an entity, so the table stays small.
+ *
+ * <p>A disabled level costs one level check: nothing is formatted and no bucket is touched.
+ */
+public class SampledLogger {
+
+    private final Logger logger;
+    private final TokenBucketTable.Limit limit;
+    private final TokenBucketTable buckets = new TokenBucketTable();
+    private final ConcurrentHashMap<String, AtomicLong> suppressed = new ConcurrentHashMap<>();
+
+    public SampledLogger(Logger logger, double perSecond, int burst) {
+        this.logger = logger;
+        this.limit = new TokenBucketTable.Limit(logger.getName(), perSecond, burst);
+    }
+
+    public void info(String key, String format, Object arg) {
+        if (logger.isInfoEnabled() && admit(key)) {
+            logger.atInfo().addKeyValue("suppressed", drain(key)).log(format, arg);
+        }
+    }
+
+    public void info(String key, String format, Object arg1, Object arg2) {
+        if (logger.isInfoEnabled() && admit(key)) {
+            logger.atInfo().addKeyValue("suppressed", drain(key)).log(format, arg1, arg2);
+        }
+    }
+
+    long suppressedCount(String key) {
+        AtomicLong count = suppressed.get(key);
+        return count == null ? 0 : count.get();
+    }
+
+    private boolean admit(String key) {
+        if (buckets.tryAcquire(key, limit, System.nanoTime()).isAllowed()) {
+            return true;
+        }
+        suppressed.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        return false;
+    }
+
+    private long drain(String key) {
+        AtomicLong count = suppressed.get(key);
+        return count == null ? 0 : count.getAndSet(0);
+    }
+}
@@ -0,0 +1,8 @@
+package ro.unibuc.hello.pipeline;
+
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    /** {@code endOfBatch} is true for the last event currently available, where batched work should be flushed. */
+    void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+}
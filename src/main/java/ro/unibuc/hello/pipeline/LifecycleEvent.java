@@ -0,0 +1,37 @@
+package ro.unibuc.hello.pipeline;
+
+import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.RobotDTO;
+import ro.unibuc.hello.journal.OrderEvent;
+
+/** A ring buffer slot. Producers overwrite every field when they claim it, so slots are never reallocated. */
+public class LifecycleEvent {
+
+    private LifecycleEventType type;
+    private OrderEvent orderEvent;
+    private OrderDTO order;
+    private RobotDTO robot;
+    private String robotId;
+    private long publishedNanos;
+
+    void set(LifecycleEventType type, OrderEvent orderEvent, OrderDTO order, RobotDTO robot, String robotId) {
+        this.type = type;
+        this.orderEvent = orderEvent;
+        this.order = order;
+        this.robot = robot;
+        this.robotId = robotId;
+        this.publishedNanos = System.nanoTime();
+    }
+
+    public LifecycleEventType getType() { return type; }
+
+    public OrderEvent getOrderEvent() { return orderEvent; }
+
+    public OrderDTO getOrder() { return order; }
+
+    public RobotDTO getRobot() { return robot; }
+
+    public String getRobotId() { return robotId; }
+
+    public long getPublishedNanos() { return publishedNanos; }
+}
@@ -0,0 +1,10 @@
+package ro.unibuc.hello.pipeline;
+
+public enum LifecycleEventType {
+    ORDER_CREATED,
+    ORDER_STATUS_CHANGED,
+    ORDER_DELETED,
+    ROBOT_CREATED,
+    ROBOT_STATUS_CHANGED,
+    ROBOT_DELETED
+}
@@ -0,0 +1,168 @@
+package ro.unibuc.hello.pipeline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import ro.unibuc.hello.data.OrderEntity;
+import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.RobotDTO;
+import ro.unibuc.hello.journal.OrderEvent;
+import ro.unibuc.hello.journal.OrderEventJournal;
+import ro.unibuc.hello.journal.OrderEventType;
+import ro.unibuc.hello.logging.SampledLogger;
+import ro.unibuc.hello.stream.RobotSessionRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves the side effects of order and robot lifecycle changes off request threads. Services publish an event
+ * into a ring buffer and return; three stages consume it:
+ * <pre>
+ *   publish ─┬─> journal ──> notify
+ *            └─> stats
+ * </pre>
+ * The journal stage appends order events and waits for one group-commit fsync per batch, notify pushes order
+ * assignments to robot streams once the order is durable, and stats updates lifecycle counters.
+ *
+ * <p>Nothing here holds up a request for long. If the journal cannot force a batch within its durability
+ * timeout the batch moves on undurable (the journal's health indicator is down meanwhile), and if the ring stays
+ * full for {@code pipeline.publish-timeout-ms} the event is dropped and counted rather than blocking the caller.
+ */
+@Component
+public class LifecyclePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(LifecyclePipeline.class);
+    private static final SampledLogger sampledLogger = new SampledLogger(logger, 1, 5);
+
+    @Autowired
+    private OrderEventJournal orderEventJournal;
+
+    @Autowired
+    private RobotSessionRegistry robotSessionRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pipeline.ring-size:4096}")
+    private int ringSize = 4096;
+
+    // busy-spin, yielding, sleeping or blocking
+    @Value("${pipeline.wait-strategy:sleeping}")
+    private String waitStrategy = "sleeping";
+
+    @Value("${pipeline.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs = 5000;
+
+    @Value("${pipeline.publish-timeout-ms:100}")
+    private long publishTimeoutMs = 100;
+
+    private RingBuffer<LifecycleEvent> ringBuffer;
+    private List<PipelineStage<LifecycleEvent>> stages;
+    private long lastJournalSeq;
+    private Counter dropped;
+    private Counter notDurable;
+
+    @PostConstruct
+    public void start() {
+        ringBuffer = new RingBuffer<>(LifecycleEvent::new, ringSize, WaitStrategy.of(waitStrategy));
+        Sequence[] none = new Sequence[0];
+        PipelineStage<LifecycleEvent> journal = stage("journal", none, this::journal);
+        PipelineStage<LifecycleEvent> stats = stage("stats", none, this::stats);
+        PipelineStage<LifecycleEvent> notify = stage("notify", new Sequence[] {journal.getSequence()}, this::notify);
+        ringBuffer.setGatingSequences(stats.getSequence(), notify.getSequence());
+        stages = List.of(journal, stats, notify);
+
+        for (PipelineStage<LifecycleEvent> stage : stages) {
+            Thread thread = new Thread(stage, "lifecycle-" + stage.getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Gauge.builder("pipeline.remaining.capacity", ringBuffer, RingBuffer::remainingCapacity)
+                .description("Free slots in the lifecycle ring buffer")
+                .register(meterRegistry);
+        dropped = Counter.builder("pipeline.events.dropped")
+                .description("Lifecycle events dropped because the ring stayed full")
+                .register(meterRegistry);
+        notDurable = Counter.builder("pipeline.journal.not.durable")
+                .description("Journal batches passed on before they were forced to disk")
+                .register(meterRegistry);
+        logger.info("Lifecycle pipeline started: {} slots, {} wait strategy", ringSize, waitStrategy);
+    }
+
+    public void publishOrder(OrderEventType type, OrderEntity order, OrderDTO created) {
+        LifecycleEventType eventType = switch (type) {
+            case CREATED -> LifecycleEventType.ORDER_CREATED;
+            case STATUS_CHANGED -> LifecycleEventType.ORDER_STATUS_CHANGED;
+            case DELETED -> LifecycleEventType.ORDER_DELETED;
+        };
+        publish(eventType, OrderEvent.of(type, order), created, null, order.getRobotId());
+    }
+
+    public void publishRobot(LifecycleEventType type, RobotDTO robot) {
+        publish(type, null, null, robot, robot.getId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        long published = ringBuffer.getCursor().get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        for (PipelineStage<LifecycleEvent> stage : stages) {
+            while (stage.getSequence().get() < published && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        stages.forEach(PipelineStage::halt);
+    }
+
+    private void publish(LifecycleEventType type, OrderEvent orderEvent, OrderDTO order, RobotDTO robot, String robotId) {
+        long sequence = ringBuffer.tryNext(TimeUnit.MILLISECONDS.toNanos(publishTimeoutMs));
+        if (sequence < 0) {
+            dropped.increment();
+            sampledLogger.info("dropped", "Lifecycle ring full, dropped {} for robot {}", type, robotId);
+            return;
+        }
+        try {
+            ringBuffer.get(sequence).set(type, orderEvent, order, robot, robotId);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private void journal(LifecycleEvent event, long sequence, boolean endOfBatch) {
+        if (event.getOrderEvent() != null) {
+            lastJournalSeq = orderEventJournal.append(event.getOrderEvent());
+        }
+        if (endOfBatch && lastJournalSeq > 0 && !orderEventJournal.awaitDurable(lastJournalSeq)) {
+            notDurable.increment();
+        }
+    }
+
+    private void stats(LifecycleEvent event, long sequence, boolean endOfBatch) {
+        String status = event.getOrderEvent() != null
+                ? String.valueOf(event.getOrderEvent().getStatus())
+                : event.getRobot() != null ? String.valueOf(event.getRobot().getStatus()).toUpperCase() : "NONE";
+        meterRegistry.counter("lifecycle.events", "type", event.getType().name(), "status", status).increment();
+    }
+
+    private void notify(LifecycleEvent event, long sequence, boolean endOfBatch) {
+        switch (event.getType()) {
+            case ORDER_CREATED -> robotSessionRegistry.pushOrderAssignment(event.getRobotId(), event.getOrder());
+            case ROBOT_DELETED -> robotSessionRegistry.disconnect(event.getRobotId(), CloseStatus.GOING_AWAY.withReason("Robot deleted"));
+            default -> { }
+        }
+    }
+
+    private PipelineStage<LifecycleEvent> stage(String name, Sequence[] dependencies, EventHandler<LifecycleEvent> handler) {
+        return new PipelineStage<>(name, ringBuffer, dependencies, handler, LifecycleEvent::getPublishedNanos, meterRegistry);
+    }
+}
@@ -0,0 +1,97 @@
+package ro.unibuc.hello.pipeline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * One consumer of a {@link RingBuffer}, running on its own thread. It processes every event its dependencies
+ * have finished with, in batches, and advances its own sequence once per batch. A failing event is logged
+ * and skipped so one bad event cannot stall the stages behind it.
+ */
+public class PipelineStage<E> implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+    private final String name;
+    private final RingBuffer<E> ringBuffer;
+    private final Sequence[] dependencies;
+    private final EventHandler<E> handler;
+    private final ToLongFunction<E> publishedNanos;
+    private final Sequence sequence = new Sequence();
+
+    private final Timer latency;
+    private final DistributionSummary batchSize;
+    private final Counter errors;
+
+    private volatile boolean running = true;
+
+    public PipelineStage(String name, RingBuffer<E> ringBuffer, Sequence[] dependencies, EventHandler<E> handler,
+                         ToLongFunction<E> publishedNanos, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.ringBuffer = ringBuffer;
+        this.dependencies = dependencies;
+        this.handler = handler;
+        this.publishedNanos = publishedNanos;
+        this.latency = Timer.builder("pipeline.stage.latency")
+                .description("Time from publishing an event until this stage finished it")
+                .tag("stage", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("pipeline.stage.batch.size")
+                .tag("stage", name)
+                .register(meterRegistry);
+        this.errors = Counter.builder("pipeline.stage.errors").tag("stage", name).register(meterRegistry);
+    }
+
+    @Override
+    public void run() {
+        WaitStrategy waitStrategy = ringBuffer.getWaitStrategy();
+        long next = sequence.get() + 1;
+        while (running) {
+            long available = waitStrategy.waitFor(next, ringBuffer.getCursor(), dependencies, () -> running);
+            if (available < 0) {
+                break;
+            }
+            available = ringBuffer.highestPublished(next, available);
+            if (available < next) {
+                // Claimed by a producer that has not published yet
+                Thread.onSpinWait();
+                continue;
+            }
+
+            for (long current = next; current <= available; current++) {
+                E event = ringBuffer.get(current);
+                try {
+                    handler.onEvent(event, current, current == available);
+                } catch (Exception e) {
+                    errors.increment();
+                    logger.error("Pipeline stage {} failed on event {}", name, current, e);
+                }
+                latency.record(System.nanoTime() - publishedNanos.applyAsLong(event), TimeUnit.NANOSECONDS);
+            }
+            batchSize.record(available - next + 1);
+            sequence.set(available);
+            next = available + 1;
+        }
+    }
+
+    public void halt() {
+        running = false;
+        ringBuffer.getWaitStrategy().signalAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Sequence getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,124 @@
+package ro.unibuc.hello.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Fixed-size ring of preallocated slots. Producers claim a sequence with a CAS on the cursor, fill the slot
+ * and publish it; a per-slot lap number tells consumers which claimed slots are actually published. A
+ * producer that would lap the slowest gating stage waits, which is the pipeline's backpressure.
+ */
+public class RingBuffer<E> {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] entries;
+    private final int[] available;
+    private final int bufferSize;
+    private final int mask;
+    private final int indexShift;
+    private final WaitStrategy waitStrategy;
+
+    private final Sequence cursor = new Sequence();
+    private final Sequence gatingCache = new Sequence();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    public RingBuffer(Supplier<E> factory, int bufferSize, WaitStrategy waitStrategy) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Ring buffer size must be a power of 2");
+        }
+        this.bufferSize = bufferSize;
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.waitStrategy = waitStrategy;
+        this.entries = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = factory.get();
+        }
+        this.available = new int[bufferSize];
+        Arrays.fill(available, -1);
+    }
+
+    /** Sets the stages producers must not lap, normally the last stage of every branch. */
+    public void setGatingSequences(Sequence... sequences) {
+        gatingSequences = sequences.clone();
+    }
+
+    /** Claims the next slot, waiting while the ring is full. */
+    public long next() {
+        return claim(false, 0);
+    }
+
+    /** Claims the next slot, waiting at most {@code timeoutNanos} while the ring is full; returns -1 if it stayed full. */
+    public long tryNext(long timeoutNanos) {
+        return claim(true, System.nanoTime() + timeoutNanos);
+    }
+
+    private long claim(boolean timed, long deadline) {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - bufferSize;
+            long cachedGating = gatingCache.get();
+
+            if (wrapPoint > cachedGating || cachedGating > current) {
+                long gating = Sequence.minimum(gatingSequences, current);
+                if (wrapPoint > gating) {
+                    if (timed && System.nanoTime() - deadline >= 0) {
+                        return -1;
+                    }
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                gatingCache.set(gating);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+        waitStrategy.signalAll();
+    }
+
+    public boolean isPublished(long sequence) {
+        return (int) AVAILABLE.getAcquire(available, (int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /** Highest sequence in {@code [lowerBound, availableSequence]} below which every slot is published. */
+    public long highestPublished(long lowerBound, long availableSequence) {
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return availableSequence;
+    }
+
+    public Sequence getCursor() {
+        return cursor;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /** Slots producers can still claim before they have to wait for the slowest stage. */
+    public long remainingCapacity() {
+        long produced = cursor.get();
+        return bufferSize - (produced - Sequence.minimum(gatingSequences, produced));
+    }
+}
@@ -0,0 +1,45 @@
+package ro.unibuc.hello.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/** A sequence counter padded to its own cache line so producers and stages do not false-share. */
+@SuppressWarnings("unused")
+public class Sequence {
+
+    static final long INITIAL = -1L;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long value = INITIAL;
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+
+    static long minimum(Sequence[] sequences, long fallback) {
+        long minimum = fallback;
+        for (Sequence sequence : sequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
@@ -0,0 +1,141 @@
+package ro.unibuc.hello.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/** How a stage waits for the sequences it depends on to reach the next slot it wants to process. */
+public interface WaitStrategy {
+
+    /**
+     * Waits until {@code cursor} and every dependency are at least {@code sequence} and returns the highest
+     * sequence that is safe to read, or {@code -1} as soon as {@code running} turns false.
+     */
+    long waitFor(long sequence, Sequence cursor, Sequence[] dependencies, BooleanSupplier running);
+
+    /** Called by producers after publishing, for strategies that park consumers. */
+    default void signalAll() {}
+
+    static WaitStrategy of(String name) {
+        return switch (name.toLowerCase().replace('_', '-')) {
+            case "busy-spin" -> new BusySpin();
+            case "yielding" -> new Yielding();
+            case "sleeping" -> new Sleeping();
+            case "blocking" -> new Blocking();
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        };
+    }
+
+    /** Lowest latency, burns a core per stage. */
+    class BusySpin implements WaitStrategy {
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependencies, BooleanSupplier running) {
+            long available;
+            while ((available = Sequence.minimum(dependencies, cursor.get())) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return -1;
+                }
+                Thread.onSpinWait();
+            }
+            return available;
+        }
+    }
+
+    /** Spins briefly, then yields the core to other threads. */
+    class Yielding implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependencies, BooleanSupplier running) {
+            long available;
+            int counter = SPIN_TRIES;
+            while ((available = Sequence.minimum(dependencies, cursor.get())) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return -1;
+                }
+                if (counter > 0) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+    }
+
+    /** Spins, yields, then parks for short periods; a good default when cores are shared. */
+    class Sleeping implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 100;
+        private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependencies, BooleanSupplier running) {
+            long available;
+            int counter = SPIN_TRIES + YIELD_TRIES;
+            while ((available = Sequence.minimum(dependencies, cursor.get())) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return -1;
+                }
+                if (counter > YIELD_TRIES) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else if (counter > 0) {
+                    counter--;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+            return available;
+        }
+    }
+
+    /** Parks on a condition until a producer publishes; cheapest on CPU, slowest to wake. */
+    class Blocking implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependencies, BooleanSupplier running) {
+            if (cursor.get() < sequence) {
+                lock.lock();
+                try {
+                    while (cursor.get() < sequence) {
+                        if (!running.getAsBoolean()) {
+                            return -1;
+                        }
+                        published.awaitNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            // Upstream stages are already running, so their progress is only a short spin away
+            long available;
+            while ((available = Sequence.minimum(dependencies, cursor.get())) < sequence) {
+                if (!running.getAsBoolean()) {
+                    return -1;
+                }
+                Thread.onSpinWait();
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
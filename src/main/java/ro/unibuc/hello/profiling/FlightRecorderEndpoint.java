@@ -0,0 +1,145 @@
+package ro.unibuc.hello.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/flightrecorder}: POST starts a recording with the JDK's {@code default} settings (built for
+ * continuous use in production, well under 1% overhead) plus the order and Mongo events, DELETE stops it, and
+ * GET {@code /actuator/flightrecorder/recording.jfr} streams what has been recorded so far. One recording runs
+ * at a time.
+ *
+ * <p>Actuator listens on its own {@code management.server.port}, which the Kubernetes Service does not expose.
+ * The events that copy the process environment and the system properties are left out of every recording, so
+ * a downloaded file carries no credentials passed that way.
+ */
+@Component
+@WebEndpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+
+    static final String FILE_NAME = "recording.jfr";
+
+    static final List<String> EXCLUDED_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+
+    @Value("${jfr.max-age-minutes:30}")
+    private long maxAgeMinutes = 30;
+
+    @Value("${jfr.max-size-mb:256}")
+    private long maxSizeMb = 256;
+
+    @Value("${jfr.mongo-command-threshold-ms:0}")
+    private long mongoCommandThresholdMs = 0;
+
+    private Recording recording;
+    private Path dump;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        return describe();
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable String settings) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(describe(), HttpStatus.CONFLICT.value());
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings == null ? "default" : settings);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(Map.of("error", "Unknown settings " + settings), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        close();
+        recording = new Recording(configuration);
+        recording.setName("hello");
+        recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.enable(OrderPhaseEvent.class);
+        recording.enable(OrderStatusEvent.class);
+        recording.enable(MongoCommandEvent.class).withThreshold(Duration.ofMillis(mongoCommandThresholdMs));
+        EXCLUDED_EVENTS.forEach(recording::disable);
+        recording.start();
+        return new WebEndpointResponse<>(describe());
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return describe();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector String file) {
+        if (!FILE_NAME.equals(file) || recording == null || recording.getState() == RecordingState.NEW) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            if (dump == null) {
+                dump = Files.createTempFile("hello-", ".jfr");
+            }
+            // A running recording is copied as it stands; it keeps recording afterwards
+            recording.dump(dump);
+            return new WebEndpointResponse<>(new FileSystemResource(dump));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the flight recording", e);
+        }
+    }
+
+    private Map<String, Object> describe() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", RecordingState.NEW);
+            return status;
+        }
+        status.put("state", recording.getState());
+        Instant startTime = recording.getStartTime();
+        if (startTime != null) {
+            status.put("started", startTime.toString());
+            Instant stopTime = recording.getStopTime();
+            status.put("duration", Duration.between(startTime, stopTime != null ? stopTime : Instant.now()).toString());
+        }
+        status.put("sizeBytes", recording.getSize());
+        return status;
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        if (dump != null) {
+            try {
+                Files.deleteIfExists(dump);
+            } catch (IOException e) {
+                dump.toFile().deleteOnExit();
+            }
+            dump = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ro.unibuc.hello.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ro.unibuc.hello.MongoCommand")
+@Label("Mongo Command")
+@Category({"Hello", "MongoDB"})
+@Description("A command sent to MongoDB, timed from send to reply")
+@StackTrace(false)
+public class MongoCommandEvent extends Event {
+
+    @Label("Database")
+    String database;
+
+    @Label("Collection")
+    String collection;
+
+    @Label("Command")
+    String command;
+
+    @Label("Documents Returned")
+    int docsReturned;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Server")
+    String server;
+}
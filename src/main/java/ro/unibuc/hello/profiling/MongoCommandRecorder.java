@@ -0,0 +1,92 @@
+package ro.unibuc.hello.profiling;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns driver command events into {@link MongoCommandEvent}s. When no recording has the event enabled, a
+ * command costs one allocation the JIT can usually remove and one check; nothing is tracked.
+ */
+@Component
+public class MongoCommandRecorder implements CommandListener {
+
+    private final Map<Integer, MongoCommandEvent> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent started) {
+        MongoCommandEvent event = new MongoCommandEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.begin();
+        event.database = started.getDatabaseName();
+        event.command = started.getCommandName();
+        event.collection = collection(started.getCommand(), started.getCommandName());
+        event.server = started.getConnectionDescription().getServerAddress().toString();
+        inFlight.put(started.getRequestId(), event);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent succeeded) {
+        MongoCommandEvent event = inFlight.remove(succeeded.getRequestId());
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.succeeded = true;
+            event.docsReturned = docsReturned(succeeded.getResponse());
+            event.commit();
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent failed) {
+        MongoCommandEvent event = inFlight.remove(failed.getRequestId());
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    static String collection(BsonDocument command, String commandName) {
+        if (command == null) {
+            return null;
+        }
+        BsonValue target = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return target != null && target.isString() ? target.asString().getValue() : null;
+    }
+
+    static int docsReturned(BsonDocument response) {
+        if (response == null) {
+            return 0;
+        }
+        BsonDocument cursor = response.getDocument("cursor", null);
+        if (cursor != null) {
+            BsonArray batch = cursor.getArray("firstBatch", cursor.getArray("nextBatch", null));
+            return batch == null ? 0 : batch.size();
+        }
+        BsonValue value = response.get("value");
+        if (value != null) {
+            return value.isNull() ? 0 : 1;
+        }
+        BsonValue n = response.get("n");
+        return n != null && n.isNumber() ? n.asNumber().intValue() : 0;
+    }
+}
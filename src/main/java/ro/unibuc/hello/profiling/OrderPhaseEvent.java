@@ -0,0 +1,40 @@
+package ro.unibuc.hello.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ro.unibuc.hello.OrderPhase")
+@Label("Order Phase")
+@Category({"Hello", "Orders"})
+@Description("One step of creating an order")
+@StackTrace(false)
+public class OrderPhaseEvent extends Event {
+
+    public static final String ROBOT_LOOKUP = "robotLookup";
+    public static final String STOCK_CHECK = "stockCheck";
+    public static final String SAVE_ORDER = "saveOrder";
+    public static final String SAVE_ROBOT = "saveRobot";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Robot ID")
+    String robotId;
+
+    @Label("Item ID")
+    String itemId;
+
+    @Label("Order ID")
+    String orderId;
+
+    public OrderPhaseEvent(String phase, String robotId, String itemId, String orderId) {
+        this.phase = phase;
+        this.robotId = robotId;
+        this.itemId = itemId;
+        this.orderId = orderId;
+    }
+}
@@ -0,0 +1,41 @@
+package ro.unibuc.hello.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("ro.unibuc.hello.OrderStatus")
+@Label("Order Status Change")
+@Category({"Hello", "Orders"})
+@Description("A status update of an order, from reading the order to publishing the change")
+@StackTrace(false)
+public class OrderStatusEvent extends Event {
+
+    @Label("Order ID")
+    String orderId;
+
+    @Label("Robot ID")
+    String robotId;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Since Created")
+    @Timespan(Timespan.MILLISECONDS)
+    long sinceCreated;
+
+    public void set(String orderId, String robotId, String from, String to, long sinceCreatedMillis) {
+        this.orderId = orderId;
+        this.robotId = robotId;
+        this.from = from;
+        this.to = to;
+        this.sinceCreated = sinceCreatedMillis;
+    }
+}
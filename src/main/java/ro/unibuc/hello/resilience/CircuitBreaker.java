@@ -0,0 +1,139 @@
+package ro.unibuc.hello.resilience;
+
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. It stays closed while the failure rate over the last {@code windowSize} calls
+ * is below the threshold, opens once it is reached, and after {@code openMillis} lets {@code halfOpenCalls}
+ * trial calls through: if all of them succeed it closes again, a single failure reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final BiConsumer<State, State> onTransition;
+
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private volatile long stateSince;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long openMillis,
+                          int halfOpenCalls, LongSupplier clock, BiConsumer<State, State> onTransition) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.onTransition = onTransition;
+        this.outcomes = new boolean[windowSize];
+        this.stateSince = clock.getAsLong();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getStateSince() {
+        return stateSince;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    /** Whether a call may go ahead; a caller that gets {@code true} must report its outcome. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - stateSince < openMillis) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    /** Gives back a permission that was granted but not used for a call. */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && trialsStarted > 0) {
+            trialsStarted--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+            transition(State.OPEN);
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        stateSince = clock.getAsLong();
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (to == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        if (onTransition != null) {
+            onTransition.accept(from, to);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package ro.unibuc.hello.resilience;
+
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ro.unibuc.hello.exception.StoreUnavailableException;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker and bulkheads around the Mongo calls of one collection. Reads and writes draw from separate
+ * permit pools, so a burst of slow reads cannot starve writes and the other way round, and a caller that
+ * cannot get a permit quickly gives up instead of blocking a request thread on the driver.
+ *
+ * <p>Only connectivity failures and timeouts, and calls slower than {@code resilience.slow-call-ms}, count
+ * against the breaker. While it is open, or its bulkhead is full, a read is answered from the last value that
+ * read returned, with {@code Age} and {@code X-Cache-Status: STALE} on the response; a write fails at once.
+ * A stale response never carries the current ETag: one already set is replaced by a tag no fresh response
+ * uses, and controllers check {@link #servedStale()} before adding theirs, so a client never revalidates a
+ * stale body into a 304. The last known values live in a concurrent map; past
+ * {@code resilience.cache.max-entries} a tenth of it is dropped, in no particular order.
+ *
+ * <p>Wrap one Mongo call at a time, under the collection it touches, and never a lock wait: a permit is held
+ * and the slow-call timer runs for the whole supplier. A read shared between concurrent callers goes through
+ * {@link #read(String, String, Supplier, Function)}, so only the caller that runs it holds a permit.
+ */
+@Component
+public class MongoGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoGuard.class);
+
+    public static final String ROBOTS = "robots";
+    public static final String ORDERS = "orders";
+    public static final String INVENTORY = "inventory";
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache-Status";
+
+    private static final String STALE_ATTRIBUTE = MongoGuard.class.getName() + ".stale";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${resilience.read-permits:64}")
+    private int readPermits = 64;
+
+    @Value("${resilience.write-permits:32}")
+    private int writePermits = 32;
+
+    @Value("${resilience.permit-wait-ms:50}")
+    private long permitWaitMs = 50;
+
+    @Value("${resilience.slow-call-ms:2000}")
+    private long slowCallMs = 2000;
+
+    @Value("${resilience.breaker.window-size:50}")
+    private int windowSize = 50;
+
+    @Value("${resilience.breaker.minimum-calls:20}")
+    private int minimumCalls = 20;
+
+    @Value("${resilience.breaker.failure-rate:0.5}")
+    private double failureRate = 0.5;
+
+    @Value("${resilience.breaker.open-ms:5000}")
+    private long openMs = 5000;
+
+    @Value("${resilience.breaker.half-open-calls:5}")
+    private int halfOpenCalls = 5;
+
+    @Value("${resilience.cache.max-entries:10000}")
+    private int cacheMaxEntries = 10000;
+
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+    private final Map<String, Cached> lastKnown = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /** Whether a read in the current request was answered from the last known value. */
+    public static boolean servedStale() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && Boolean.TRUE.equals(attributes.getRequest().getAttribute(STALE_ATTRIBUTE));
+    }
+
+    public <T> T read(String collection, String cacheKey, Supplier<T> call) {
+        return read(collection, cacheKey, call, Supplier::get);
+    }
+
+    /**
+     * A read whose guarded load {@code share} may hand to several concurrent callers, e.g. through
+     * {@code SingleFlight}. Callers waiting on another's load hold no permit and add nothing to the breaker, and
+     * each falls back to the last known value itself, so every stale response is marked on its own request.
+     */
+    public <T> T read(String collection, String cacheKey, Supplier<T> call, Function<Supplier<T>, T> share) {
+        try {
+            return share.apply(() -> load(collection, cacheKey, call));
+        } catch (StoreUnavailableException e) {
+            return fallback(cacheKey, e);
+        }
+    }
+
+    public <T> T write(String collection, Supplier<T> call) {
+        Guard guard = guard(collection);
+        if (!guard.breaker.tryAcquire()) {
+            throw unavailable(collection, "circuit open", null);
+        }
+        if (!acquire(guard.writes)) {
+            guard.breaker.release();
+            count("mongo.bulkhead.rejected", collection, "write");
+            throw unavailable(collection, "too many concurrent writes", null);
+        }
+        try {
+            return run(guard, call);
+        } finally {
+            guard.writes.release();
+        }
+    }
+
+    public void write(String collection, Runnable call) {
+        write(collection, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public Collection<String> collections() {
+        return guards.keySet();
+    }
+
+    public CircuitBreaker breaker(String collection) {
+        return guard(collection).breaker;
+    }
+
+    public int availableReadPermits(String collection) {
+        return guard(collection).reads.availablePermits();
+    }
+
+    public int availableWritePermits(String collection) {
+        return guard(collection).writes.availablePermits();
+    }
+
+    private <T> T load(String collection, String cacheKey, Supplier<T> call) {
+        Guard guard = guard(collection);
+        if (!guard.breaker.tryAcquire()) {
+            throw unavailable(collection, "circuit open", null);
+        }
+        if (!acquire(guard.reads)) {
+            guard.breaker.release();
+            count("mongo.bulkhead.rejected", collection, "read");
+            throw unavailable(collection, "too many concurrent reads", null);
+        }
+        try {
+            T result = run(guard, call);
+            remember(cacheKey, result);
+            return result;
+        } catch (StoreUnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // The data said no (e.g. not found): what was cached for this key is no longer true
+            lastKnown.remove(cacheKey);
+            throw e;
+        } finally {
+            guard.reads.release();
+        }
+    }
+
+    private <T> T run(Guard guard, Supplier<T> call) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            if (isStoreFailure(e)) {
+                guard.breaker.onFailure();
+                throw unavailable(guard.breaker.getName(), e.getMessage(), e);
+            }
+            guard.breaker.onSuccess();
+            throw e;
+        }
+        if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(slowCallMs)) {
+            guard.breaker.onFailure();
+        } else {
+            guard.breaker.onSuccess();
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T fallback(String cacheKey, StoreUnavailableException failure) {
+        Cached cached = lastKnown.get(cacheKey);
+        if (cached == null) {
+            throw failure;
+        }
+        count("mongo.fallback.served", failure.getCollection(), "read");
+        markStale(cached.storedAt);
+        return (T) cached.value;
+    }
+
+    private void remember(String cacheKey, Object value) {
+        lastKnown.put(cacheKey, new Cached(value, System.currentTimeMillis()));
+        if (lastKnown.size() > cacheMaxEntries && evicting.compareAndSet(false, true)) {
+            try {
+                int excess = lastKnown.size() - cacheMaxEntries + cacheMaxEntries / 10;
+                Iterator<String> keys = lastKnown.keySet().iterator();
+                while (excess-- > 0 && keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    private void markStale(long storedAt) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            attributes.getRequest().setAttribute(STALE_ATTRIBUTE, Boolean.TRUE);
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(HttpHeaders.AGE, Long.toString(Math.max(0, (System.currentTimeMillis() - storedAt) / 1000)));
+                response.setHeader(CACHE_STATUS_HEADER, "STALE");
+                // A conditional GET may already have put the current tag on the response
+                if (response.getHeader(HttpHeaders.ETAG) != null) {
+                    response.setHeader(HttpHeaders.ETAG, "\"stale-" + Long.toString(storedAt, 36) + "\"");
+                }
+            }
+        }
+    }
+
+    private StoreUnavailableException unavailable(String collection, String reason, Throwable cause) {
+        return new StoreUnavailableException(collection, reason, Math.max(1, TimeUnit.MILLISECONDS.toSeconds(openMs)), cause);
+    }
+
+    private boolean acquire(Semaphore permits) {
+        try {
+            return permits.tryAcquire(permitWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isStoreFailure(Throwable e) {
+        return e instanceof DataAccessResourceFailureException || e instanceof QueryTimeoutException
+                || e instanceof MongoTimeoutException || e instanceof MongoSocketException;
+    }
+
+    private Guard guard(String collection) {
+        return guards.computeIfAbsent(collection, this::newGuard);
+    }
+
+    private Guard newGuard(String collection) {
+        CircuitBreaker breaker = new CircuitBreaker(collection, windowSize, minimumCalls, failureRate, openMs, halfOpenCalls,
+                System::currentTimeMillis,
+                (from, to) -> logger.warn("Circuit breaker for {} moved from {} to {}", collection, from, to));
+        if (meterRegistry != null) {
+            Gauge.builder("mongo.circuit.state", breaker, b -> b.getState().ordinal())
+                    .description("Breaker state per collection: 0 closed, 1 open, 2 half-open")
+                    .tag("collection", collection)
+                    .register(meterRegistry);
+        }
+        return new Guard(breaker, new Semaphore(readPermits), new Semaphore(writePermits));
+    }
+
+    private void count(String name, String collection, String kind) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(name, "collection", collection, "kind", kind).increment();
+        }
+    }
+
+    private static class Guard {
+        private final CircuitBreaker breaker;
+        private final Semaphore reads;
+        private final Semaphore writes;
+
+        private Guard(CircuitBreaker breaker, Semaphore reads, Semaphore writes) {
+            this.breaker = breaker;
+            this.reads = reads;
+            this.writes = writes;
+        }
+    }
+
+    private static class Cached {
+        private final Object value;
+        private final long storedAt;
+
+        private Cached(Object value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
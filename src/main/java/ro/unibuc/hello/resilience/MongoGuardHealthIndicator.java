@@ -0,0 +1,41 @@
+package ro.unibuc.hello.resilience;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Breaker state per collection under {@code /actuator/health}. An open breaker reports the service as out of
+ * service; a half-open one still reports it up, since trial calls are going through.
+ */
+@Component
+public class MongoGuardHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private MongoGuard mongoGuard;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+        for (String collection : new TreeSet<>(mongoGuard.collections())) {
+            CircuitBreaker breaker = mongoGuard.breaker(collection);
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("state", breaker.getState());
+            details.put("since", Instant.ofEpochMilli(breaker.getStateSince()).toString());
+            details.put("failureRate", breaker.getFailureRate());
+            details.put("availableReadPermits", mongoGuard.availableReadPermits(collection));
+            details.put("availableWritePermits", mongoGuard.availableWritePermits(collection));
+            builder.withDetail(collection, details);
+            if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                builder.outOfService();
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,176 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.dto.CycleTimeStatsDTO;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Order cycle times (created to completed) kept in memory, globally and per robot and per item.
+ *
+ * <p>Each key owns an HdrHistogram {@link Recorder}, which takes values wait-free from any thread. Every
+ * {@code orders.cycle-time.window-ms} the recorded interval is moved into a ring of {@code windows}
+ * histograms, so queries cover the last {@code windows * window-ms} and never touch the database.
+ * Keys with nothing recorded across the whole ring are dropped so the per-key maps stay bounded by the
+ * robots and items that were active recently.
+ */
+@Component
+public class CycleTimeAnalytics {
+
+    public static final String GLOBAL = "global";
+    public static final String ROBOT = "robot";
+    public static final String ITEM = "item";
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${orders.cycle-time.window-ms:60000}")
+    private long windowMs = 60000;
+
+    @Value("${orders.cycle-time.windows:15}")
+    private int windows = 15;
+
+    private final Map<String, RollingHistogram> byRobot = new ConcurrentHashMap<>();
+    private final Map<String, RollingHistogram> byItem = new ConcurrentHashMap<>();
+    private volatile RollingHistogram global;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("orders.cycle-time.keys", () -> byRobot.size() + byItem.size())
+                .description("Robots and items with cycle-time histograms in memory")
+                .register(meterRegistry);
+    }
+
+    public void record(String robotId, String itemId, Duration cycleTime) {
+        long millis = Math.max(0, cycleTime.toMillis());
+        globalHistogram().record(millis);
+        if (robotId != null) {
+            byRobot.computeIfAbsent(robotId, key -> new RollingHistogram(windows)).record(millis);
+        }
+        if (itemId != null) {
+            byItem.computeIfAbsent(itemId, key -> new RollingHistogram(windows)).record(millis);
+        }
+    }
+
+    public CycleTimeStatsDTO getStats(String robotId, String itemId) {
+        if (robotId != null && itemId != null) {
+            throw new IllegalArgumentException("Filter by robotId or itemId, not both");
+        }
+        if (robotId != null) {
+            return toStats(ROBOT, robotId, byRobot.get(robotId));
+        }
+        if (itemId != null) {
+            return toStats(ITEM, itemId, byItem.get(itemId));
+        }
+        return toStats(GLOBAL, null, globalHistogram());
+    }
+
+    @Scheduled(fixedRateString = "${orders.cycle-time.window-ms:60000}", initialDelayString = "${orders.cycle-time.window-ms:60000}")
+    public void rotate() {
+        globalHistogram().rotate();
+        rotate(byRobot);
+        rotate(byItem);
+    }
+
+    private static void rotate(Map<String, RollingHistogram> histograms) {
+        histograms.forEach((key, histogram) -> {
+            // A value recorded between the rotation and the removal is lost; the key is idle, so that is rare
+            if (histogram.rotate()) {
+                histograms.remove(key, histogram);
+            }
+        });
+    }
+
+    private RollingHistogram globalHistogram() {
+        RollingHistogram histogram = global;
+        if (histogram == null) {
+            synchronized (this) {
+                if (global == null) {
+                    global = new RollingHistogram(windows);
+                }
+                histogram = global;
+            }
+        }
+        return histogram;
+    }
+
+    private CycleTimeStatsDTO toStats(String scope, String key, RollingHistogram rolling) {
+        long windowSeconds = windowMs * windows / 1000;
+        Histogram histogram = rolling == null ? null : rolling.snapshot();
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return new CycleTimeStatsDTO(scope, key, windowSeconds, 0, 0, 0, 0, 0, 0);
+        }
+        return new CycleTimeStatsDTO(scope, key, windowSeconds, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getMaxValue(), histogram.getMean());
+    }
+
+    private static class RollingHistogram {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS, true);
+
+        // Guarded by this; empty windows are kept as null
+        private final Histogram[] completed;
+        private Histogram current;
+        private int head;
+
+        private RollingHistogram(int windows) {
+            this.completed = new Histogram[Math.max(1, windows - 1)];
+        }
+
+        private void record(long millis) {
+            recorder.recordValue(millis);
+        }
+
+        /** Closes the current window and returns whether the whole ring is now empty. */
+        private synchronized boolean rotate() {
+            drain();
+            head = (head + 1) % completed.length;
+            completed[head] = current;
+            current = null;
+            for (Histogram window : completed) {
+                if (window != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private synchronized Histogram snapshot() {
+            drain();
+            Histogram merged = new Histogram(SIGNIFICANT_DIGITS);
+            if (current != null) {
+                merged.add(current);
+            }
+            for (Histogram window : completed) {
+                if (window != null) {
+                    merged.add(window);
+                }
+            }
+            return merged;
+        }
+
+        private void drain() {
+            Histogram interval = recorder.getIntervalHistogram();
+            if (interval.getTotalCount() == 0) {
+                return;
+            }
+            if (current == null) {
+                current = interval;
+            } else {
+                current.add(interval);
+            }
+        }
+    }
+}
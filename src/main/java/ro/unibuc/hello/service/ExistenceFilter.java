@@ -0,0 +1,152 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.data.RobotEntity;
+import ro.unibuc.hello.sketch.BloomFilter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * In-memory Bloom filters of the robot and inventory item IDs, so lookups of IDs that do not exist can be
+ * rejected without a Mongo round trip. Each filter is built from an {@code _id}-only scan and updated on
+ * insert; deletes are only forgotten by the periodic rebuild, which just means a few extra false positives.
+ *
+ * <p>Until the first build completes every ID may exist. A replica does not see inserts made on other
+ * replicas, so with cluster leases enabled a negative answer is confirmed against Mongo by default
+ * ({@code existence-filter.confirm-misses}).
+ */
+@Component
+public class ExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    static final String ROBOTS = "robots";
+    static final String ITEMS = "items";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${existence-filter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${existence-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    // Headroom for inserts until the next rebuild
+    @Value("${existence-filter.min-expected-keys:10000}")
+    private long minExpectedKeys = 10000;
+
+    @Value("${existence-filter.confirm-misses:${cluster.enabled:false}}")
+    private boolean confirmMisses = false;
+
+    private final Map<String, Filters> filters = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${existence-filter.rebuild-interval-ms:600000}", initialDelayString = "${existence-filter.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuild(ROBOTS, RobotEntity.class);
+        rebuild(ITEMS, InventoryEntity.class);
+    }
+
+    public boolean mightContainRobot(String robotId) {
+        return mightContain(ROBOTS, robotId, RobotEntity.class);
+    }
+
+    public boolean mightContainItem(String itemId) {
+        return mightContain(ITEMS, itemId, InventoryEntity.class);
+    }
+
+    public void addRobot(String robotId) {
+        add(ROBOTS, robotId);
+    }
+
+    public void addItem(String itemId) {
+        add(ITEMS, itemId);
+    }
+
+    private void rebuild(String name, Class<?> entityClass) {
+        long start = System.currentTimeMillis();
+        long count = mongoTemplate.count(new Query(), entityClass);
+        BloomFilter next = new BloomFilter(Math.max(minExpectedKeys, count * 2), falsePositiveRate);
+
+        // Inserts made while the scan runs go to both filters, so the swap loses none of them
+        Filters current = filters.compute(name, (key, existing) -> new Filters(existing == null ? null : existing.active, next));
+        Query ids = new Query().cursorBatchSize(5000);
+        ids.fields().include("_id");
+        try (Stream<Document> documents = mongoTemplate.stream(ids, Document.class, mongoTemplate.getCollectionName(entityClass))) {
+            documents.forEach(document -> next.add(String.valueOf(document.get("_id"))));
+        } catch (RuntimeException e) {
+            filters.computeIfPresent(name, (key, existing) -> existing == current ? new Filters(existing.active, null) : existing);
+            logger.warn("Rebuilding the {} existence filter failed, keeping the previous one: {}", name, e.getMessage());
+            return;
+        }
+        filters.put(name, new Filters(next, null));
+        logger.info("Existence filter for {} rebuilt: ~{} IDs, {} bits, {} hashes in {} ms",
+                name, count, next.getBits(), next.getHashes(), System.currentTimeMillis() - start);
+    }
+
+    private boolean mightContain(String name, String id, Class<?> entityClass) {
+        Filters current = filters.get(name);
+        if (!enabled || id == null || current == null || current.active == null || current.active.mightContain(id)) {
+            return true;
+        }
+        if (confirmMisses && mongoTemplate.exists(new Query(where("_id").is(id)), entityClass)) {
+            add(name, id);
+            meterRegistry.counter("existence.filter.checks", "collection", name, "result", "confirmed-present").increment();
+            return true;
+        }
+        meterRegistry.counter("existence.filter.checks", "collection", name, "result", "absent").increment();
+        return false;
+    }
+
+    private void add(String name, String id) {
+        if (id == null) {
+            return;
+        }
+        Filters current = filters.get(name);
+        if (current != null) {
+            current.add(id);
+        }
+    }
+
+    private static class Filters {
+        private final BloomFilter active;
+        private final BloomFilter building;
+
+        private Filters(BloomFilter active, BloomFilter building) {
+            this.active = active;
+            this.building = building;
+        }
+
+        private void add(String id) {
+            if (active != null) {
+                active.add(id);
+            }
+            if (building != null) {
+                building.add(id);
+            }
+        }
+    }
+}
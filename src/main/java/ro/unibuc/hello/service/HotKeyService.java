@@ -0,0 +1,147 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.data.HotKeySketchEntity;
+import ro.unibuc.hello.dto.HotKeyDTO;
+import ro.unibuc.hello.sketch.CountMinSketch;
+import ro.unibuc.hello.sketch.HotKeyTracker;
+import ro.unibuc.hello.sketch.SpaceSaving;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Most ordered items and busiest robots over a rolling window, from fixed-size sketches rather than scans.
+ * With cluster leases enabled every replica periodically stores its summaries in {@code hotkey_sketches} and
+ * loads the other replicas' recent ones, so each replica answers with the merged, cluster-wide top-K.
+ */
+@Service
+@Observed(name = "hello.service")
+public class HotKeyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotKeyService.class);
+
+    static final String ITEMS = "items";
+    static final String ROBOTS = "robots";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Value("${hotkeys.windows:15}")
+    private int windows = 15;
+
+    @Value("${hotkeys.sketch.depth:4}")
+    private int depth = 4;
+
+    @Value("${hotkeys.sketch.width:2048}")
+    private int width = 2048;
+
+    @Value("${hotkeys.capacity:256}")
+    private int capacity = 256;
+
+    @Value("${hotkeys.remote-ttl-ms:60000}")
+    private long remoteTtlMs = 60000;
+
+    private final Map<String, HotKeyTracker> trackers = new HashMap<>();
+    private volatile Map<String, List<HotKeyTracker.Summary>> remote = Map.of();
+
+    @PostConstruct
+    public void start() {
+        trackers.put(ITEMS, new HotKeyTracker(windows, depth, width, capacity));
+        trackers.put(ROBOTS, new HotKeyTracker(windows, depth, width, capacity));
+    }
+
+    public void recordOrderCreated(String itemId) {
+        trackers.get(ITEMS).add(itemId, 1);
+    }
+
+    public void recordOrderCompleted(String robotId) {
+        trackers.get(ROBOTS).add(robotId, 1);
+    }
+
+    public List<HotKeyDTO> getHotItems(int limit) {
+        return top(ITEMS, limit);
+    }
+
+    public List<HotKeyDTO> getTopRobots(int limit) {
+        return top(ROBOTS, limit);
+    }
+
+    @Scheduled(fixedRateString = "${hotkeys.window-ms:60000}", initialDelayString = "${hotkeys.window-ms:60000}")
+    public void rotate() {
+        trackers.values().forEach(HotKeyTracker::rotate);
+    }
+
+    @Scheduled(fixedDelayString = "${hotkeys.share-interval-ms:10000}")
+    public void share() {
+        if (!leaseManager.isEnabled()) {
+            return;
+        }
+        try {
+            Date now = new Date();
+            for (Map.Entry<String, HotKeyTracker> tracker : trackers.entrySet()) {
+                mongoTemplate.save(toEntity(tracker.getKey(), tracker.getValue().summary(), now));
+            }
+
+            Query others = new Query(where("nodeId").ne(leaseManager.getNodeId())
+                    .and("updatedAt").gt(new Date(now.getTime() - remoteTtlMs)));
+            remote = mongoTemplate.find(others, HotKeySketchEntity.class).stream()
+                    .filter(entity -> entity.getDepth() == depth && entity.getWidth() == width)
+                    .collect(Collectors.groupingBy(HotKeySketchEntity::getStream,
+                            Collectors.mapping(this::toSummary, Collectors.toList())));
+        } catch (RuntimeException e) {
+            // Keep answering from the last merged state; the next round retries
+            logger.warn("Sharing hot-key sketches failed: {}", e.getMessage());
+        }
+    }
+
+    private List<HotKeyDTO> top(String stream, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<HotKeyTracker.Summary> summaries = new ArrayList<>(remote.getOrDefault(stream, List.of()));
+        summaries.add(trackers.get(stream).summary());
+        return HotKeyTracker.Summary.merge(summaries).top(limit).stream()
+                .map(entry -> new HotKeyDTO(entry.getKey(), entry.getCount(), entry.getError()))
+                .collect(Collectors.toList());
+    }
+
+    private HotKeySketchEntity toEntity(String stream, HotKeyTracker.Summary summary, Date now) {
+        HotKeySketchEntity entity = new HotKeySketchEntity();
+        entity.setId(leaseManager.getNodeId() + ":" + stream);
+        entity.setNodeId(leaseManager.getNodeId());
+        entity.setStream(stream);
+        entity.setDepth(depth);
+        entity.setWidth(width);
+        entity.setCounters(summary.getFrequencies().toBytes());
+        entity.setCapacity(capacity);
+        entity.setHeavyHitters(summary.getHeavyHitters().entries());
+        entity.setUpdatedAt(now);
+        return entity;
+    }
+
+    private HotKeyTracker.Summary toSummary(HotKeySketchEntity entity) {
+        return new HotKeyTracker.Summary(
+                CountMinSketch.fromBytes(entity.getDepth(), entity.getWidth(), entity.getCounters()),
+                SpaceSaving.fromEntries(entity.getCapacity(), entity.getHeavyHitters() != null ? entity.getHeavyHitters() : List.of()));
+    }
+}
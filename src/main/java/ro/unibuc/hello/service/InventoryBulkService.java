@@ -0,0 +1,285 @@
+package ro.unibuc.hello.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.annotation.Observed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.data.StockOperation;
+import ro.unibuc.hello.dto.InventoryDTO;
+import ro.unibuc.hello.dto.InventoryImportReport;
+import ro.unibuc.hello.exception.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@Observed(name = "hello.service")
+public class InventoryBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryBulkService.class);
+
+    static final String CSV_HEADER = "itemId,name,stock,threshold";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Autowired
+    private ExistenceFilter existenceFilter;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${inventory.import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${inventory.export.cursor-batch-size:1000}")
+    private int cursorBatchSize = 1000;
+
+    /**
+     * Imports one item per line. CSV is read line by line as well, so a quoted field cannot contain a line
+     * break: such a record is rejected instead of being joined with the next line.
+     */
+    public InventoryImportReport importInventory(InputStream input, boolean csv, Consumer<InventoryImportReport> progress) throws IOException {
+        InventoryImportReport report = new InventoryImportReport();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String[] columns = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (csv && columns == null) {
+                columns = parseCsvLine(line).toArray(new String[0]);
+                continue;
+            }
+
+            report.incrementProcessed();
+            try {
+                InventoryDTO item = csv ? toInventoryDTO(columns, parseCsvLine(line)) : objectMapper.readValue(line, InventoryDTO.class);
+                if (item == null) {
+                    throw new ValidationException("Line is not an inventory item");
+                }
+                if (item.getItemId() == null || item.getItemId().isBlank()) {
+                    throw new ValidationException("Item ID cannot be null or empty");
+                }
+                inventoryService.validateInventoryFields(item);
+                batch.add(new ImportRow(lineNumber, item));
+            } catch (ValidationException | IllegalArgumentException | JsonProcessingException e) {
+                report.reject(lineNumber, e.getMessage());
+            }
+
+            if (batch.size() >= batchSize) {
+                writeBatch(batch, report);
+                progress.accept(report);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            writeBatch(batch, report);
+        }
+        report.setDone(true);
+        progress.accept(report);
+        logger.info("Inventory import finished: {} processed, {} imported, {} rejected",
+                report.getProcessed(), report.getImported(), report.getRejected());
+        return report;
+    }
+
+    public void exportInventory(OutputStream output, boolean csv) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        Query query = new Query().cursorBatchSize(cursorBatchSize);
+        try (Stream<InventoryEntity> entities = mongoTemplate.stream(query, InventoryEntity.class)) {
+            Iterator<InventoryEntity> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                InventoryEntity entity = iterator.next();
+                if (csv) {
+                    writer.write(toCsvLine(entity));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(
+                            new InventoryDTO(entity.getItemId(), entity.getName(), entity.getStock(), entity.getThreshold())));
+                }
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeBatch(List<ImportRow> batch, InventoryImportReport report) {
+        Set<String> ids = batch.stream().map(row -> row.item.getItemId()).collect(Collectors.toSet());
+        Query existingQuery = new Query(where("_id").in(ids));
+        existingQuery.fields().include("_id");
+        Set<String> existing = mongoTemplate.find(existingQuery, InventoryEntity.class).stream()
+                .map(InventoryEntity::getItemId)
+                .collect(Collectors.toSet());
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryEntity.class);
+        Set<String> seen = new HashSet<>();
+        List<ImportRow> queued = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            InventoryDTO item = row.item;
+            if (existing.contains(item.getItemId()) || !seen.add(item.getItemId())) {
+                report.reject(row.line, "Item ID must be unique");
+                continue;
+            }
+            InventoryEntity entity = new InventoryEntity(
+                    item.getItemId(),
+                    item.getName(),
+                    item.getStock() != null ? item.getStock() : 0,
+                    item.getThreshold() != null ? item.getThreshold() : 0
+            );
+            // Bulk inserts skip version initialization, which later repository saves depend on
+            entity.setVersion(0L);
+            if (item.getStock() != null) {
+                stockLedgerService.attachEntry(entity, StockOperation.ADJUST, item.getStock());
+            }
+            operations.insert(entity);
+            queued.add(row);
+        }
+
+        if (!queued.isEmpty()) {
+            Set<Integer> failed = new HashSet<>();
+            try {
+                report.addImported(operations.execute().getInsertedCount());
+            } catch (BulkOperationException e) {
+                report.addImported(e.getResult().getInsertedCount());
+                e.getErrors().forEach(error -> {
+                    failed.add(error.getIndex());
+                    report.reject(queued.get(error.getIndex()).line, error.getMessage());
+                });
+            }
+            for (int i = 0; i < queued.size(); i++) {
+                if (failed.contains(i)) {
+                    continue;
+                }
+                InventoryDTO item = queued.get(i).item;
+                if (item.getStock() != null) {
+                    stockLedgerService.written(item.getItemId());
+                }
+                inventorySearchIndex.add(item.getItemId(), item.getName());
+                existenceFilter.addItem(item.getItemId());
+            }
+            resourceVersions.bump(ResourceVersions.INVENTORY);
+        }
+        logger.debug("Inventory import batch written: {} queued, {} imported so far", queued.size(), report.getImported());
+        batch.clear();
+    }
+
+    private InventoryDTO toInventoryDTO(String[] columns, List<String> values) {
+        InventoryDTO item = new InventoryDTO();
+        for (int i = 0; i < columns.length && i < values.size(); i++) {
+            String value = values.get(i).isEmpty() ? null : values.get(i);
+            switch (columns[i].trim()) {
+                case "itemId" -> item.setItemId(value);
+                case "name" -> item.setName(value);
+                case "stock" -> item.setStock(value != null ? Integer.valueOf(value.trim()) : null);
+                case "threshold" -> item.setThreshold(value != null ? Integer.valueOf(value.trim()) : null);
+                default -> { }
+            }
+        }
+        return item;
+    }
+
+    /** Splits a single CSV line; quoted values may contain commas and doubled quotes, but not line breaks. */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value; values cannot span lines");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static String toCsvLine(InventoryEntity entity) {
+        return csvValue(entity.getItemId()) + ',' + csvValue(entity.getName()) + ','
+                + (entity.getStock() != null ? entity.getStock() : "") + ','
+                + (entity.getThreshold() != null ? entity.getThreshold() : "");
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static class ImportRow {
+        private final long line;
+        private final InventoryDTO item;
+
+        private ImportRow(long line, InventoryDTO item) {
+            this.line = line;
+            this.item = item;
+        }
+    }
+}
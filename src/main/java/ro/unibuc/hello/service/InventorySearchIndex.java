@@ -0,0 +1,331 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.dto.InventorySearchResultDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Type-ahead index over inventory item names. Every word of a name is kept in a sorted map, so a prefix
+ * lookup is a range scan (the map plays the role of a trie). Queries match items whose words start with
+ * every query term; results are ranked by whole-name prefix match, then by name length.
+ *
+ * <p>A rebuild streams the names into a fresh index while queries keep using the live one. Changes made
+ * meanwhile are applied to both and replayed onto the new index before it is swapped in. Each replica only sees
+ * its own writes between rebuilds, so with {@code cluster.enabled} the index is rebuilt every
+ * {@code inventory.search.refresh-interval-ms} on its own thread.
+ */
+@Component
+public class InventorySearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySearchIndex.class);
+
+    // Rough per-object JVM overheads used for the memory estimate
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int POSTING_OVERHEAD_BYTES = 40;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Value("${inventory.search.max-candidates:20000}")
+    private int maxCandidates = 20000;
+
+    private volatile Index index = new Index();
+    // Changes made while a rebuild streams the names, replayed onto the new index; null when no rebuild runs.
+    // Guarded by this
+    private List<Consumer<Index>> pending;
+    private Timer searchTimer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-search-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void registerMetrics() {
+        searchTimer = Timer.builder("inventory.search.latency")
+                .description("Inventory type-ahead query latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("inventory.search.index.items", this, search -> search.index.namesById.size()).register(meterRegistry);
+        Gauge.builder("inventory.search.index.tokens", this, search -> search.index.tokens.size()).register(meterRegistry);
+        Gauge.builder("inventory.search.index.bytes", this, search -> search.index.estimatedBytes.get())
+                .description("Estimated heap used by the inventory search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.search.refresh-interval-ms:300000}", initialDelayString = "${inventory.search.refresh-interval-ms:300000}")
+    public void scheduleRebuild() {
+        // A single node sees every write and never needs to catch up
+        if (leaseManager.isEnabled()) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        Index fresh = new Index();
+        try {
+            Query query = new Query().cursorBatchSize(5000);
+            query.fields().include("_id").include("name");
+            try (Stream<InventoryEntity> items = mongoTemplate.stream(query, InventoryEntity.class)) {
+                items.forEach(item -> fresh.add(item.getItemId(), item.getName()));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // Replayed last, so a name streamed before a local change never overwrites it
+            pending.forEach(change -> change.accept(fresh));
+            pending = null;
+            index = fresh;
+        }
+        logger.info("Inventory search index built: {} items, {} tokens, ~{} KB",
+                fresh.namesById.size(), fresh.tokens.size(), fresh.estimatedBytes.get() / 1024);
+    }
+
+    public synchronized void add(String itemId, String name) {
+        if (itemId == null || name == null) {
+            return;
+        }
+        index.add(itemId, name);
+        if (pending != null) {
+            pending.add(next -> next.add(itemId, name));
+        }
+    }
+
+    public synchronized void remove(String itemId) {
+        index.remove(itemId);
+        if (pending != null) {
+            pending.add(next -> next.remove(itemId));
+        }
+    }
+
+    public List<InventorySearchResultDTO> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            String normalizedQuery = normalize(query);
+            if (normalizedQuery.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            String[] terms = normalizedQuery.split(" ");
+            Index current = index;
+
+            // Drive the scan with the longest term, it has the narrowest prefix range
+            String driver = terms[0];
+            for (String term : terms) {
+                if (term.length() > driver.length()) {
+                    driver = term;
+                }
+            }
+
+            PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, Candidate.RANKING.reversed());
+            Set<String> seen = new HashSet<>();
+            int scanned = 0;
+            NavigableMap<String, Set<String>> range = current.tokens.subMap(driver, true, driver + Character.MAX_VALUE, false);
+            scan:
+            for (Set<String> itemIds : range.values()) {
+                for (String itemId : itemIds) {
+                    if (++scanned > maxCandidates) {
+                        break scan;
+                    }
+                    IndexedName indexed = current.namesById.get(itemId);
+                    if (indexed == null || !seen.add(itemId) || !indexed.matchesAll(terms)) {
+                        continue;
+                    }
+                    best.offer(new Candidate(itemId, indexed, indexed.normalized.startsWith(normalizedQuery) ? 0 : 1));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+
+            List<Candidate> ranked = new ArrayList<>(best);
+            ranked.sort(Candidate.RANKING);
+            List<InventorySearchResultDTO> results = new ArrayList<>(ranked.size());
+            for (Candidate candidate : ranked) {
+                results.add(new InventorySearchResultDTO(candidate.itemId, candidate.indexed.name));
+            }
+            return results;
+        } finally {
+            if (searchTimer != null) {
+                searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public int size() {
+        return index.namesById.size();
+    }
+
+    public long estimatedBytes() {
+        return index.estimatedBytes.get();
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /** Names and word postings of one build of the index. */
+    private static class Index {
+        private final Map<String, IndexedName> namesById = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, Set<String>> tokens = new ConcurrentSkipListMap<>();
+        private final AtomicLong estimatedBytes = new AtomicLong();
+
+        private void add(String itemId, String name) {
+            IndexedName indexed = new IndexedName(name, normalize(name));
+            IndexedName previous = namesById.put(itemId, indexed);
+            if (previous != null) {
+                unindex(itemId, previous);
+            }
+            estimatedBytes.addAndGet(ENTRY_OVERHEAD_BYTES + 2L * (itemId.length() + name.length() + indexed.normalized.length()));
+            for (String token : indexed.normalized.split(" ")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                tokens.compute(token, (t, itemIds) -> {
+                    if (itemIds == null) {
+                        itemIds = ConcurrentHashMap.newKeySet();
+                        estimatedBytes.addAndGet(POSTING_OVERHEAD_BYTES + 2L * t.length());
+                    }
+                    if (itemIds.add(itemId)) {
+                        estimatedBytes.addAndGet(POSTING_OVERHEAD_BYTES);
+                    }
+                    return itemIds;
+                });
+            }
+        }
+
+        private void remove(String itemId) {
+            IndexedName indexed = namesById.remove(itemId);
+            if (indexed != null) {
+                unindex(itemId, indexed);
+            }
+        }
+
+        private void unindex(String itemId, IndexedName indexed) {
+            estimatedBytes.addAndGet(-(ENTRY_OVERHEAD_BYTES + 2L * (itemId.length() + indexed.name.length() + indexed.normalized.length())));
+            for (String token : indexed.normalized.split(" ")) {
+                tokens.computeIfPresent(token, (t, itemIds) -> {
+                    if (itemIds.remove(itemId)) {
+                        estimatedBytes.addAndGet(-POSTING_OVERHEAD_BYTES);
+                    }
+                    if (itemIds.isEmpty()) {
+                        estimatedBytes.addAndGet(-(POSTING_OVERHEAD_BYTES + 2L * t.length()));
+                        return null;
+                    }
+                    return itemIds;
+                });
+            }
+        }
+    }
+
+    private static class IndexedName {
+        private final String name;
+        private final String normalized;
+
+        private IndexedName(String name, String normalized) {
+            this.name = name;
+            this.normalized = normalized;
+        }
+
+        private boolean matchesAll(String[] terms) {
+            for (String term : terms) {
+                int at = normalized.indexOf(term);
+                while (at > 0 && normalized.charAt(at - 1) != ' ') {
+                    at = normalized.indexOf(term, at + 1);
+                }
+                if (at < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Candidate {
+        private static final Comparator<Candidate> RANKING = Comparator
+                .comparingInt((Candidate c) -> c.rank)
+                .thenComparingInt(c -> c.indexed.name.length())
+                .thenComparing(c -> c.indexed.normalized);
+
+        private final String itemId;
+        private final IndexedName indexed;
+        private final int rank;
+
+        private Candidate(String itemId, IndexedName indexed, int rank) {
+            this.itemId = itemId;
+            this.indexed = indexed;
+            this.rank = rank;
+        }
+    }
+}
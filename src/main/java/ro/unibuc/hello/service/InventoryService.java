@@ -1,38 +1,77 @@
 package ro.unibuc.hello.service;
 
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ro.unibuc.hello.data.InventoryEntity;
 import ro.unibuc.hello.data.InventoryRepository;
+import ro.unibuc.hello.data.StockOperation;
 import ro.unibuc.hello.dto.InventoryDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.resilience.MongoGuard;
 
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
+@Observed(name = "hello.service")
 public class InventoryService {
 
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Autowired
+    private StripedLockManager stripedLockManager;
+
+    @Autowired
+    private ExistenceFilter existenceFilter;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private MongoGuard mongoGuard;
+
     public List<InventoryDTO> getAllInventoryItems() {
-        List<InventoryEntity> entities = inventoryRepository.findAll();
-        return entities.stream()
+        return mongoGuard.read(MongoGuard.INVENTORY, "inventory", () -> inventoryRepository.findAll().stream()
                 .map(entity -> new InventoryDTO(entity.getItemId(), entity.getName(), entity.getStock(), entity.getThreshold()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     public InventoryDTO getInventoryItemById(String id) throws EntityNotFoundException {
+        if (!existenceFilter.mightContainItem(id)) {
+            throw new EntityNotFoundException("Inventory item with ID " + id + " not found");
+        }
+        return mongoGuard.read(MongoGuard.INVENTORY, "item:" + id, () -> loadInventoryItem(id),
+                load -> singleFlight.execute(ResourceVersions.INVENTORY, "item:" + id, load));
+    }
+
+    private InventoryDTO loadInventoryItem(String id) {
         InventoryEntity entity = inventoryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Inventory item with ID " + id + " not found"));
-        return new InventoryDTO(entity.getItemId(), entity.getName(), entity.getStock(), entity.getThreshold());
+        InventoryDTO item = new InventoryDTO(entity.getItemId(), entity.getName(), entity.getStock(), entity.getThreshold());
+        item.setVersion(entity.getVersion());
+        return item;
     }
 
     public InventoryDTO createInventoryItem(InventoryDTO inventoryDTO) {
-        validateInventoryItem(inventoryDTO);
+        validateInventoryFields(inventoryDTO);
+        return doCreateInventoryItem(inventoryDTO);
+    }
+
+    private InventoryDTO doCreateInventoryItem(InventoryDTO inventoryDTO) {
+        validateUniqueItemId(inventoryDTO);
 
         InventoryEntity inventoryItem = new InventoryEntity(
             inventoryDTO.getItemId(),
@@ -40,7 +79,12 @@ public class InventoryService {
             inventoryDTO.getStock() != null ? inventoryDTO.getStock() : 0,
             inventoryDTO.getThreshold() != null ? inventoryDTO.getThreshold() : 0
         );
-        inventoryRepository.save(inventoryItem);
+        stockLedgerService.attachEntry(inventoryItem, StockOperation.ADJUST, inventoryItem.getStock());
+        mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.save(inventoryItem));
+        existenceFilter.addItem(inventoryItem.getItemId());
+        resourceVersions.bump(ResourceVersions.INVENTORY);
+        stockLedgerService.written(inventoryItem.getItemId());
+        inventorySearchIndex.add(inventoryItem.getItemId(), inventoryItem.getName());
         return new InventoryDTO(inventoryItem.getItemId(), inventoryItem.getName(), inventoryItem.getStock(), inventoryItem.getThreshold());
     }
 
@@ -49,20 +93,43 @@ public class InventoryService {
             throw new ValidationException("Stock cannot be negative");
         }
 
-        InventoryEntity inventoryItem = inventoryRepository.findById(id)
+        return stripedLockManager.withLocks(
+                () -> stripedLockManager.retryOnConflict("updateInventoryStock", () -> doUpdateInventoryStock(id, stock)),
+                StripedLockManager.itemKey(id));
+    }
+
+    private InventoryDTO doUpdateInventoryStock(String id, Integer stock) {
+        InventoryEntity inventoryItem = mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.findById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Inventory item with ID " + id + " not found"));
+        int previousStock = inventoryItem.getStock() != null ? inventoryItem.getStock() : 0;
         inventoryItem.setStock(stock);
-        inventoryRepository.save(inventoryItem);
+        stockLedgerService.attachEntry(inventoryItem, StockOperation.ADJUST, stock - previousStock);
+        mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.save(inventoryItem));
+        resourceVersions.bump(ResourceVersions.INVENTORY);
+        stockLedgerService.written(id);
         return new InventoryDTO(inventoryItem.getItemId(), inventoryItem.getName(), inventoryItem.getStock(), inventoryItem.getThreshold());
     }
 
     public void deleteInventoryItem(String id) throws EntityNotFoundException {
-        InventoryEntity inventoryItem = inventoryRepository.findById(id)
+        doDeleteInventoryItem(id);
+    }
+
+    private void doDeleteInventoryItem(String id) {
+        InventoryEntity inventoryItem = mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.findById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Inventory item with ID " + id + " not found"));
-        inventoryRepository.delete(inventoryItem);
+        mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.delete(inventoryItem));
+        resourceVersions.bump(ResourceVersions.INVENTORY);
+        inventorySearchIndex.remove(id);
     }
 
-    private void validateInventoryItem(InventoryDTO inventoryDTO) {
+    private void validateUniqueItemId(InventoryDTO inventoryDTO) {
+        // Not answered from the existence filter: it may miss items another replica created since it was loaded
+        if (mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.existsById(inventoryDTO.getItemId()))) {
+            throw new ValidationException("Item ID must be unique");
+        }
+    }
+
+    void validateInventoryFields(InventoryDTO inventoryDTO) {
         if (inventoryDTO.getName() == null || inventoryDTO.getName().isEmpty()) {
             throw new ValidationException("Item name cannot be null or empty");
         }
@@ -86,9 +153,5 @@ public class InventoryService {
         if (inventoryDTO.getThreshold() != null && inventoryDTO.getThreshold() > 1000) {
             throw new ValidationException("Threshold cannot exceed 1,000 units");
         }
-
-        if (inventoryRepository.existsById(inventoryDTO.getItemId())) {
-            throw new ValidationException("Item ID must be unique");
-        }
     }
 }
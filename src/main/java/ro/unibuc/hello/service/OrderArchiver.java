@@ -0,0 +1,169 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.data.OrderEntity;
+import ro.unibuc.hello.data.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Moves COMPLETED and CANCELED orders older than {@code orders.archive.min-age-days} from {@code orders} to
+ * {@code orders_archive}. Each batch is copied with idempotent upserts before the originals are deleted, so
+ * a crash in between only leaves duplicates that the next run cleans up. Between batches the archiver
+ * sleeps at least as long as the batch took, which keeps it under half of one connection's time.
+ *
+ * <p>The schedule only hands a run to the archiver's own thread, so its pauses never hold up the other
+ * scheduled jobs. With {@code cluster.enabled} only the {@linkplain LeaseManager#isLeader() leader} archives.
+ */
+@Component
+public class OrderArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiver.class);
+
+    public static final String ARCHIVE_COLLECTION = "orders_archive";
+
+    private static final List<OrderStatus> TERMINAL = List.of(OrderStatus.COMPLETED, OrderStatus.CANCELED);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Value("${orders.archive.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${orders.archive.min-age-days:30}")
+    private long minAgeDays = 30;
+
+    @Value("${orders.archive.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${orders.archive.pause-ms:200}")
+    private long pauseMs = 200;
+
+    @Value("${orders.archive.max-batches-per-run:50}")
+    private int maxBatchesPerRun = 50;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Counter archived;
+
+    @PostConstruct
+    public void registerMetrics() {
+        archived = Counter.builder("orders.archived")
+                .description("Terminal orders moved to the archive collection")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${orders.archive.interval-ms:600000}", initialDelayString = "${orders.archive.initial-delay-ms:60000}")
+    public void scheduleArchive() {
+        if (enabled && !running.get() && leaseManager.isLeader()) {
+            executor.execute(this::archive);
+        }
+    }
+
+    public void archive() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int total = archiveOnce(LocalDateTime.now().minusDays(minAgeDays));
+            if (total > 0) {
+                logger.info("Archived {} terminal orders", total);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    int archiveOnce(LocalDateTime cutoff) {
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            long start = System.nanoTime();
+            List<OrderEntity> orders = mongoTemplate.find(archivable(cutoff), OrderEntity.class);
+            if (orders.isEmpty()) {
+                break;
+            }
+
+            BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderEntity.class, ARCHIVE_COLLECTION);
+            for (OrderEntity order : orders) {
+                copy.replaceOne(new Query(where("_id").is(order.getId())), order, FindAndReplaceOptions.options().upsert());
+            }
+            copy.execute();
+
+            // Only delete orders that are still terminal, in case one was reopened meanwhile
+            List<String> ids = orders.stream().map(OrderEntity::getId).toList();
+            long removed = mongoTemplate.remove(new Query(where("_id").in(ids).and("status").in(TERMINAL)), OrderEntity.class)
+                    .getDeletedCount();
+            total += (int) removed;
+            if (removed > 0) {
+                resourceVersions.bump(ResourceVersions.ORDERS);
+            }
+            if (archived != null) {
+                archived.increment(removed);
+            }
+            if (orders.size() < batchSize) {
+                break;
+            }
+            throttle(System.nanoTime() - start);
+        }
+        return total;
+    }
+
+    private Query archivable(LocalDateTime cutoff) {
+        Criteria old = new Criteria().orOperator(
+                where("completedAt").lt(cutoff),
+                // CANCELED orders carry no completion time
+                where("completedAt").is(null).and("createdAt").lt(cutoff));
+        return new Query(where("status").in(TERMINAL).andOperator(old))
+                .with(Sort.by("_id"))
+                .limit(batchSize);
+    }
+
+    private void throttle(long batchNanos) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.max(pauseMs, TimeUnit.NANOSECONDS.toMillis(batchNanos)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.data.OrderEntity;
+import ro.unibuc.hello.data.OrderStatus;
+import ro.unibuc.hello.dto.OrderGroupDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Column-oriented copy of the order history (live and archived orders) for ad-hoc group-bys.
+ *
+ * <p>Each order is one row across primitive arrays: robotId, itemId and location are dictionary-encoded to
+ * int codes, the status is its ordinal in a byte and createdAt is kept in seconds. The arrays are cut into
+ * segments of {@code orders.columnar.segment-rows} rows. Writers append or patch rows under the store's monitor,
+ * and the first query after a write publishes an immutable {@link Columns} view of them; queries take the monitor
+ * for nothing else. Appends land past the end of every published view, and patching a row that a view can
+ * already see first copies its segment, so writes between two queries copy a segment at most once. A query
+ * splits the rows into chunks that are scanned in parallel, each counting into dense arrays indexed by group
+ * code, and merges the partial results. Deleted orders are tombstoned until the next rebuild.
+ *
+ * <p>A rebuild streams the history into a fresh table without holding the monitor. Writes made meanwhile are
+ * applied to both tables and replayed onto the new one before it is swapped in. Each replica only sees its own
+ * writes between rebuilds, so with {@code cluster.enabled} the store is rebuilt every
+ * {@code orders.columnar.refresh-interval-ms} on its own thread; until then, changes made through other replicas
+ * are missing from this replica's results.
+ */
+@Component
+public class OrderColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderColumnStore.class);
+
+    public enum Dimension { ROBOT, ITEM, LOCATION, STATUS, HOUR }
+
+    private static final byte DELETED = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final byte NO_STATUS = (byte) STATUSES.length;
+    private static final long SECONDS_PER_HOUR = 3600;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Value("${orders.columnar.segment-rows:4096}")
+    private int segmentRows = 4096;
+
+    @Value("${orders.columnar.chunk-size:65536}")
+    private int chunkSize = 65536;
+
+    // Two years of hourly buckets
+    @Value("${orders.columnar.max-hour-buckets:17544}")
+    private int maxHourBuckets = 17544;
+
+    // Guarded by this
+    private Table table;
+    // Writes made while a rebuild streams the history, replayed onto the new table; null when no rebuild runs
+    private List<Consumer<Table>> pending;
+
+    private volatile Columns columns;
+    // Set by writes; the next query publishes, so writes alone never mark segments shared
+    private volatile boolean changed;
+    private Timer scanTimer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-column-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        synchronized (this) {
+            table = new Table(segmentRows);
+            publish();
+        }
+        scanTimer = Timer.builder("orders.columnar.scan.latency")
+                .description("Order column store group-by latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("orders.columnar.rows", this, store -> store.current().size)
+                .description("Rows in the order column store, including tombstones")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${orders.columnar.refresh-interval-ms:300000}", initialDelayString = "${orders.columnar.refresh-interval-ms:300000}")
+    public void scheduleRebuild() {
+        // A single node sees every write and never needs to catch up
+        if (leaseManager.isEnabled()) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        Table fresh = new Table(segmentRows);
+        try {
+            Query query = new Query().cursorBatchSize(5000);
+            query.fields().include("robotId", "itemId", "location", "status", "quantity", "createdAt");
+            for (String collection : List.of(mongoTemplate.getCollectionName(OrderEntity.class), OrderArchiver.ARCHIVE_COLLECTION)) {
+                try (Stream<OrderEntity> orders = mongoTemplate.stream(query, OrderEntity.class, collection)) {
+                    orders.forEach(fresh::write);
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // Replayed last, so a document streamed before a local update never overwrites it
+            pending.forEach(change -> change.accept(fresh));
+            pending = null;
+            table = fresh;
+            publish();
+            logger.info("Order column store built: {} rows, {} robots, {} items, {} locations",
+                    fresh.size, fresh.robots.count - 1, fresh.items.count - 1, fresh.locations.count - 1);
+        }
+    }
+
+    public synchronized void upsert(OrderEntity order) {
+        if (order.getId() == null) {
+            return;
+        }
+        table.write(order);
+        if (pending != null) {
+            pending.add(next -> next.write(order));
+        }
+        changed = true;
+    }
+
+    public synchronized void remove(String orderId) {
+        if (pending != null) {
+            pending.add(next -> next.remove(orderId));
+        }
+        if (table.remove(orderId)) {
+            changed = true;
+        }
+    }
+
+    public synchronized int size() {
+        return table.rowsById.size();
+    }
+
+    /**
+     * Counts orders and sums their quantities per group. Every filter is optional; {@code from} is inclusive
+     * and {@code to} exclusive on createdAt. Hour groups are returned in time order, the others by count.
+     */
+    public List<OrderGroupDTO> aggregate(Dimension by, OrderStatus status, LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        try {
+            Columns view = current();
+            Scan scan = new Scan(view, by, status, from, to);
+            if (scan.groups <= 0) {
+                return List.of();
+            }
+            if (scan.groups > maxHourBuckets && by == Dimension.HOUR) {
+                throw new IllegalArgumentException("Hourly group-by spans " + scan.groups
+                        + " hours, narrow it with from/to to at most " + maxHourBuckets);
+            }
+
+            int chunks = Math.max(1, (view.size + chunkSize - 1) / chunkSize);
+            Partial total = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(chunk -> scan.run(chunk * chunkSize, Math.min(view.size, (chunk + 1) * chunkSize)))
+                    .reduce(Partial::merge)
+                    .orElseGet(() -> new Partial(scan.groups));
+
+            List<OrderGroupDTO> groups = new ArrayList<>();
+            for (int group = 0; group < scan.groups; group++) {
+                if (total.counts[group] > 0) {
+                    groups.add(new OrderGroupDTO(scan.keyOf(group), total.counts[group], total.quantities[group]));
+                }
+            }
+            if (by != Dimension.HOUR) {
+                groups.sort(Comparator.comparingLong(OrderGroupDTO::getCount)
+                        .thenComparingLong(OrderGroupDTO::getQuantity)
+                        .reversed());
+            }
+            return groups;
+        } finally {
+            if (scanTimer != null) {
+                scanTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Columns current() {
+        if (changed) {
+            synchronized (this) {
+                if (changed) {
+                    publish();
+                }
+            }
+        }
+        return columns;
+    }
+
+    // Called with the monitor held
+    private void publish() {
+        changed = false;
+        columns = table.view();
+    }
+
+    /** Rows, dictionaries and bounds of one build of the store. */
+    private static class Table {
+        private final int segmentRows;
+        private final Map<String, Integer> rowsById = new HashMap<>();
+        private final Dictionary robots = new Dictionary();
+        private final Dictionary items = new Dictionary();
+        private final Dictionary locations = new Dictionary();
+        private Segment[] segments = new Segment[0];
+        private int segmentCount;
+        private int size;
+        // Rows a published view can see; patching one of them copies its segment first
+        private int visible;
+        private long minCreated = Long.MAX_VALUE;
+        private long maxCreated = Long.MIN_VALUE;
+
+        private Table(int segmentRows) {
+            this.segmentRows = segmentRows;
+        }
+
+        private void write(OrderEntity order) {
+            Integer row = rowsById.get(order.getId());
+            if (row == null) {
+                row = size++;
+                rowsById.put(order.getId(), row);
+            }
+            Segment segment = writable(row);
+            int offset = row % segmentRows;
+            segment.robotCodes[offset] = robots.encode(order.getRobotId());
+            segment.itemCodes[offset] = items.encode(order.getItemId());
+            segment.locationCodes[offset] = locations.encode(order.getLocation());
+            segment.quantities[offset] = order.getQuantity();
+            segment.statuses[offset] = order.getStatus() == null ? NO_STATUS : (byte) order.getStatus().ordinal();
+            long created = order.getCreatedAt() == null ? NO_TIME : order.getCreatedAt().toEpochSecond(ZoneOffset.UTC);
+            segment.createdAt[offset] = created;
+            if (created != NO_TIME) {
+                minCreated = Math.min(minCreated, created);
+                maxCreated = Math.max(maxCreated, created);
+            }
+        }
+
+        private boolean remove(String orderId) {
+            Integer row = rowsById.remove(orderId);
+            if (row == null) {
+                return false;
+            }
+            writable(row).statuses[row % segmentRows] = DELETED;
+            return true;
+        }
+
+        private Segment writable(int row) {
+            int index = row / segmentRows;
+            if (index == segmentCount) {
+                if (segmentCount == segments.length) {
+                    segments = Arrays.copyOf(segments, Math.max(16, segmentCount * 2));
+                }
+                segments[segmentCount++] = new Segment(segmentRows);
+            } else if (row < visible && segments[index].shared) {
+                segments[index] = segments[index].copy();
+            }
+            return segments[index];
+        }
+
+        private Columns view() {
+            Segment[] published = Arrays.copyOf(segments, segmentCount);
+            for (Segment segment : published) {
+                segment.shared = true;
+            }
+            visible = size;
+            return new Columns(this, published);
+        }
+    }
+
+    /** One slice of every column. Rows past a view's size may still be appended in place; the others are copied before a patch. */
+    private static class Segment {
+        private final int[] robotCodes;
+        private final int[] itemCodes;
+        private final int[] locationCodes;
+        private final int[] quantities;
+        private final byte[] statuses;
+        private final long[] createdAt;
+        // Set once a published view references this segment; only touched under the store's monitor
+        private boolean shared;
+
+        private Segment(int rows) {
+            this(new int[rows], new int[rows], new int[rows], new int[rows], new byte[rows], new long[rows]);
+        }
+
+        private Segment(int[] robotCodes, int[] itemCodes, int[] locationCodes, int[] quantities, byte[] statuses, long[] createdAt) {
+            this.robotCodes = robotCodes;
+            this.itemCodes = itemCodes;
+            this.locationCodes = locationCodes;
+            this.quantities = quantities;
+            this.statuses = statuses;
+            this.createdAt = createdAt;
+        }
+
+        private Segment copy() {
+            return new Segment(robotCodes.clone(), itemCodes.clone(), locationCodes.clone(), quantities.clone(),
+                    statuses.clone(), createdAt.clone());
+        }
+    }
+
+    /** A consistent view of the columns: rows below {@code size} and codes below each dictionary count. */
+    private static class Columns {
+        private final int size;
+        private final int segmentRows;
+        private final Segment[] segments;
+        private final String[] robotValues;
+        private final int robotCount;
+        private final String[] itemValues;
+        private final int itemCount;
+        private final String[] locationValues;
+        private final int locationCount;
+        private final long minCreated;
+        private final long maxCreated;
+
+        private Columns(Table table, Segment[] segments) {
+            size = table.size;
+            segmentRows = table.segmentRows;
+            this.segments = segments;
+            robotValues = table.robots.values;
+            robotCount = table.robots.count;
+            itemValues = table.items.values;
+            itemCount = table.items.count;
+            locationValues = table.locations.values;
+            locationCount = table.locations.count;
+            minCreated = table.minCreated;
+            maxCreated = table.maxCreated;
+        }
+    }
+
+    private static class Scan {
+        private final Columns view;
+        private final Dimension by;
+        private final int status;
+        private final boolean timeFiltered;
+        private final long fromSecond;
+        private final long toSecond;
+        private final long firstHour;
+        private final int groups;
+
+        private Scan(Columns view, Dimension by, OrderStatus status, LocalDateTime from, LocalDateTime to) {
+            this.view = view;
+            this.by = by;
+            this.status = status == null ? -1 : status.ordinal();
+            this.timeFiltered = from != null || to != null;
+            this.fromSecond = from == null ? Long.MIN_VALUE + 1 : from.toEpochSecond(ZoneOffset.UTC);
+            this.toSecond = to == null ? Long.MAX_VALUE : to.toEpochSecond(ZoneOffset.UTC);
+
+            if (by == Dimension.HOUR) {
+                long first = Math.max(fromSecond, view.minCreated);
+                long last = Math.min(toSecond - 1, view.maxCreated);
+                firstHour = Math.floorDiv(first, SECONDS_PER_HOUR);
+                groups = view.maxCreated == Long.MIN_VALUE || last < first
+                        ? 0 : (int) Math.min(Integer.MAX_VALUE, Math.floorDiv(last, SECONDS_PER_HOUR) - firstHour + 1);
+            } else {
+                firstHour = 0;
+                groups = switch (by) {
+                    case ROBOT -> view.robotCount;
+                    case ITEM -> view.itemCount;
+                    case LOCATION -> view.locationCount;
+                    default -> NO_STATUS + 1;
+                };
+            }
+        }
+
+        private Partial run(int from, int to) {
+            Partial partial = new Partial(groups);
+            int segmentRows = view.segmentRows;
+            for (int row = from; row < to; ) {
+                int segmentEnd = Math.min(to, (row / segmentRows + 1) * segmentRows);
+                scanSegment(view.segments[row / segmentRows], row % segmentRows, row % segmentRows + segmentEnd - row, partial);
+                row = segmentEnd;
+            }
+            return partial;
+        }
+
+        private void scanSegment(Segment segment, int from, int to, Partial partial) {
+            long[] counts = partial.counts;
+            long[] sums = partial.quantities;
+            byte[] statuses = segment.statuses;
+            long[] createdAt = segment.createdAt;
+            int[] quantities = segment.quantities;
+            int[] codes = switch (by) {
+                case ROBOT -> segment.robotCodes;
+                case ITEM -> segment.itemCodes;
+                case LOCATION -> segment.locationCodes;
+                default -> null;
+            };
+
+            for (int row = from; row < to; row++) {
+                byte rowStatus = statuses[row];
+                if (rowStatus == DELETED || (status >= 0 && rowStatus != status)) {
+                    continue;
+                }
+                long created = createdAt[row];
+                if (timeFiltered && (created == NO_TIME || created < fromSecond || created >= toSecond)) {
+                    continue;
+                }
+                int group;
+                if (codes != null) {
+                    group = codes[row];
+                } else if (by == Dimension.STATUS) {
+                    group = rowStatus;
+                } else {
+                    if (created == NO_TIME) {
+                        continue;
+                    }
+                    group = (int) (Math.floorDiv(created, SECONDS_PER_HOUR) - firstHour);
+                }
+                // Codes appended after this view was published fall outside it
+                if (group >= groups) {
+                    continue;
+                }
+                counts[group]++;
+                sums[group] += quantities[row];
+            }
+        }
+
+        private String keyOf(int group) {
+            return switch (by) {
+                case ROBOT -> view.robotValues[group];
+                case ITEM -> view.itemValues[group];
+                case LOCATION -> view.locationValues[group];
+                case STATUS -> group < STATUSES.length ? STATUSES[group].name() : null;
+                case HOUR -> LocalDateTime.ofEpochSecond((firstHour + group) * SECONDS_PER_HOUR, 0, ZoneOffset.UTC).toString();
+            };
+        }
+    }
+
+    private static class Partial {
+        private final long[] counts;
+        private final long[] quantities;
+
+        private Partial(int groups) {
+            counts = new long[groups];
+            quantities = new long[groups];
+        }
+
+        private Partial merge(Partial other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                quantities[i] += other.quantities[i];
+            }
+            return this;
+        }
+    }
+
+    /** Code 0 is reserved for null. Values are only appended, so a published values array never changes below its count. */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+        private int count = 1;
+
+        private int encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                code = count++;
+                values[code] = value;
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+}
@@ -1,23 +1,46 @@
 package ro.unibuc.hello.service;
 
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 
+import ro.unibuc.hello.cluster.LeaseManager;
 import ro.unibuc.hello.exception.*;
 import ro.unibuc.hello.exception.*;
 import ro.unibuc.hello.data.*;
 import ro.unibuc.hello.dto.OrderDTO;
-
+import ro.unibuc.hello.journal.OrderEventType;
+import ro.unibuc.hello.logging.SampledLogger;
+import ro.unibuc.hello.pipeline.LifecyclePipeline;
+import ro.unibuc.hello.profiling.OrderPhaseEvent;
+import ro.unibuc.hello.profiling.OrderStatusEvent;
+import ro.unibuc.hello.resilience.MongoGuard;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
+@Observed(name = "hello.service")
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+    private static final SampledLogger sampledLogger = new SampledLogger(logger, 10, 20);
+
+    private static final List<OrderStatus> ACTIVE = List.of(OrderStatus.PENDING, OrderStatus.IN_PROGRESS);
+
+    private static final Set<String> ORDER_FIELDS = Set.of("id", "robotId", "status", "itemId", "quantity", "location");
 
     @Autowired
     private OrderRepository orderRepository;
@@ -28,26 +51,76 @@ public class OrderService {
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LifecyclePipeline lifecyclePipeline;
+
+    @Autowired
+    private StripedLockManager stripedLockManager;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Autowired
+    private CycleTimeAnalytics cycleTimeAnalytics;
+
+    @Autowired
+    private OrderColumnStore orderColumnStore;
+
+    @Autowired
+    private HotKeyService hotKeyService;
+
+    @Autowired
+    private ExistenceFilter existenceFilter;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private MongoGuard mongoGuard;
+
     public List<OrderDTO> getAllOrders() {
-        logger.info("Fetching all orders...");
-        List<OrderEntity> entities = orderRepository.findAll();
-        logger.debug("Fetched {} orders", entities.size());
-
-        return entities.stream()
-                .map(entity -> new OrderDTO(
-                        entity.getId(),
-                        entity.getRobotId(),
-                        entity.getStatus(),
-                        entity.getItemId(),
-                        entity.getQuantity(),
-                        entity.getLocation()
-                ))
-                .collect(Collectors.toList());
+        logger.debug("Fetching all orders...");
+        return mongoGuard.read(MongoGuard.ORDERS, "orders", () -> {
+            List<OrderEntity> entities = orderRepository.findAllSummaries();
+            logger.debug("Fetched {} orders", entities.size());
+
+            return entities.stream()
+                    .map(entity -> new OrderDTO(
+                            entity.getId(),
+                            entity.getRobotId(),
+                            entity.getStatus(),
+                            entity.getItemId(),
+                            entity.getQuantity(),
+                            entity.getLocation()
+                    ))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    public List<Map<String, Object>> getAllOrders(Collection<String> fields) {
+        Set<String> selected = SparseFieldset.select(fields, ORDER_FIELDS);
+        logger.debug("Fetching all orders with fields {}...", selected);
+        return mongoGuard.read(MongoGuard.ORDERS, "orders:" + selected, () ->
+                mongoTemplate.find(SparseFieldset.query(selected), Document.class, "orders").stream()
+                        .map(document -> SparseFieldset.toMap(document, selected))
+                        .collect(Collectors.toList()));
     }
 
     public OrderDTO getOrderById(String id) {
-        logger.info("Fetching order with ID: {}", id);
+        logger.debug("Fetching order with ID: {}", id);
+        return mongoGuard.read(MongoGuard.ORDERS, "order:" + id, () -> loadOrder(id),
+                load -> singleFlight.execute(ResourceVersions.ORDERS, "order:" + id, load));
+    }
+
+    private OrderDTO loadOrder(String id) {
         OrderEntity entity = orderRepository.findById(id)
+                .or(() -> Optional.ofNullable(mongoTemplate.findById(id, OrderEntity.class, OrderArchiver.ARCHIVE_COLLECTION)))
                 .orElseThrow(() -> {
                     logger.warn("Order with ID {} not found", id);
                     return new EntityNotFoundException("Order with ID " + id + " not found");
@@ -65,14 +138,31 @@ public class OrderService {
     }
 
     public OrderDTO createOrder(OrderDTO orderDTO) {
-        logger.info("Creating order with robotId: {}", orderDTO.getRobotId());
+        logger.debug("Creating order with robotId: {}", orderDTO.getRobotId());
+        // Unknown IDs fail here, before taking locks or querying Mongo
+        if (!existenceFilter.mightContainRobot(orderDTO.getRobotId())) {
+            throw new RobotNotFoundException(orderDTO.getRobotId());
+        }
+        if (!existenceFilter.mightContainItem(orderDTO.getItemId())) {
+            throw new ItemNotFoundException(orderDTO.getItemId());
+        }
+        return stripedLockManager.withLocks(
+                () -> stripedLockManager.retryOnConflict("createOrder", () -> doCreateOrder(orderDTO)),
+                StripedLockManager.robotKey(orderDTO.getRobotId()),
+                StripedLockManager.itemKey(orderDTO.getItemId()));
+    }
 
+    private OrderDTO doCreateOrder(OrderDTO orderDTO) {
         // Check if the robot exists
-        RobotEntity robot = robotRepository.findById(orderDTO.getRobotId())
-                .orElseThrow(() -> {
-                    logger.error("Robot with ID {} not found", orderDTO.getRobotId());
-                    return new RobotNotFoundException(orderDTO.getRobotId());
-                });
+        RobotEntity robot = phase(OrderPhaseEvent.ROBOT_LOOKUP, orderDTO, null, () -> {
+            RobotEntity found = mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.findById(orderDTO.getRobotId()))
+                    .orElseThrow(() -> {
+                        logger.error("Robot with ID {} not found", orderDTO.getRobotId());
+                        return new RobotNotFoundException(orderDTO.getRobotId());
+                    });
+            leaseManager.fence(found);
+            return found;
+        });
 
         // Check if the robot has an active order
         if (robot.getCurrentOrderId() != null) {
@@ -86,18 +176,20 @@ public class OrderService {
             throw new InvalidQuantityException(orderDTO.getQuantity());
         }
 
-        // Check if the item exists in inventory
-        InventoryEntity inventoryItem = inventoryRepository.findById(orderDTO.getItemId())
-                .orElseThrow(() -> {
-                    logger.error("Item with ID {} not found", orderDTO.getItemId());
-                    return new ItemNotFoundException(orderDTO.getItemId());
-                });
-
-        // Check stock availability
-        if (inventoryItem.getStock() < orderDTO.getQuantity()) {
-            logger.warn("Insufficient stock for item {}: Available {}, Requested {}", orderDTO.getItemId(), inventoryItem.getStock(), orderDTO.getQuantity());
-            throw new InsufficientStockException(orderDTO.getItemId(), inventoryItem.getStock(), orderDTO.getQuantity());
-        }
+        // Check if the item exists in inventory and has enough stock
+        phase(OrderPhaseEvent.STOCK_CHECK, orderDTO, null, () -> {
+            InventoryEntity inventoryItem = mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.findById(orderDTO.getItemId()))
+                    .orElseThrow(() -> {
+                        logger.error("Item with ID {} not found", orderDTO.getItemId());
+                        return new ItemNotFoundException(orderDTO.getItemId());
+                    });
+
+            if (inventoryItem.getStock() < orderDTO.getQuantity()) {
+                logger.warn("Insufficient stock for item {}: Available {}, Requested {}", orderDTO.getItemId(), inventoryItem.getStock(), orderDTO.getQuantity());
+                throw new InsufficientStockException(orderDTO.getItemId(), inventoryItem.getStock(), orderDTO.getQuantity());
+            }
+            return inventoryItem;
+        });
 
         // Create and save the new order
         OrderEntity order = new OrderEntity(
@@ -108,15 +200,27 @@ public class OrderService {
                 orderDTO.getLocation()
         );
 
-        orderRepository.save(order);
-        logger.info("Order saved with ID: {}", order.getId());
+        phase(OrderPhaseEvent.SAVE_ORDER, orderDTO, null, () -> mongoGuard.write(MongoGuard.ORDERS, () -> orderRepository.save(order)));
+        sampledLogger.info("order.created", "Order saved with ID: {}", order.getId());
 
         // Update the robot's currentOrderId to this new order's ID
         robot.setCurrentOrderId(order.getId());
-        robotRepository.save(robot);
+        phase(OrderPhaseEvent.SAVE_ROBOT, orderDTO, order.getId(), () -> {
+            try {
+                return mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.save(robot));
+            } catch (OptimisticLockingFailureException e) {
+                // Another node changed the robot since we read it; drop the order so the retry starts clean
+                mongoGuard.write(MongoGuard.ORDERS, () -> orderRepository.delete(order));
+                throw e;
+            }
+        });
         logger.debug("Robot {} updated with new order ID {}", robot.getId(), order.getId());
+        resourceVersions.bump(ResourceVersions.ORDERS);
+        resourceVersions.bump(ResourceVersions.ROBOTS);
+        orderColumnStore.upsert(order);
+        hotKeyService.recordOrderCreated(order.getItemId());
 
-        return new OrderDTO(
+        OrderDTO created = new OrderDTO(
                 order.getId(),
                 order.getRobotId(),
                 order.getStatus(),
@@ -124,16 +228,34 @@ public class OrderService {
                 order.getQuantity(),
                 order.getLocation()
         );
+        lifecyclePipeline.publishOrder(OrderEventType.CREATED, order, created);
+        return created;
+    }
+
+    private static <T> T phase(String phase, OrderDTO orderDTO, String orderId, Supplier<T> step) {
+        OrderPhaseEvent event = new OrderPhaseEvent(phase, orderDTO.getRobotId(), orderDTO.getItemId(), orderId);
+        event.begin();
+        try {
+            return step.get();
+        } finally {
+            event.commit();
+        }
     }
 
     public OrderDTO updateOrderStatus(String id, String status) {
-        logger.info("Updating order {} status to {}", id, status);
+        logger.debug("Updating order {} status to {}", id, status);
 
-        OrderEntity order = orderRepository.findById(id)
-                .orElseThrow(() -> {
-                    logger.error("Order with ID {} not found for update", id);
-                    return new EntityNotFoundException("Order with ID " + id + " not found");
-                });
+        String robotId = findOrderForUpdate(id).getRobotId();
+        return stripedLockManager.withLocks(() -> doUpdateOrderStatus(id, status), StripedLockManager.robotKey(robotId));
+    }
+
+    private OrderDTO doUpdateOrderStatus(String id, String status) {
+        OrderStatusEvent statusEvent = new OrderStatusEvent();
+        statusEvent.begin();
+        // Read again under the robot's lock so the status applies to the latest state
+        OrderEntity order = findOrderForUpdate(id);
+        leaseManager.requireOwnership(order.getRobotId());
+        OrderStatus previousStatus = order.getStatus();
 
         try {
             order.setStatus(OrderStatus.valueOf(status.toUpperCase()));
@@ -146,8 +268,23 @@ public class OrderService {
             order.setCompletedAt(LocalDateTime.now());
         }
 
-        orderRepository.save(order);
-        logger.info("Order {} updated to status {}", id, status);
+        mongoGuard.write(MongoGuard.ORDERS, () -> orderRepository.save(order));
+        resourceVersions.bump(ResourceVersions.ORDERS);
+        orderColumnStore.upsert(order);
+        if (order.getStatus() == OrderStatus.COMPLETED && previousStatus != OrderStatus.COMPLETED) {
+            hotKeyService.recordOrderCompleted(order.getRobotId());
+            if (order.getCreatedAt() != null) {
+                cycleTimeAnalytics.record(order.getRobotId(), order.getItemId(),
+                        Duration.between(order.getCreatedAt(), order.getCompletedAt()));
+            }
+        }
+        lifecyclePipeline.publishOrder(OrderEventType.STATUS_CHANGED, order, null);
+        if (statusEvent.shouldCommit()) {
+            statusEvent.set(id, order.getRobotId(), String.valueOf(previousStatus), order.getStatus().name(),
+                    order.getCreatedAt() == null ? 0 : Duration.between(order.getCreatedAt(), LocalDateTime.now()).toMillis());
+            statusEvent.commit();
+        }
+        sampledLogger.info("order.status", "Order {} updated to status {}", id, status);
 
         return new OrderDTO(
                 order.getId(),
@@ -159,39 +296,46 @@ public class OrderService {
         );
     }
 
+    private OrderEntity findOrderForUpdate(String id) {
+        return mongoGuard.write(MongoGuard.ORDERS, () -> orderRepository.findById(id))
+                .orElseThrow(() -> {
+                    logger.error("Order with ID {} not found for update", id);
+                    return new EntityNotFoundException("Order with ID " + id + " not found");
+                });
+    }
+
     public void deleteOrder(String id) {
-        logger.info("Deleting order with ID: {}", id);
+        logger.debug("Deleting order with ID: {}", id);
 
-        OrderEntity order = orderRepository.findById(id)
+        OrderEntity order = mongoGuard.write(MongoGuard.ORDERS, () -> orderRepository.findById(id))
                 .orElseThrow(() -> {
                     logger.error("Order with ID {} not found for deletion", id);
                     return new EntityNotFoundException("Order with ID " + id + " not found");
                 });
 
-        orderRepository.delete(order);
-        logger.info("Order {} successfully deleted", id);
+        mongoGuard.write(MongoGuard.ORDERS, () -> orderRepository.delete(order));
+        resourceVersions.bump(ResourceVersions.ORDERS);
+        orderColumnStore.remove(id);
+        lifecyclePipeline.publishOrder(OrderEventType.DELETED, order, null);
+        sampledLogger.info("order.deleted", "Order {} successfully deleted", id);
     }
 
     public boolean hasActiveOrderForRobot(String robotId) {
-        logger.info("Checking if robot {} has an active order...", robotId);
-        return orderRepository.findAll().stream()
-                .anyMatch(order -> order.getRobotId().equals(robotId) &&
-                        (order.getStatus().equals(OrderStatus.IN_PROGRESS) || order.getStatus().equals(OrderStatus.PENDING))
-                );
+        logger.debug("Checking if robot {} has an active order...", robotId);
+        return mongoGuard.read(MongoGuard.ORDERS, "activeOrder:" + robotId,
+                () -> orderRepository.existsByRobotIdAndStatusIn(robotId, ACTIVE));
     }
 
 
     public int countCompletedOrders() {
-        logger.info("Counting completed orders...");
-        return (int) orderRepository.findAll().stream()
-                .filter(order -> order.getStatus().equals(OrderStatus.COMPLETED))
-                .count();
+        logger.debug("Counting completed orders...");
+        return mongoGuard.read(MongoGuard.ORDERS, "orderStats:completed", () -> (int) orderRepository.countByStatus(OrderStatus.COMPLETED),
+                load -> singleFlight.execute(ResourceVersions.ORDERS, "orderStats:completed", load));
     }
 
     public int countCanceledOrders() {
-        logger.info("Counting canceled orders...");
-        return (int) orderRepository.findAll().stream()
-                .filter(order -> order.getStatus().equals(OrderStatus.CANCELED))
-                .count();
+        logger.debug("Counting canceled orders...");
+        return mongoGuard.read(MongoGuard.ORDERS, "orderStats:canceled", () -> (int) orderRepository.countByStatus(OrderStatus.CANCELED),
+                load -> singleFlight.execute(ResourceVersions.ORDERS, "orderStats:canceled", load));
     }
 }
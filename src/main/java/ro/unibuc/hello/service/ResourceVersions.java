@@ -0,0 +1,117 @@
+package ro.unibuc.hello.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.cluster.LeaseManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Strong ETags for REST resources. A single document's tag comes from its version; a collection's tag comes
+ * from a counter that services bump after every write to it, so a list GET can be answered with 304 before
+ * touching Mongo. The boot time is part of the tag, so counters restarting at zero never repeat an old tag.
+ *
+ * <p>With cluster leases enabled every bump is also counted in {@code collection_versions}, and the shared
+ * counts are polled every {@code etag.cluster-refresh-ms}, so another replica's write changes the tag here
+ * within that interval.
+ */
+@Component
+public class ResourceVersions {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceVersions.class);
+
+    public static final String ROBOTS = "robots";
+    public static final String ORDERS = "orders";
+    public static final String INVENTORY = "inventory";
+
+    private static final String SHARED_COLLECTION = "collection_versions";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> local = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> shared = Map.of();
+
+    public void bump(String collection) {
+        local.computeIfAbsent(collection, key -> new AtomicLong()).incrementAndGet();
+        if (leaseManager != null && leaseManager.isEnabled()) {
+            try {
+                mongoTemplate.upsert(new Query(where("_id").is(collection)), new Update().inc("version", 1L), SHARED_COLLECTION);
+            } catch (RuntimeException e) {
+                // The local counter already moved, so this replica's own clients still see the change
+                logger.warn("Could not count a {} write in {}: {}", collection, SHARED_COLLECTION, e.getMessage());
+            }
+        }
+    }
+
+    /** Number of writes to {@code collection} made on this replica since it started. */
+    public long localVersion(String collection) {
+        AtomicLong counter = local.get(collection);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /** Tag of a whole collection; a non-null {@code variant} distinguishes representations such as sparse fieldsets. */
+    public String collectionTag(String collection, Collection<String> variant) {
+        String tag = collection + "-" + epoch + "-" + localVersion(collection) + "-" + shared.getOrDefault(collection, 0L);
+        return variant == null ? quote(tag) : quote(tag + "-" + checksum(String.join(",", variant)));
+    }
+
+    public static String documentTag(String type, String id, Long version) {
+        return version == null ? null : quote(type + "-" + id + "-v" + version);
+    }
+
+    /** For documents without a version field: a checksum of the fields the representation exposes. */
+    public static String contentTag(String type, String id, Object... fields) {
+        StringBuilder content = new StringBuilder();
+        for (Object field : fields) {
+            content.append(Objects.toString(field, "\u0000")).append('\u0001');
+        }
+        return quote(type + "-" + id + "-" + checksum(content.toString()));
+    }
+
+    @Scheduled(fixedDelayString = "${etag.cluster-refresh-ms:1000}")
+    public void refreshShared() {
+        if (leaseManager == null || !leaseManager.isEnabled()) {
+            return;
+        }
+        try {
+            Map<String, Long> versions = new HashMap<>();
+            for (Document document : mongoTemplate.findAll(Document.class, SHARED_COLLECTION)) {
+                versions.put(document.getString("_id"), ((Number) document.get("version")).longValue());
+            }
+            shared = versions;
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh {}: {}", SHARED_COLLECTION, e.getMessage());
+        }
+    }
+
+    private static String checksum(String value) {
+        CRC32C crc = new CRC32C();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static String quote(String tag) {
+        return '"' + tag + '"';
+    }
+}
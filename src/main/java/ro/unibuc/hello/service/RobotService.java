@@ -1,71 +1,136 @@
 package ro.unibuc.hello.service;
 
+import io.micrometer.observation.annotation.Observed;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
+import ro.unibuc.hello.cluster.LeaseManager;
 import ro.unibuc.hello.data.RobotEntity;
 import ro.unibuc.hello.data.RobotRepository;
 import ro.unibuc.hello.data.RobotStatus;
 import ro.unibuc.hello.dto.RobotDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.pipeline.LifecycleEventType;
+import ro.unibuc.hello.pipeline.LifecyclePipeline;
+import ro.unibuc.hello.resilience.MongoGuard;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@Observed(name = "hello.service")
 public class RobotService {
 
     private static final Set<String> ALLOWED_STATUSES = Set.of("ACTIVE", "INACTIVE", "IN_PROGRESS", "IDLE", "COMPLETED", "ERROR");
+    private static final Set<String> ROBOT_FIELDS = Set.of("id", "status", "currentOrderId", "completedOrders", "errors");
 
 
     @Autowired
     private RobotRepository robotRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LifecyclePipeline lifecyclePipeline;
+
+    @Autowired
+    private StripedLockManager stripedLockManager;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Autowired
+    private ExistenceFilter existenceFilter;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private MongoGuard mongoGuard;
+
     public List<RobotDTO> getAllRobots() {
-        List<RobotEntity> entities = robotRepository.findAll();
-        return entities.stream()
+        return mongoGuard.read(MongoGuard.ROBOTS, "robots", () -> robotRepository.findAllSummaries().stream()
                 .map(entity -> new RobotDTO(
                         entity.getId(), 
                         entity.getStatus(), 
                         entity.getCurrentOrderId(), 
                         entity.getCompletedOrders(), 
                         entity.getErrors()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    public List<Map<String, Object>> getAllRobots(Collection<String> fields) {
+        Set<String> selected = SparseFieldset.select(fields, ROBOT_FIELDS);
+        return mongoGuard.read(MongoGuard.ROBOTS, "robots:" + selected, () ->
+                mongoTemplate.find(SparseFieldset.query(selected), Document.class, "robots").stream()
+                        .map(document -> SparseFieldset.toMap(document, selected))
+                        .collect(Collectors.toList()));
     }
 
     public RobotDTO getRobotById(String id) throws EntityNotFoundException {
+        if (!existenceFilter.mightContainRobot(id)) {
+            throw new EntityNotFoundException("Robot with ID " + id + " not found");
+        }
+        return mongoGuard.read(MongoGuard.ROBOTS, "robot:" + id, () -> loadRobot(id),
+                load -> singleFlight.execute(ResourceVersions.ROBOTS, "robot:" + id, load));
+    }
+
+    private RobotDTO loadRobot(String id) {
         RobotEntity entity = robotRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Robot with ID " + id + " not found"));
-        return new RobotDTO(
+        RobotDTO robot = new RobotDTO(
                 entity.getId(), 
                 entity.getStatus(), 
                 entity.getCurrentOrderId(), 
                 entity.getCompletedOrders(), 
                 entity.getErrors());
+        robot.setVersion(entity.getVersion());
+        return robot;
     }
 
     public RobotDTO createRobot(RobotDTO robotDTO) {
         validateRobot(robotDTO);
+        return doCreateRobot(robotDTO);
+    }
 
+    private RobotDTO doCreateRobot(RobotDTO robotDTO) {
         RobotEntity robot = new RobotEntity(
                 robotDTO.getStatus(),
                 robotDTO.getCurrentOrderId(),
                 robotDTO.getCompletedOrders(),
                 robotDTO.getErrors()
         );
-        robotRepository.save(robot);
-        return new RobotDTO(
+        mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.save(robot));
+        existenceFilter.addRobot(robot.getId());
+        resourceVersions.bump(ResourceVersions.ROBOTS);
+        RobotDTO created = new RobotDTO(
                 robot.getId(), 
                 robot.getStatus(), 
                 robot.getCurrentOrderId(), 
                 robot.getCompletedOrders(), 
                 robot.getErrors());
+        lifecyclePipeline.publishRobot(LifecycleEventType.ROBOT_CREATED, created);
+        return created;
     }
 
     public RobotDTO updateRobotStatus(String id, String newStatus) throws EntityNotFoundException {
-        RobotEntity robot = robotRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Robot with ID " + id + " not found"));
+        return stripedLockManager.withLocks(
+                () -> stripedLockManager.retryOnConflict("updateRobotStatus", () -> doUpdateRobotStatus(id, newStatus)),
+                StripedLockManager.robotKey(id));
+    }
+
+    private RobotDTO doUpdateRobotStatus(String id, String newStatus) {
+        RobotEntity robot = findRobotForUpdate(id);
+        leaseManager.fence(robot);
 
         if ("IN_PROGRESS".equalsIgnoreCase(newStatus)) {
             if (robot.getCurrentOrderId() == null || robot.getCurrentOrderId().isBlank()) {
@@ -78,24 +143,34 @@ public class RobotService {
 
         robot.setStatus(newStatus);
         robot.setLastUpdatedAt(java.time.LocalDateTime.now());
-        robotRepository.save(robot);
-        return new RobotDTO(
+        mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.save(robot));
+        resourceVersions.bump(ResourceVersions.ROBOTS);
+        RobotDTO updated = new RobotDTO(
                 robot.getId(), 
                 robot.getStatus(), 
                 robot.getCurrentOrderId(), 
                 robot.getCompletedOrders(), 
                 robot.getErrors());
+        lifecyclePipeline.publishRobot(LifecycleEventType.ROBOT_STATUS_CHANGED, updated);
+        return updated;
     }
 
     public RobotDTO updateCompletedOrders(String id, Integer completedOrders) throws EntityNotFoundException {
         if (completedOrders == null || completedOrders < 0) {
             throw new ValidationException("Completed orders cannot be negative");
         }
-        RobotEntity robot = robotRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Robot with ID " + id + " not found"));
+        return stripedLockManager.withLocks(
+                () -> stripedLockManager.retryOnConflict("updateCompletedOrders", () -> doUpdateCompletedOrders(id, completedOrders)),
+                StripedLockManager.robotKey(id));
+    }
+
+    private RobotDTO doUpdateCompletedOrders(String id, Integer completedOrders) {
+        RobotEntity robot = findRobotForUpdate(id);
+        leaseManager.fence(robot);
         robot.setCompletedOrders(completedOrders);
         robot.setLastUpdatedAt(java.time.LocalDateTime.now());
-        robotRepository.save(robot);
+        mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.save(robot));
+        resourceVersions.bump(ResourceVersions.ROBOTS);
         return new RobotDTO(
                 robot.getId(), 
                 robot.getStatus(), 
@@ -105,11 +180,26 @@ public class RobotService {
     }
 
     public void deleteRobot(String id) throws EntityNotFoundException {
-        RobotEntity robot = robotRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Robot with ID " + id + " not found"));
-        robotRepository.delete(robot);
+        doDeleteRobot(id);
+    }
+
+    private void doDeleteRobot(String id) {
+        RobotEntity robot = findRobotForUpdate(id);
+        leaseManager.fence(robot);
+        mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.delete(robot));
+        resourceVersions.bump(ResourceVersions.ROBOTS);
+        lifecyclePipeline.publishRobot(LifecycleEventType.ROBOT_DELETED, new RobotDTO(
+                robot.getId(), 
+                robot.getStatus(), 
+                robot.getCurrentOrderId(), 
+                robot.getCompletedOrders(), 
+                robot.getErrors()));
     }
 
+    private RobotEntity findRobotForUpdate(String id) {
+        return mongoGuard.write(MongoGuard.ROBOTS, () -> robotRepository.findById(id))
+                .orElseThrow(() -> new EntityNotFoundException("Robot with ID " + id + " not found"));
+    }
 
     private void validateRobot(RobotDTO robotDTO) {
         // Verify that the provided status is allowed
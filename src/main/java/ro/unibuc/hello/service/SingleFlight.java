@@ -0,0 +1,124 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical reads. The first caller for a key runs the load on its own thread while
+ * later callers for the same key wait for its result instead of issuing their own query. The key is
+ * released as soon as the load finishes, so nothing is cached: a caller arriving afterwards loads again.
+ *
+ * <p>A waiter that times out loads on its own rather than failing, and a failed load fails every waiter.
+ *
+ * <p>Reads keep seeing their own writes: a caller only joins a load that started after the latest write to the
+ * collection made on this replica (as counted by {@link ResourceVersions}). A load started before that write
+ * may have read the old document, so the caller loads again instead. Writes made on another replica are not
+ * tracked here.
+ */
+@Component
+public class SingleFlight {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${singleflight.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${singleflight.timeout-ms:2000}")
+    private long timeoutMs = 2000;
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String collection, String key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Flight call = new Flight(localVersion(collection));
+        Flight leader = inFlight.putIfAbsent(key, call);
+        // A load started before this caller's latest write could hand it the old document
+        while (leader != null && leader.version < call.version) {
+            leader = inFlight.replace(key, leader, call) ? null : inFlight.putIfAbsent(key, call);
+        }
+        if (leader == null) {
+            count(key, "leader");
+            try {
+                T result = loader.get();
+                call.result.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                call.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, call);
+            }
+        }
+
+        count(key, "coalesced");
+        try {
+            return (T) leader.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count(key, "timeout");
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private long localVersion(String collection) {
+        // Tests spy on a plain instance without the versions bean
+        return resourceVersions == null ? 0 : resourceVersions.localVersion(collection);
+    }
+
+    private void count(String key, String result) {
+        // Tests spy on a plain instance without a registry
+        if (meterRegistry == null) {
+            return;
+        }
+        int separator = key.indexOf(':');
+        String name = separator < 0 ? key : key.substring(0, separator);
+        counters.computeIfAbsent(name + ':' + result, meter -> Counter.builder("singleflight.calls")
+                .description("Reads that loaded from Mongo (leader), shared another caller's load (coalesced) or gave up waiting (timeout)")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry))
+                .increment();
+    }
+
+    private static class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final long version;
+
+        private Flight(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ro.unibuc.hello.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Query;
+import ro.unibuc.hello.exception.ValidationException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates a {@code ?fields=} selection into a Mongo projection and maps the raw documents back to
+ * maps keyed by DTO property names, so only the requested fields are read, decoded and serialized.
+ */
+final class SparseFieldset {
+
+    private SparseFieldset() {}
+
+    static Set<String> select(Collection<String> requested, Set<String> allowed) {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : requested) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new ValidationException("Unknown field: " + name + ". Allowed fields: " + allowed);
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new ValidationException("At least one field must be selected");
+        }
+        return selected;
+    }
+
+    static Query query(Set<String> selected) {
+        Query query = new Query();
+        for (String field : selected) {
+            query.fields().include("id".equals(field) ? "_id" : field);
+        }
+        if (!selected.contains("id")) {
+            query.fields().exclude("_id");
+        }
+        return query;
+    }
+
+    static Map<String, Object> toMap(Document document, Set<String> selected) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : selected) {
+            Object value = document.get("id".equals(field) ? "_id" : field);
+            values.put(field, value instanceof ObjectId ? ((ObjectId) value).toHexString() : value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,400 @@
+package ro.unibuc.hello.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.data.InventoryRepository;
+import ro.unibuc.hello.data.StockLedgerEntry;
+import ro.unibuc.hello.data.StockOperation;
+import ro.unibuc.hello.data.StockSnapshotEntity;
+import ro.unibuc.hello.dto.InventoryDTO;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.InsufficientStockException;
+import ro.unibuc.hello.exception.StoreUnavailableException;
+import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.resilience.MongoGuard;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Applies stock deltas with an atomic {@code $inc} and keeps an append-only ledger of every change.
+ * Each ledger entry is written in the same update as the stock change, into the item's {@code pendingLedger},
+ * and later moved to {@code stock_ledger} in batches; entry ids are fixed when the entry is created, so a
+ * move that is retried after a crash or a partial failure never stores an entry twice. Snapshots fold old
+ * entries so rebuilding an item's stock only reads the entries written after its latest snapshot. An item that collects
+ * {@code max-entries-per-snapshot} entries is queued for the next due-compaction run rather than compacted on
+ * the writing thread, and stays queued until a snapshot folds enough of them.
+ */
+@Service
+@Observed(name = "hello.service")
+public class StockLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedgerService.class);
+
+    private static final int MAX_STOCK = 100000;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private MongoGuard mongoGuard;
+
+    // Items whose pending entries are moved per round trip
+    @Value("${inventory.ledger.batch-size:500}")
+    private int batchSize = 500;
+
+    // Writes to an item are refused while this many of its entries are still waiting to be moved
+    @Value("${inventory.ledger.max-pending-per-item:1000}")
+    private int maxPendingPerItem = 1000;
+
+    @Value("${inventory.ledger.max-entries-per-snapshot:1000}")
+    private int maxEntriesPerSnapshot = 1000;
+
+    // Entries younger than this are left out of snapshots, so writes still in flight on other nodes are never skipped
+    @Value("${inventory.ledger.compaction-grace-ms:5000}")
+    private long compactionGraceMs = 5000;
+
+    // Only a hint for the next flush: the entries themselves are stored on the items
+    private final Set<String> pendingItems = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> entriesSinceSnapshot = new ConcurrentHashMap<>();
+    private final Set<String> dueForCompaction = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile ObjectId compactionWatermark;
+
+    public InventoryDTO applyDelta(String itemId, StockOperation operation, int quantity) {
+        int delta = switch (operation) {
+            case RECEIVE -> requirePositive(quantity);
+            case PICK -> -requirePositive(quantity);
+            case ADJUST -> {
+                if (quantity == 0) {
+                    throw new ValidationException("Stock adjustment cannot be zero");
+                }
+                yield quantity;
+            }
+        };
+
+        Criteria criteria = where("_id").is(itemId).and("pendingLedger." + (maxPendingPerItem - 1)).exists(false);
+        if (delta < 0) {
+            criteria.and("stock").gte(-delta);
+        } else {
+            criteria.and("stock").lte(MAX_STOCK - delta);
+        }
+
+        Update update = new Update().inc("stock", delta).inc("version", 1).push("pendingLedger", newEntry(itemId, operation, delta));
+        InventoryEntity updated = mongoGuard.write(MongoGuard.INVENTORY, () -> mongoTemplate.findAndModify(new Query(criteria),
+                update, FindAndModifyOptions.options().returnNew(true), InventoryEntity.class));
+        if (updated == null) {
+            InventoryEntity current = mongoGuard.write(MongoGuard.INVENTORY, () -> inventoryRepository.findById(itemId))
+                    .orElseThrow(() -> new EntityNotFoundException("Inventory item with ID " + itemId + " not found"));
+            requireLedgerCapacity(current);
+            if (delta < 0) {
+                throw new InsufficientStockException(itemId, current.getStock(), -delta);
+            }
+            throw new ValidationException("Stock cannot exceed 100,000 units");
+        }
+
+        resourceVersions.bump(ResourceVersions.INVENTORY);
+        pendingItems.add(itemId);
+        return new InventoryDTO(updated.getItemId(), updated.getName(), updated.getStock(), updated.getThreshold());
+    }
+
+    /**
+     * Adds the ledger entry for a stock change to the item before it is saved, so the entry is stored in the
+     * same write. Call {@link #written(String)} once the save succeeded.
+     */
+    public void attachEntry(InventoryEntity item, StockOperation operation, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        requireLedgerCapacity(item);
+        if (item.getPendingLedger() == null) {
+            item.setPendingLedger(new ArrayList<>());
+        }
+        item.getPendingLedger().add(newEntry(item.getItemId(), operation, delta));
+    }
+
+    public void written(String itemId) {
+        pendingItems.add(itemId);
+    }
+
+    public InventoryDTO rebuildStock(String itemId) {
+        flush();
+        InventoryEntity item = inventoryRepository.findById(itemId)
+                .orElseThrow(() -> new EntityNotFoundException("Inventory item with ID " + itemId + " not found"));
+
+        StockSnapshotEntity snapshot = mongoTemplate.findById(itemId, StockSnapshotEntity.class);
+        int stock = snapshot != null ? snapshot.getStock() : 0;
+        Set<String> counted = new HashSet<>();
+        for (StockLedgerEntry entry : findEntriesAfter(itemId, snapshot, null)) {
+            stock += entry.getDelta();
+            counted.add(entry.getId());
+        }
+        // Entries the flush could not move yet; one already folded into the snapshot is not counted again
+        ObjectId folded = snapshot != null && snapshot.getLastEntryId() != null ? new ObjectId(snapshot.getLastEntryId()) : null;
+        for (StockLedgerEntry entry : pendingEntries(item)) {
+            if ((folded == null || new ObjectId(entry.getId()).compareTo(folded) > 0) && counted.add(entry.getId())) {
+                stock += entry.getDelta();
+            }
+        }
+        return new InventoryDTO(item.getItemId(), item.getName(), stock, item.getThreshold());
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.compaction-interval-ms:60000}")
+    public void compact() {
+        // Picks up entries left behind by a replica that stopped before moving them
+        Query stranded = new Query(where("pendingLedger._id").exists(true));
+        stranded.fields().include("_id");
+        mongoTemplate.find(stranded, InventoryEntity.class).forEach(item -> pendingItems.add(item.getItemId()));
+        flush();
+        ObjectId cutoff = compactionCutoff();
+        Query changed = new Query();
+        if (compactionWatermark != null) {
+            changed.addCriteria(where("_id").gte(compactionWatermark));
+        }
+        List<String> itemIds = mongoTemplate.findDistinct(changed, "itemId", StockLedgerEntry.class, String.class);
+        itemIds.forEach(itemId -> compactItem(itemId, cutoff));
+        compactionWatermark = cutoff;
+        logger.debug("Stock ledger compaction folded entries for {} items", itemIds.size());
+    }
+
+    // Items past the per-snapshot limit, folded as soon as their entries are older than the grace period
+    @Scheduled(fixedDelayString = "${inventory.ledger.due-compaction-interval-ms:1000}")
+    public void compactDue() {
+        if (dueForCompaction.isEmpty()) {
+            return;
+        }
+        ObjectId cutoff = compactionCutoff();
+        for (String itemId : dueForCompaction) {
+            try {
+                compactItem(itemId, cutoff);
+            } catch (RuntimeException e) {
+                logger.warn("Stock ledger compaction of {} failed, retrying on the next run: {}", itemId, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Must be called with flushLock held
+    private void drain() {
+        // Marked again only after the pass, so an item that keeps failing is not retried within it
+        Set<String> retry = new HashSet<>();
+        Iterator<String> items = pendingItems.iterator();
+        while (items.hasNext()) {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (items.hasNext() && batch.size() < batchSize) {
+                batch.add(items.next());
+                // Removed before the item is read, so an entry added meanwhile marks it again
+                items.remove();
+            }
+            try {
+                moveEntries(batch, retry);
+            } catch (RuntimeException e) {
+                logger.error("Failed to move stock ledger entries of {} items, retrying on the next flush", batch.size(), e);
+                retry.addAll(batch);
+                break;
+            }
+        }
+        pendingItems.addAll(retry);
+    }
+
+    private void moveEntries(List<String> itemIds, Set<String> retry) {
+        Query query = new Query(where("_id").in(itemIds).and("pendingLedger._id").exists(true));
+        query.fields().include("stock").include("pendingLedger");
+        List<InventoryEntity> items = mongoTemplate.find(query, InventoryEntity.class);
+        List<StockLedgerEntry> entries = new ArrayList<>();
+        for (InventoryEntity item : items) {
+            // Every stock change adds an entry, so the pending entries end at the item's current stock
+            int stockAfter = item.getStock() != null ? item.getStock() : 0;
+            List<StockLedgerEntry> pending = pendingEntries(item);
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                pending.get(i).setStockAfter(stockAfter);
+                stockAfter -= pending.get(i).getDelta();
+            }
+            entries.addAll(pending);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Set<String> failed = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockLedgerEntry.class);
+        inserts.insert(entries);
+        try {
+            inserts.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                // A duplicate was moved by an earlier attempt or by another replica
+                (error.getCode() == DUPLICATE_KEY ? duplicates : failed).add(entries.get(error.getIndex()).getId());
+            }
+            if (!failed.isEmpty()) {
+                logger.error("Failed to write {} stock ledger entries, retrying on the next flush: {}", failed.size(), e.getMessage());
+            }
+        }
+
+        BulkOperations pulls = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryEntity.class);
+        boolean pulling = false;
+        for (InventoryEntity item : items) {
+            List<ObjectId> moved = new ArrayList<>();
+            int inserted = 0;
+            for (StockLedgerEntry entry : pendingEntries(item)) {
+                if (failed.contains(entry.getId())) {
+                    retry.add(item.getItemId());
+                    continue;
+                }
+                moved.add(new ObjectId(entry.getId()));
+                if (!duplicates.contains(entry.getId())) {
+                    inserted++;
+                }
+            }
+            if (!moved.isEmpty()) {
+                pulls.updateOne(new Query(where("_id").is(item.getItemId())),
+                        new Update().pull("pendingLedger", new Document("_id", new Document("$in", moved))));
+                pulling = true;
+            }
+            if (inserted > 0) {
+                int count = entriesSinceSnapshot.computeIfAbsent(item.getItemId(), id -> new AtomicInteger()).addAndGet(inserted);
+                if (count >= maxEntriesPerSnapshot) {
+                    dueForCompaction.add(item.getItemId());
+                }
+            }
+        }
+        if (pulling) {
+            pulls.execute();
+        }
+    }
+
+    private void compactItem(String itemId, ObjectId cutoff) {
+        // Entries still waiting on the item may be older than the cutoff, so the snapshot must stop before them
+        Query pendingQuery = new Query(where("_id").is(itemId));
+        pendingQuery.fields().include("pendingLedger");
+        InventoryEntity item = mongoTemplate.findOne(pendingQuery, InventoryEntity.class);
+        ObjectId before = cutoff;
+        for (StockLedgerEntry entry : pendingEntries(item)) {
+            ObjectId id = new ObjectId(entry.getId());
+            if (id.compareTo(before) < 0) {
+                before = id;
+            }
+        }
+
+        StockSnapshotEntity snapshot = mongoTemplate.findById(itemId, StockSnapshotEntity.class);
+        List<StockLedgerEntry> entries = findEntriesAfter(itemId, snapshot, before);
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        int stock = snapshot != null ? snapshot.getStock() : 0;
+        for (StockLedgerEntry entry : entries) {
+            stock += entry.getDelta();
+        }
+        mongoTemplate.save(new StockSnapshotEntity(itemId, stock, entries.get(entries.size() - 1).getId()));
+        folded(itemId, entries.size());
+    }
+
+    // The count only covers entries written here, so entries other nodes wrote may take it below zero
+    private void folded(String itemId, int entries) {
+        AtomicInteger count = entriesSinceSnapshot.get(itemId);
+        int remaining = count == null ? 0 : count.updateAndGet(current -> Math.max(0, current - entries));
+        if (remaining < maxEntriesPerSnapshot) {
+            dueForCompaction.remove(itemId);
+        }
+    }
+
+    private List<StockLedgerEntry> findEntriesAfter(String itemId, StockSnapshotEntity snapshot, ObjectId before) {
+        Criteria idRange = where("_id");
+        boolean bounded = false;
+        if (snapshot != null && snapshot.getLastEntryId() != null) {
+            idRange.gt(new ObjectId(snapshot.getLastEntryId()));
+            bounded = true;
+        }
+        if (before != null) {
+            idRange.lt(before);
+            bounded = true;
+        }
+
+        Query query = new Query(where("itemId").is(itemId)).with(Sort.by("_id"));
+        if (bounded) {
+            query.addCriteria(idRange);
+        }
+        query.fields().include("_id").include("delta");
+        return mongoTemplate.find(query, StockLedgerEntry.class);
+    }
+
+    private StockLedgerEntry newEntry(String itemId, StockOperation operation, int delta) {
+        // The stock after the change is filled in when the entry is moved
+        return new StockLedgerEntry(new ObjectId().toHexString(), itemId, operation, delta, 0);
+    }
+
+    private void requireLedgerCapacity(InventoryEntity item) {
+        if (pendingEntries(item).size() >= maxPendingPerItem) {
+            throw new StoreUnavailableException(MongoGuard.INVENTORY,
+                    "stock ledger entries of " + item.getItemId() + " are not being written", 1, null);
+        }
+    }
+
+    private static List<StockLedgerEntry> pendingEntries(InventoryEntity item) {
+        return item == null || item.getPendingLedger() == null ? List.of() : item.getPendingLedger();
+    }
+
+    private ObjectId compactionCutoff() {
+        long seconds = Instant.now().minusMillis(compactionGraceMs).getEpochSecond();
+        return new ObjectId(String.format("%08x0000000000000000", seconds));
+    }
+
+    private static int requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new ValidationException("Quantity must be greater than 0");
+        }
+        return quantity;
+    }
+}
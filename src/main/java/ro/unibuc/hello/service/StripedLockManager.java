@@ -0,0 +1,127 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes mutations of the same robot or inventory item inside this JVM. Keys hash onto a fixed set of
+ * lock stripes, so unrelated entities almost never wait on each other, and a caller locking several keys
+ * always takes the stripes in index order, so two callers cannot deadlock. Other nodes are kept out by the
+ * {@code @Version} fields on the entities; {@link #retryOnConflict} reruns an action when one of them won.
+ */
+@Component
+public class StripedLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedLockManager.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${locks.optimistic.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private Counter contended;
+    private Timer waitTimer;
+
+    public StripedLockManager(@Value("${locks.stripes:256}") int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        contended = Counter.builder("locks.contended")
+                .description("Lock acquisitions that had to wait for another thread")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("locks.wait")
+                .description("Time spent waiting for a contended entity lock")
+                .register(meterRegistry);
+    }
+
+    public static String robotKey(String robotId) {
+        return "robot:" + robotId;
+    }
+
+    public static String itemKey(String itemId) {
+        return "item:" + itemId;
+    }
+
+    public <T> T withLocks(Supplier<T> action, String... keys) {
+        int[] indexes = stripeIndexes(keys);
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                acquire(stripes[index]);
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /** Runs the action again, up to the configured attempts, when it lost an optimistic version check. */
+    public <T> T retryOnConflict(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    count("locks.optimistic.failures", operation);
+                    throw e;
+                }
+                count("locks.optimistic.retries", operation);
+                logger.debug("Version conflict in {}, retrying (attempt {})", operation, attempt + 1);
+            }
+        }
+    }
+
+    private void acquire(ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        if (contended != null) {
+            contended.increment();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void count(String name, String operation) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(name, "operation", operation).increment();
+        }
+    }
+
+    private int[] stripeIndexes(String[] keys) {
+        int[] indexes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int hash = keys[i].hashCode();
+            indexes[i] = (hash ^ (hash >>> 16)) & mask;
+        }
+        Arrays.sort(indexes);
+        return Arrays.stream(indexes).distinct().toArray();
+    }
+}
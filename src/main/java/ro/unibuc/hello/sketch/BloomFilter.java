@@ -0,0 +1,75 @@
+package ro.unibuc.hello.sketch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32C;
+
+/**
+ * Bloom filter over string keys, sized for an expected number of keys and false-positive rate. A negative
+ * answer is definite; a positive one may be wrong with roughly the configured probability while the filter
+ * holds no more than the expected keys. Bits are set with CAS, so adds and lookups need no lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Bloom filter needs positive expected keys and a rate in (0, 1)");
+        }
+        long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+        this.bits = (long) words.length() * 64;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * Math.log(2)));
+    }
+
+    public void add(String key) {
+        long h1 = hash1(key);
+        long h2 = hash2(key, h1);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h1 = hash1(key);
+        long h2 = hash2(key, h1);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBits() { return bits; }
+
+    public int getHashes() { return hashes; }
+
+    private static long hash1(String key) {
+        long value = key.hashCode();
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    // A second, independent hash keeps keys with equal hashCode() from always colliding
+    private static long hash2(String key, long h1) {
+        CRC32C crc = new CRC32C();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        long value = crc.getValue() ^ (h1 << 32);
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 29;
+        return value | 1;
+    }
+}
@@ -0,0 +1,94 @@
+package ro.unibuc.hello.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over string keys. Estimates never undercount and overcount by at most
+ * {@code e / width} of the total added, with probability {@code 1 - e^-depth}. Counters are updated with
+ * atomic adds, so any number of threads can add concurrently. Sketches of equal shape merge by adding counters.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Sketch depth and width must be positive");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new AtomicLongArray(depth * width);
+    }
+
+    public static CountMinSketch fromBytes(int depth, int width, byte[] bytes) {
+        CountMinSketch sketch = new CountMinSketch(depth, width);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.remaining() != depth * width * Long.BYTES) {
+            throw new IllegalArgumentException("Sketch of " + bytes.length + " bytes does not match " + depth + "x" + width);
+        }
+        for (int i = 0; i < depth * width; i++) {
+            sketch.counters.set(i, buffer.getLong());
+        }
+        return sketch;
+    }
+
+    public void add(String key, long count) {
+        long h1 = mix(key.hashCode());
+        long h2 = mix(h1) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters.getAndAdd(row * width + column(h1, h2, row), count);
+        }
+    }
+
+    public long estimate(String key) {
+        long h1 = mix(key.hashCode());
+        long h2 = mix(h1) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(row * width + column(h1, h2, row)));
+        }
+        return min;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width
+                    + " sketch into a " + depth + "x" + width + " one");
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            long value = other.counters.get(i);
+            if (value != 0) {
+                counters.getAndAdd(i, value);
+            }
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(counters.length() * Long.BYTES);
+        for (int i = 0; i < counters.length(); i++) {
+            buffer.putLong(counters.get(i));
+        }
+        return buffer.array();
+    }
+
+    public int getDepth() { return depth; }
+
+    public int getWidth() { return width; }
+
+    // Double hashing: row i uses h1 + i * h2, which is as good as independent hash functions for this purpose
+    private int column(long h1, long h2, int row) {
+        return (int) Math.floorMod(h1 + row * h2, (long) width);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
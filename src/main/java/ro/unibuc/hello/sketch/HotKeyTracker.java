@@ -0,0 +1,107 @@
+package ro.unibuc.hello.sketch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rolling-window frequency tracker: a ring of windows, each a {@link CountMinSketch} plus a {@link SpaceSaving}
+ * summary. Adds go to the newest window; {@link #rotate()} drops the oldest one. Memory is fixed by the sketch
+ * shape, the heavy-hitter capacity and the number of windows, however many distinct keys are seen.
+ */
+public class HotKeyTracker {
+
+    private final int depth;
+    private final int width;
+    private final int capacity;
+    private final AtomicReferenceArray<Window> windows;
+    private volatile int head;
+
+    public HotKeyTracker(int windows, int depth, int width, int capacity) {
+        this.depth = depth;
+        this.width = width;
+        this.capacity = capacity;
+        this.windows = new AtomicReferenceArray<>(Math.max(1, windows));
+        for (int i = 0; i < this.windows.length(); i++) {
+            this.windows.set(i, new Window(depth, width, capacity));
+        }
+    }
+
+    public void add(String key, long count) {
+        if (key == null) {
+            return;
+        }
+        Window window = windows.get(head);
+        window.frequencies.add(key, count);
+        window.heavyHitters.offer(key, count);
+    }
+
+    public synchronized void rotate() {
+        int next = (head + 1) % windows.length();
+        windows.set(next, new Window(depth, width, capacity));
+        head = next;
+    }
+
+    /** Everything recorded across the ring, merged into one summary. */
+    public Summary summary() {
+        CountMinSketch frequencies = new CountMinSketch(depth, width);
+        List<SpaceSaving> heavyHitters = new ArrayList<>(windows.length());
+        for (int i = 0; i < windows.length(); i++) {
+            Window window = windows.get(i);
+            frequencies.merge(window.frequencies);
+            heavyHitters.add(window.heavyHitters);
+        }
+        return new Summary(frequencies, SpaceSaving.merge(capacity, heavyHitters));
+    }
+
+    private static class Window {
+        private final CountMinSketch frequencies;
+        private final SpaceSaving heavyHitters;
+
+        private Window(int depth, int width, int capacity) {
+            this.frequencies = new CountMinSketch(depth, width);
+            this.heavyHitters = new SpaceSaving(capacity);
+        }
+    }
+
+    /** A mergeable snapshot, e.g. of several replicas' trackers. */
+    public static class Summary {
+        private final CountMinSketch frequencies;
+        private final SpaceSaving heavyHitters;
+
+        public Summary(CountMinSketch frequencies, SpaceSaving heavyHitters) {
+            this.frequencies = frequencies;
+            this.heavyHitters = heavyHitters;
+        }
+
+        public static Summary merge(List<Summary> summaries) {
+            Summary first = summaries.get(0);
+            CountMinSketch frequencies = new CountMinSketch(first.frequencies.getDepth(), first.frequencies.getWidth());
+            List<SpaceSaving> heavyHitters = new ArrayList<>(summaries.size());
+            for (Summary summary : summaries) {
+                frequencies.merge(summary.frequencies);
+                heavyHitters.add(summary.heavyHitters);
+            }
+            return new Summary(frequencies, SpaceSaving.merge(first.heavyHitters.getCapacity(), heavyHitters));
+        }
+
+        /**
+         * The most frequent keys. Each count is the tighter of the two upper bounds, and the error is how much
+         * it may exceed the true count.
+         */
+        public List<SpaceSaving.Entry> top(int limit) {
+            List<SpaceSaving.Entry> top = new ArrayList<>();
+            for (SpaceSaving.Entry entry : heavyHitters.top(heavyHitters.getCapacity())) {
+                long estimate = Math.min(entry.getCount(), frequencies.estimate(entry.getKey()));
+                long lowerBound = Math.max(0, entry.getCount() - entry.getError());
+                top.add(new SpaceSaving.Entry(entry.getKey(), estimate, Math.max(0, estimate - lowerBound)));
+            }
+            top.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+            return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+        }
+
+        public CountMinSketch getFrequencies() { return frequencies; }
+
+        public SpaceSaving getHeavyHitters() { return heavyHitters; }
+    }
+}
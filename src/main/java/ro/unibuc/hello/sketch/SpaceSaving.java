@@ -0,0 +1,138 @@
+package ro.unibuc.hello.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy hitters: at most {@code capacity} monitored keys. An unmonitored key evicts the one with
+ * the lowest count and inherits that count as its error, so a reported count overestimates the true count by
+ * at most its error, and every key more frequent than {@code total / capacity} is monitored.
+ */
+public class SpaceSaving {
+
+    private static final Comparator<Entry> BY_COUNT = Comparator.comparingLong(Entry::getCount).thenComparing(Entry::getKey);
+
+    private final int capacity;
+
+    // Guarded by this; entries are removed from the tree before their count changes
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public static SpaceSaving fromEntries(int capacity, List<Entry> entries) {
+        SpaceSaving summary = new SpaceSaving(capacity);
+        for (Entry entry : entries) {
+            summary.put(new Entry(entry.getKey(), entry.getCount(), entry.getError()));
+        }
+        return summary;
+    }
+
+    /**
+     * Merges summaries of disjoint streams. A key missing from a full summary may still have occurred there
+     * up to that summary's minimum count, so the minimum is added to both its count and its error.
+     */
+    public static SpaceSaving merge(int capacity, List<SpaceSaving> summaries) {
+        List<List<Entry>> parts = new ArrayList<>(summaries.size());
+        long[] floors = new long[summaries.size()];
+        Map<String, long[]> merged = new HashMap<>();
+        for (int i = 0; i < summaries.size(); i++) {
+            SpaceSaving summary = summaries.get(i);
+            synchronized (summary) {
+                parts.add(summary.entries());
+                floors[i] = summary.entries.size() < summary.capacity || summary.byCount.isEmpty() ? 0 : summary.byCount.first().count;
+            }
+            for (Entry entry : parts.get(i)) {
+                merged.putIfAbsent(entry.getKey(), new long[2]);
+            }
+        }
+
+        for (int i = 0; i < parts.size(); i++) {
+            Map<String, Entry> part = new HashMap<>();
+            parts.get(i).forEach(entry -> part.put(entry.getKey(), entry));
+            for (Map.Entry<String, long[]> key : merged.entrySet()) {
+                Entry entry = part.get(key.getKey());
+                key.getValue()[0] += entry != null ? entry.getCount() : floors[i];
+                key.getValue()[1] += entry != null ? entry.getError() : floors[i];
+            }
+        }
+
+        SpaceSaving result = new SpaceSaving(capacity);
+        merged.entrySet().stream()
+                .map(key -> new Entry(key.getKey(), key.getValue()[0], key.getValue()[1]))
+                .sorted(BY_COUNT.reversed())
+                .limit(capacity)
+                .forEach(result::put);
+        return result;
+    }
+
+    public synchronized void offer(String key, long count) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            byCount.remove(entry);
+            entry.count += count;
+            byCount.add(entry);
+            return;
+        }
+        if (entries.size() < capacity) {
+            put(new Entry(key, count, 0));
+            return;
+        }
+        Entry evicted = byCount.pollFirst();
+        entries.remove(evicted.key);
+        put(new Entry(key, evicted.count + count, evicted.count));
+    }
+
+    /** The monitored keys, highest count first. */
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> top = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Entry entry : byCount.descendingSet()) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.add(new Entry(entry.key, entry.count, entry.error));
+        }
+        return top;
+    }
+
+    public synchronized List<Entry> entries() {
+        return top(capacity);
+    }
+
+    public int getCapacity() { return capacity; }
+
+    // Called with the monitor held, or before the summary is shared
+    private void put(Entry entry) {
+        entries.put(entry.key, entry);
+        byCount.add(entry);
+    }
+
+    public static class Entry {
+        private String key;
+        private long count;
+        private long error;
+
+        public Entry() {}
+
+        public Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() { return key; }
+
+        public long getCount() { return count; }
+
+        public long getError() { return error; }
+    }
+}
@@ -0,0 +1,140 @@
+package ro.unibuc.hello.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.RobotStreamMessage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the open stream of every connected robot, delivers server-pushed messages to it and closes
+ * streams whose robot stopped sending heartbeats.
+ */
+@Component
+public class RobotSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RobotSessionRegistry.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${robots.stream.heartbeat-timeout-ms:30000}")
+    private long heartbeatTimeoutMs = 30000;
+
+    @Value("${robots.stream.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs = 5000;
+
+    @Value("${robots.stream.buffer-size-limit:524288}")
+    private int bufferSizeLimit = 524288;
+
+    private final Map<String, RobotSession> sessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("robots.stream.sessions", sessions, Map::size)
+                .description("Robots with an open status stream")
+                .register(meterRegistry);
+    }
+
+    public void register(String robotId, WebSocketSession session) {
+        RobotSession robotSession = new RobotSession(
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit));
+        RobotSession previous = sessions.put(robotId, robotSession);
+        if (previous != null) {
+            close(robotId, previous, CloseStatus.POLICY_VIOLATION.withReason("Replaced by a newer stream"));
+        }
+    }
+
+    public void unregister(String robotId, WebSocketSession session) {
+        sessions.computeIfPresent(robotId, (id, current) -> current.session.getId().equals(session.getId()) ? null : current);
+    }
+
+    public void touch(String robotId) {
+        RobotSession robotSession = sessions.get(robotId);
+        if (robotSession != null) {
+            robotSession.lastSeenMillis = System.currentTimeMillis();
+        }
+    }
+
+    public boolean isConnected(String robotId) {
+        return sessions.containsKey(robotId);
+    }
+
+    public void pushOrderAssignment(String robotId, OrderDTO order) {
+        RobotStreamMessage message = new RobotStreamMessage(RobotStreamMessage.ORDER_ASSIGNED, null);
+        message.setOrder(order);
+        send(robotId, message);
+    }
+
+    public boolean send(String robotId, RobotStreamMessage message) {
+        RobotSession robotSession = sessions.get(robotId);
+        if (robotSession == null) {
+            return false;
+        }
+        try {
+            robotSession.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+            return true;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize stream message", e);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Dropping stream of robot {}: {}", robotId, e.getMessage());
+            close(robotId, robotSession, CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+    }
+
+    public void disconnect(String robotId, CloseStatus status) {
+        RobotSession robotSession = sessions.get(robotId);
+        if (robotSession != null) {
+            close(robotId, robotSession, status);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${robots.stream.heartbeat-check-ms:5000}")
+    public void closeSilentStreams() {
+        long cutoff = System.currentTimeMillis() - heartbeatTimeoutMs;
+        sessions.forEach((robotId, robotSession) -> {
+            if (robotSession.lastSeenMillis < cutoff) {
+                logger.info("Closing stream of robot {}: no heartbeat for {} ms", robotId, heartbeatTimeoutMs);
+                close(robotId, robotSession, CloseStatus.GOING_AWAY.withReason("Heartbeat timeout"));
+            }
+        });
+    }
+
+    private void close(String robotId, RobotSession robotSession, CloseStatus status) {
+        sessions.remove(robotId, robotSession);
+        try {
+            robotSession.session.close(status);
+        } catch (IOException e) {
+            logger.debug("Error closing stream of robot {}", robotId, e);
+        }
+    }
+
+    private static class RobotSession {
+        private final WebSocketSession session;
+        private volatile long lastSeenMillis = System.currentTimeMillis();
+
+        private RobotSession(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package ro.unibuc.hello.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.cluster.OwnerProxy;
+import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.RobotDTO;
+import ro.unibuc.hello.dto.RobotStreamMessage;
+import ro.unibuc.hello.exception.PartitionNotOwnedException;
+import ro.unibuc.hello.service.OrderService;
+import ro.unibuc.hello.service.RobotService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One long-lived bidirectional stream per robot on {@code /stream/robots?robotId=...}. The robot sends
+ * heartbeats, status changes and order status changes; the service answers each with an ACK or ERROR
+ * carrying the same sequence number, and pushes ORDER_ASSIGNED messages when an order is created for it.
+ * If the robot's partition moves to another replica while the stream is open, the update is applied on the new
+ * owner through its REST API, acknowledged, and the stream is closed so the robot reconnects to the owner.
+ */
+@Component
+public class RobotStreamHandler extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RobotStreamHandler.class);
+    private static final String ROBOT_ID = "robotId";
+
+    @Autowired
+    private RobotService robotService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private RobotSessionRegistry robotSessionRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Autowired
+    private OwnerProxy ownerProxy;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String robotId = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(ROBOT_ID);
+        if (robotId == null || robotId.isBlank()) {
+            session.close(CloseStatus.BAD_DATA.withReason("robotId query parameter is required"));
+            return;
+        }
+        try {
+            robotService.getRobotById(robotId);
+            leaseManager.requireOwnership(robotId);
+        } catch (PartitionNotOwnedException e) {
+            // The robot reconnects through the load balancer until it lands on the owning node
+            session.close(CloseStatus.TRY_AGAIN_LATER.withReason(e.getMessage()));
+            return;
+        } catch (RuntimeException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+        session.getAttributes().put(ROBOT_ID, robotId);
+        robotSessionRegistry.register(robotId, session);
+        logger.debug("Robot {} opened a stream", robotId);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        String robotId = (String) session.getAttributes().get(ROBOT_ID);
+        robotSessionRegistry.touch(robotId);
+
+        RobotStreamMessage reply = new RobotStreamMessage(RobotStreamMessage.ACK, null);
+        RobotStreamMessage request = null;
+        boolean moved = false;
+        try {
+            request = objectMapper.readValue(message.getPayload(), RobotStreamMessage.class);
+            reply.setSeq(request.getSeq());
+            switch (request.getType() == null ? "" : request.getType()) {
+                case RobotStreamMessage.HEARTBEAT -> { }
+                case RobotStreamMessage.STATUS -> reply.setRobot(robotService.updateRobotStatus(robotId, request.getStatus()));
+                case RobotStreamMessage.ORDER_STATUS -> {
+                    requireAssignedTo(robotId, request.getOrderId());
+                    reply.setOrder(orderService.updateOrderStatus(request.getOrderId(), request.getStatus()));
+                }
+                default -> throw new IllegalArgumentException("Unknown message type: " + request.getType());
+            }
+        } catch (PartitionNotOwnedException e) {
+            moved = true;
+            forwardToOwner(e, robotId, request, reply);
+        } catch (JsonProcessingException e) {
+            reply.setType(RobotStreamMessage.ERROR);
+            reply.setError("Malformed message: " + e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            reply.setType(RobotStreamMessage.ERROR);
+            reply.setError(e.getMessage());
+        }
+        robotSessionRegistry.send(robotId, reply);
+        if (moved) {
+            session.close(CloseStatus.TRY_AGAIN_LATER.withReason("Robot " + robotId + " is now served by another replica"));
+        }
+    }
+
+    // A robot may only move its own orders along
+    private void requireAssignedTo(String robotId, String orderId) {
+        if (orderId == null || !robotId.equals(orderService.getOrderById(orderId).getRobotId())) {
+            throw new IllegalArgumentException("Order " + orderId + " is not assigned to robot " + robotId);
+        }
+    }
+
+    private void forwardToOwner(PartitionNotOwnedException e, String robotId, RobotStreamMessage request, RobotStreamMessage reply) {
+        if (e.getOwnerUrl() == null) {
+            reply.setType(RobotStreamMessage.ERROR);
+            reply.setError(e.getMessage());
+            return;
+        }
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+            if (RobotStreamMessage.STATUS.equals(request.getType())) {
+                String path = UriComponentsBuilder.fromPath("/robots/{id}/status").queryParam("status", request.getStatus())
+                        .buildAndExpand(robotId).encode().toUriString();
+                reply.setRobot(readOwnerReply(ownerProxy.forward(e.getOwnerUrl(), HttpMethod.PUT, path, headers, null), RobotDTO.class));
+            } else {
+                String path = UriComponentsBuilder.fromPath("/orders/{id}/status").buildAndExpand(request.getOrderId()).encode().toUriString();
+                byte[] body = objectMapper.writeValueAsBytes(Map.of("status", request.getStatus()));
+                reply.setOrder(readOwnerReply(ownerProxy.forward(e.getOwnerUrl(), HttpMethod.PUT, path, headers, body), OrderDTO.class));
+            }
+        } catch (Exception ex) {
+            reply.setType(RobotStreamMessage.ERROR);
+            reply.setError(ex.getMessage());
+        }
+    }
+
+    private <T> T readOwnerReply(ResponseEntity<byte[]> response, Class<T> type) throws IOException {
+        byte[] body = response.getBody() == null ? new byte[0] : response.getBody();
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException(new String(body, StandardCharsets.UTF_8));
+        }
+        return objectMapper.readValue(body, type);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String robotId = (String) session.getAttributes().get(ROBOT_ID);
+        if (robotId != null) {
+            robotSessionRegistry.unregister(robotId, session);
+            logger.debug("Robot {} closed its stream: {}", robotId, status);
+        }
+    }
+}
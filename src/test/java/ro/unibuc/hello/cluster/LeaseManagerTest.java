@@ -0,0 +1,137 @@
+package ro.unibuc.hello.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.ClusterNodeEntity;
+import ro.unibuc.hello.data.PartitionLeaseEntity;
+import ro.unibuc.hello.data.RobotEntity;
+import ro.unibuc.hello.exception.PartitionNotOwnedException;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class LeaseManagerTest {
+
+    private static final int PARTITIONS = 4;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private LeaseManager leaseManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(leaseManager, "partitions", PARTITIONS);
+        ReflectionTestUtils.setField(leaseManager, "nodeId", "node-a");
+    }
+
+    @Test
+    void testDisabledNodeOwnsEverything() {
+        leaseManager.start();
+        RobotEntity robot = robot("robot001", 42L);
+
+        assertTrue(leaseManager.isOwner("robot001"));
+        assertTrue(leaseManager.isLeader());
+        assertDoesNotThrow(() -> leaseManager.fence(robot));
+        assertEquals(42L, robot.getFencingToken());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testPartitionOfIsStableAndInRange() {
+        for (int i = 0; i < 1000; i++) {
+            int partition = leaseManager.partitionOf("robot" + i);
+            assertTrue(partition >= 0 && partition < PARTITIONS);
+            assertEquals(partition, leaseManager.partitionOf("robot" + i));
+        }
+    }
+
+    @Test
+    void testAcquiresFairShareAndFencesWrites() {
+        ReflectionTestUtils.setField(leaseManager, "enabled", true);
+        // Two live nodes: fair share is two of the four partitions
+        when(mongoTemplate.count(any(Query.class), eq(ClusterNodeEntity.class))).thenReturn(2L);
+        when(mongoTemplate.findAll(PartitionLeaseEntity.class)).thenReturn(List.of());
+        when(mongoTemplate.find(any(Query.class), eq(PartitionLeaseEntity.class))).thenReturn(List.of());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(PartitionLeaseEntity.class)))
+                .thenAnswer(invocation -> lease(invocation.getArgument(0, Query.class).getQueryObject().getInteger("_id"), "node-a", 5));
+
+        leaseManager.start();
+
+        assertEquals(2, leaseManager.getOwnedPartitions().size());
+        String ownedRobot = robotIn(leaseManager.getOwnedPartitions().keySet().iterator().next());
+        RobotEntity fresh = robot(ownedRobot, 3L);
+        leaseManager.fence(fresh);
+        assertEquals(5L, fresh.getFencingToken());
+
+        // Stamped by a later owner: this node's lease is stale
+        RobotEntity newer = robot(ownedRobot, 9L);
+        assertThrows(PartitionNotOwnedException.class, () -> leaseManager.fence(newer));
+        assertFalse(leaseManager.isOwner(ownedRobot));
+    }
+
+    @Test
+    void testRequireOwnershipRejectsRobotsOfOtherNodes() {
+        ReflectionTestUtils.setField(leaseManager, "enabled", true);
+        when(mongoTemplate.count(any(Query.class), eq(ClusterNodeEntity.class))).thenReturn(2L);
+        when(mongoTemplate.findAll(PartitionLeaseEntity.class)).thenReturn(List.of(
+                lease(0, "node-b", 1), lease(1, "node-b", 1), lease(2, "node-b", 1), lease(3, "node-b", 1)));
+        when(mongoTemplate.find(any(Query.class), eq(PartitionLeaseEntity.class))).thenReturn(List.of(
+                lease(0, "node-b", 1), lease(1, "node-b", 1), lease(2, "node-b", 1), lease(3, "node-b", 1)));
+
+        leaseManager.start();
+
+        PartitionNotOwnedException e = assertThrows(PartitionNotOwnedException.class,
+                () -> leaseManager.requireOwnership("robot001"));
+        assertEquals("http://node-b:8080", e.getOwnerUrl());
+        assertFalse(leaseManager.isLeader());
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(PartitionLeaseEntity.class));
+    }
+
+    private String robotIn(int partition) {
+        for (int i = 0; ; i++) {
+            if (leaseManager.partitionOf("robot" + i) == partition) {
+                return "robot" + i;
+            }
+        }
+    }
+
+    private static RobotEntity robot(String id, Long fencingToken) {
+        RobotEntity robot = new RobotEntity("IDLE", null, 0, null);
+        robot.setId(id);
+        robot.setFencingToken(fencingToken);
+        return robot;
+    }
+
+    private static PartitionLeaseEntity lease(int partition, String ownerId, long fencingToken) {
+        PartitionLeaseEntity lease = new PartitionLeaseEntity();
+        lease.setPartition(partition);
+        lease.setOwnerId(ownerId);
+        lease.setOwnerUrl("http://" + ownerId + ":8080");
+        lease.setExpiresAt(new Date(System.currentTimeMillis() + 60_000));
+        lease.setFencingToken(fencingToken);
+        return lease;
+    }
+}
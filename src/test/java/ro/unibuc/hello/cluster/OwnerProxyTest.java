@@ -0,0 +1,113 @@
+package ro.unibuc.hello.cluster;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class OwnerProxyTest {
+
+    private static final String OWNER = "http://10.0.0.7:8080";
+
+    private OwnerProxy ownerProxy;
+    private MockRestServiceServer owner;
+
+    @BeforeEach
+    void setUp() {
+        ownerProxy = new OwnerProxy();
+        ownerProxy.start();
+        owner = MockRestServiceServer.bindTo(ownerProxy.getRestTemplate()).build();
+    }
+
+    @Test
+    void testForwardReplaysTheRequestOnTheOwner() throws Exception {
+        MockHttpServletRequest incoming = new MockHttpServletRequest("PUT", "/orders/o1/status");
+        incoming.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        incoming.setContent("{\"status\":\"COMPLETED\"}".getBytes(StandardCharsets.UTF_8));
+        incoming.addHeader("X-API-Key", "k1");
+        incoming.setRemoteAddr("203.0.113.5");
+        // The controller reads the body before ownership is checked
+        ContentCachingRequestWrapper wrapped = new ContentCachingRequestWrapper(incoming);
+        wrapped.getInputStream().readAllBytes();
+
+        owner.expect(requestTo(OWNER + "/orders/o1/status"))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(header(OwnerProxy.FORWARDED_HEADER, "true"))
+                .andExpect(header("X-API-Key", "k1"))
+                .andExpect(header("X-Forwarded-For", "203.0.113.5"))
+                .andExpect(content().string("{\"status\":\"COMPLETED\"}"))
+                .andRespond(withSuccess("{\"id\":\"o1\"}", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<byte[]> response = ownerProxy.forward(wrapped, OWNER);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"id\":\"o1\"}", new String(response.getBody(), StandardCharsets.UTF_8));
+        owner.verify();
+    }
+
+    @Test
+    void testForwardKeepsTheQueryString() {
+        MockHttpServletRequest incoming = new MockHttpServletRequest("PUT", "/robots/r1/status");
+        incoming.setQueryString("status=IDLE");
+
+        owner.expect(requestTo(OWNER + "/robots/r1/status?status=IDLE"))
+                .andRespond(withSuccess());
+
+        assertEquals(HttpStatus.OK, ownerProxy.forward(incoming, OWNER).getStatusCode());
+        owner.verify();
+    }
+
+    @Test
+    void testOwnerErrorsAreRelayed() {
+        owner.expect(requestTo(OWNER + "/robots/r1/status?status=FLYING"))
+                .andRespond(withBadRequest().body("Invalid status"));
+
+        MockHttpServletRequest incoming = new MockHttpServletRequest("PUT", "/robots/r1/status");
+        incoming.setQueryString("status=FLYING");
+
+        ResponseEntity<byte[]> response = ownerProxy.forward(incoming, OWNER);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Invalid status", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testForwardedRequestsAreRecognised() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/robots/r1/status");
+        assertFalse(OwnerProxy.isForwarded(request));
+        request.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+        assertTrue(OwnerProxy.isForwarded(request));
+    }
+
+    @Test
+    void testOnlyPeersAreTrustedWithTheForwardedHeader() {
+        LeaseManager leaseManager = mock(LeaseManager.class);
+        when(leaseManager.isPeer("10.0.0.8")).thenReturn(true);
+        ReflectionTestUtils.setField(ownerProxy, "leaseManager", leaseManager);
+
+        MockHttpServletRequest fromPeer = new MockHttpServletRequest("PUT", "/robots/r1/status");
+        fromPeer.setRemoteAddr("10.0.0.8");
+        assertFalse(ownerProxy.isForwardedByPeer(fromPeer));
+        fromPeer.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+        assertTrue(ownerProxy.isForwardedByPeer(fromPeer));
+
+        MockHttpServletRequest fromClient = new MockHttpServletRequest("PUT", "/robots/r1/status");
+        fromClient.setRemoteAddr("203.0.113.5");
+        fromClient.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+        assertFalse(ownerProxy.isForwardedByPeer(fromClient));
+    }
+}
@@ -5,12 +5,15 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ro.unibuc.hello.dto.InventoryDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.service.InventoryService;
+import ro.unibuc.hello.service.ResourceVersions;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +29,9 @@ class InventoryControllerTest {
     @Mock
     private InventoryService inventoryService;
 
+    @Spy
+    private ResourceVersions resourceVersions = new ResourceVersions();
+
     @InjectMocks
     private InventoryController inventoryController;
 
@@ -65,6 +71,32 @@ class InventoryControllerTest {
                 .andExpect(jsonPath("$.name").value("Item 1"));
     }
 
+    @Test
+    void testGetAllInventoryItems_NotModifiedUntilAWrite() throws Exception {
+        String etag = mockMvc.perform(get("/inventory"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/inventory").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        verify(inventoryService, times(1)).getAllInventoryItems();
+
+        resourceVersions.bump(ResourceVersions.INVENTORY);
+        mockMvc.perform(get("/inventory").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGetInventoryItemById_NotModified() throws Exception {
+        InventoryDTO inventoryItem = new InventoryDTO("1", "Item 1", 100, 10);
+        inventoryItem.setVersion(0L);
+        when(inventoryService.getInventoryItemById("1")).thenReturn(inventoryItem);
+
+        mockMvc.perform(get("/inventory/{id}", "1").header(HttpHeaders.IF_NONE_MATCH, "\"item-1-v0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"item-1-v0\""));
+    }
+
     @Test
     void testCreateInventoryItem() throws Exception {
         InventoryDTO newItem = new InventoryDTO(null, "Item 3", 200, 20);
@@ -5,13 +5,22 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ro.unibuc.hello.data.OrderStatus;
+import ro.unibuc.hello.dto.CycleTimeStatsDTO;
+import ro.unibuc.hello.dto.HotKeyDTO;
 import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.OrderGroupDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.service.CycleTimeAnalytics;
+import ro.unibuc.hello.service.HotKeyService;
+import ro.unibuc.hello.service.OrderColumnStore;
 import ro.unibuc.hello.service.OrderService;
+import ro.unibuc.hello.service.ResourceVersions;
 
 import java.util.Arrays;
 import java.util.List;
@@ -27,6 +36,18 @@ class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Mock
+    private CycleTimeAnalytics cycleTimeAnalytics;
+
+    @Mock
+    private OrderColumnStore orderColumnStore;
+
+    @Mock
+    private HotKeyService hotKeyService;
+
+    @Spy
+    private ResourceVersions resourceVersions = new ResourceVersions();
+
     @InjectMocks
     private OrderController orderController;
 
@@ -63,6 +84,34 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.id").value(id));
     }
 
+    @Test
+    void testGetAllOrders_NotModifiedSkipsTheQuery() throws Exception {
+        String etag = mockMvc.perform(get("/orders"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/orders").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        verify(orderService, times(1)).getAllOrders();
+    }
+
+    @Test
+    void testGetOrderById_ETagChangesWithContent() throws Exception {
+        when(orderService.getOrderById("1"))
+                .thenReturn(new OrderDTO("1", "worker1", OrderStatus.PENDING, "item1", 10, "location1"))
+                .thenReturn(new OrderDTO("1", "worker1", OrderStatus.PENDING, "item1", 10, "location1"))
+                .thenReturn(new OrderDTO("1", "worker1", OrderStatus.COMPLETED, "item1", 10, "location1"));
+
+        String etag = mockMvc.perform(get("/orders/{id}", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/orders/{id}", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/orders/{id}", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
     @Test
     void testCreateOrder() throws Exception {
         OrderDTO createdOrder = new OrderDTO("1", "worker1", OrderStatus.PENDING, "item1", 10, "location1");
@@ -144,4 +193,44 @@ class OrderControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Entity: Order was not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetCycleTimeForRobot() throws Exception {
+        CycleTimeStatsDTO stats = new CycleTimeStatsDTO(CycleTimeAnalytics.ROBOT, "robot001", 900, 3, 1000, 2000, 2000, 2000, 1333.3);
+        when(cycleTimeAnalytics.getStats("robot001", null)).thenReturn(stats);
+
+        mockMvc.perform(get("/orders/analytics/cycle-time").param("robotId", "robot001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scope").value("robot"))
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.p90Ms").value(2000));
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testGroupByItemWithStatusFilter() throws Exception {
+        when(orderColumnStore.aggregate(OrderColumnStore.Dimension.ITEM, OrderStatus.COMPLETED, null, null))
+                .thenReturn(List.of(new OrderGroupDTO("item123", 4, 18)));
+
+        mockMvc.perform(get("/orders/analytics/group-by").param("by", "item").param("status", "completed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].key").value("item123"))
+                .andExpect(jsonPath("$[0].quantity").value(18));
+    }
+
+    @Test
+    void testGroupByUnknownDimension() throws Exception {
+        mockMvc.perform(get("/orders/analytics/group-by").param("by", "color"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetHotItems() throws Exception {
+        when(hotKeyService.getHotItems(10)).thenReturn(List.of(new HotKeyDTO("item123", 7, 1)));
+
+        mockMvc.perform(get("/orders/hot-items"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].key").value("item123"))
+                .andExpect(jsonPath("$[0].maxError").value(1));
+    }
+}
@@ -1,6 +1,8 @@
 package ro.unibuc.hello.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,6 +17,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import ro.unibuc.hello.dto.RobotDTO;
 import ro.unibuc.hello.service.RobotService;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -94,6 +97,32 @@ public class RobotControllerIntegrationTest {
                 .andExpect(jsonPath("$.status").value("IDLE"));
     }
 
+    @Test
+    public void testGetRobotById_Cbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/robots/" + robotId1)
+                .accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        RobotDTO robot = new CBORMapper().readValue(body, RobotDTO.class);
+        assertEquals(robotId1, robot.getId());
+        assertEquals("IDLE", robot.getStatus());
+    }
+
+    @Test
+    public void testGetRobotById_Smile() throws Exception {
+        byte[] body = mockMvc.perform(get("/robots/" + robotId1)
+                .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        RobotDTO robot = new SmileMapper().readValue(body, RobotDTO.class);
+        assertEquals(robotId1, robot.getId());
+        assertEquals("IDLE", robot.getStatus());
+    }
+
     @Test
     public void testCreateRobot_Successful() throws Exception {
         RobotDTO robot = new RobotDTO(null, "IDLE", null, 0, "none");
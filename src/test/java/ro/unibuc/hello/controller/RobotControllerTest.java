@@ -5,10 +5,15 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ro.unibuc.hello.dto.HotKeyDTO;
 import ro.unibuc.hello.dto.RobotDTO;
+import ro.unibuc.hello.service.HotKeyService;
+import ro.unibuc.hello.service.ResourceVersions;
 import ro.unibuc.hello.service.RobotService;
 
 import java.util.Arrays;
@@ -16,7 +21,7 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -25,6 +30,12 @@ class RobotControllerTest {
     @Mock
     private RobotService robotService;
 
+    @Mock
+    private HotKeyService hotKeyService;
+
+    @Spy
+    private ResourceVersions resourceVersions = new ResourceVersions();
+
     @InjectMocks
     private RobotController robotController;
 
@@ -52,6 +63,42 @@ class RobotControllerTest {
                 .andExpect(jsonPath("$[1].status").value("IN_PROGRESS"));
     }
 
+    @Test
+    void testGetAllRobots_NotModifiedSkipsTheQuery() throws Exception {
+        String etag = mockMvc.perform(get("/robots"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/robots").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(robotService, times(1)).getAllRobots();
+
+        resourceVersions.bump(ResourceVersions.ROBOTS);
+        mockMvc.perform(get("/robots").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/robots").param("fields", "id").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGetRobotById_ETagFollowsVersion() throws Exception {
+        RobotDTO robot = new RobotDTO("1", "IDLE", null, 10, "none");
+        robot.setVersion(3L);
+        when(robotService.getRobotById("1")).thenReturn(robot);
+
+        mockMvc.perform(get("/robots/{id}", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"robot-1-v3\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+        mockMvc.perform(get("/robots/{id}", "1").header(HttpHeaders.IF_NONE_MATCH, "\"robot-1-v3\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/robots/{id}", "1").header(HttpHeaders.IF_NONE_MATCH, "\"robot-1-v2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("1"));
+    }
+
     @Test
     void testCreateRobot() throws Exception {
         RobotDTO newRobot = new RobotDTO(null, "IDLE", null, 0, "none");
@@ -92,4 +139,14 @@ class RobotControllerTest {
                 .andExpect(jsonPath("$.id").value(id))
                 .andExpect(jsonPath("$.completedOrders").value(20));
     }
+
+    @Test
+    void testGetTopRobots() throws Exception {
+        when(hotKeyService.getTopRobots(3)).thenReturn(List.of(new HotKeyDTO("robot001", 42, 0)));
+
+        mockMvc.perform(get("/robots/top").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].key").value("robot001"))
+                .andExpect(jsonPath("$[0].count").value(42));
+    }
 }
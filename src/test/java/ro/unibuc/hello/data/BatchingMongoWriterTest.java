@@ -0,0 +1,184 @@
+package ro.unibuc.hello.data;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class BatchingMongoWriterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private BatchingMongoWriter batchingMongoWriter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class))).thenReturn(bulkOperations);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batchingMongoWriter.shutdown();
+    }
+
+    @Test
+    void testConcurrentSavesShareBulkWrites() throws Exception {
+        batchingMongoWriter.start();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<OrderEntity>> saved = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            OrderEntity order = new OrderEntity("robot001", OrderStatus.PENDING, "item" + i, 1, "A1");
+            saved.add(executor.submit(() -> batchingMongoWriter.save(order)));
+        }
+        for (Future<OrderEntity> future : saved) {
+            assertNotNull(future.get().getId());
+        }
+        executor.shutdown();
+
+        verify(bulkOperations, times(200)).replaceOne(any(Query.class), any(OrderEntity.class), any(FindAndReplaceOptions.class));
+        verify(mongoTemplate, never()).save(any());
+        double batches = meterRegistry.get("mongo.write.batch.size").summary().count();
+        assertEquals(200, meterRegistry.get("mongo.write.batch.size").summary().totalAmount());
+        assertTrue(batches < 200, "expected writes to be merged, got " + batches + " batches");
+    }
+
+    @Test
+    void testFailedWriteOnlyFailsItsOwnCaller() {
+        batchingMongoWriter.start();
+        RobotEntity first = new RobotEntity("IDLE", null, 0, null);
+        first.setId("robot001");
+        RobotEntity second = new RobotEntity("IDLE", null, 0, null);
+        second.setId("robot002");
+        BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+        when(bulkOperations.execute()).thenThrow(
+                new BulkOperationException("bulk write failed", List.of(error), BulkWriteResult.acknowledged(0, 1, 0, 0, List.of(), List.of())));
+
+        BatchingMongoWriter.PendingWrite ok = new BatchingMongoWriter.PendingWrite(first);
+        BatchingMongoWriter.PendingWrite failed = new BatchingMongoWriter.PendingWrite(second);
+        batchingMongoWriter.write(List.of(ok, failed));
+
+        assertDoesNotThrow(() -> ok.join(1000));
+        assertThrows(DuplicateKeyException.class, () -> failed.join(1000));
+    }
+
+    @Test
+    void testWriterSurvivesAFailingBatch() {
+        batchingMongoWriter.start();
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class)))
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+        RobotEntity first = new RobotEntity("IDLE", null, 0, null);
+        first.setId("robot001");
+        first.setVersion(3L);
+        RobotEntity second = new RobotEntity("IDLE", null, 0, null);
+        second.setId("robot001");
+        second.setVersion(3L);
+
+        assertThrows(IllegalStateException.class, () -> batchingMongoWriter.save(first));
+        assertEquals(3L, first.getVersion());
+        assertSame(second, assertDoesNotThrow(() -> batchingMongoWriter.save(second)));
+        assertEquals(4L, second.getVersion());
+    }
+
+    @Test
+    void testJoinGivesUpAfterTheTimeout() {
+        BatchingMongoWriter.PendingWrite pending = new BatchingMongoWriter.PendingWrite(new RobotEntity());
+
+        assertThrows(QueryTimeoutException.class, () -> pending.join(10));
+    }
+
+    @Test
+    void testStaleVersionFailsWithOptimisticLockingFailure() {
+        RobotEntity fresh = new RobotEntity("IDLE", null, 0, null);
+        fresh.setId("robot001");
+        fresh.setVersion(3L);
+        RobotEntity stale = new RobotEntity("IDLE", null, 0, null);
+        stale.setId("robot002");
+        stale.setVersion(3L);
+        RobotEntity stored1 = new RobotEntity();
+        stored1.setId("robot001");
+        stored1.setVersion(4L);
+        RobotEntity stored2 = new RobotEntity();
+        stored2.setId("robot002");
+        stored2.setVersion(7L);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+        when(mongoTemplate.find(any(Query.class), eq(RobotEntity.class))).thenReturn(List.of(stored1, stored2));
+
+        BatchingMongoWriter.PendingWrite ok = new BatchingMongoWriter.PendingWrite(fresh);
+        BatchingMongoWriter.PendingWrite conflict = new BatchingMongoWriter.PendingWrite(stale);
+        batchingMongoWriter.write(List.of(ok, conflict));
+
+        assertDoesNotThrow(() -> ok.join(1000));
+        assertEquals(4L, fresh.getVersion());
+        assertThrows(OptimisticLockingFailureException.class, () -> conflict.join(1000));
+        assertEquals(3L, stale.getVersion());
+        verify(bulkOperations, times(2)).replaceOne(any(Query.class), any(RobotEntity.class), any(FindAndReplaceOptions.class));
+    }
+
+    @Test
+    void testNewVersionedEntityIsInserted() {
+        RobotEntity robot = new RobotEntity("IDLE", null, 0, null);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+
+        BatchingMongoWriter.PendingWrite pending = new BatchingMongoWriter.PendingWrite(robot);
+        batchingMongoWriter.write(List.of(pending));
+
+        assertDoesNotThrow(() -> pending.join(1000));
+        assertNotNull(robot.getId());
+        assertEquals(0L, robot.getVersion());
+        verify(bulkOperations, times(1)).insert(robot);
+    }
+
+    @Test
+    void testSavesDirectlyWhenWriterIsNotRunning() {
+        RobotEntity robot = new RobotEntity("IDLE", null, 0, null);
+        when(mongoTemplate.save(robot)).thenReturn(robot);
+
+        assertSame(robot, batchingMongoWriter.save(robot));
+        verify(mongoTemplate, times(1)).save(robot);
+        verifyNoInteractions(bulkOperations);
+    }
+}
@@ -0,0 +1,285 @@
+package ro.unibuc.hello.data;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ro.unibuc.hello.service.OrderArchiver;
+import ro.unibuc.hello.service.OrderService;
+import ro.unibuc.hello.service.StockLedgerService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs each repository and service query against a seeded database, captures the commands it sends and explains
+ * them. A query fails if its plan contains a collection scan, or if it examines more than {@link #DEFAULT_BUDGET}
+ * documents per document returned.
+ */
+@SpringBootTest
+@Testcontainers
+@Tag("IntegrationTest")
+public class QueryPlanIntegrationTest {
+
+    private static final double DEFAULT_BUDGET = 2.0;
+
+    @Container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20");
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("mongodb.connection.url", mongoDBContainer::getConnectionString);
+        // The test runs the archiver itself
+        registry.add("orders.archive.initial-delay-ms", () -> "3600000");
+    }
+
+    @TestConfiguration
+    static class CaptureConfig {
+        @Bean
+        public CommandCapture commandCapture() {
+            return new CommandCapture();
+        }
+    }
+
+    @Autowired
+    private CommandCapture commandCapture;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RobotRepository robotRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @BeforeEach
+    void seed() {
+        // Remove rather than drop, so the indexes created at startup stay
+        for (Class<?> type : List.of(RobotEntity.class, InventoryEntity.class, OrderEntity.class,
+                StockLedgerEntry.class, StockSnapshotEntity.class)) {
+            mongoTemplate.remove(new Query(), type);
+        }
+        mongoTemplate.remove(new Query(), OrderArchiver.ARCHIVE_COLLECTION);
+
+        String[] statuses = {"ACTIVE", "IDLE", "MAINTENANCE", "ERROR"};
+        List<RobotEntity> robots = new ArrayList<>();
+        List<InventoryEntity> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            RobotEntity robot = new RobotEntity(statuses[i % statuses.length], null, i % 20, "none");
+            robot.setId("r" + i);
+            robots.add(robot);
+            items.add(new InventoryEntity("i" + i, "item-" + i, i, i % 50));
+        }
+        mongoTemplate.insertAll(robots);
+        mongoTemplate.insertAll(items);
+
+        // 100 completed long ago (archivable), 50 completed recently, 20 canceled recently, 130 active
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            OrderStatus status = i < 150 ? OrderStatus.COMPLETED : i < 170 ? OrderStatus.CANCELED
+                    : i % 2 == 0 ? OrderStatus.PENDING : OrderStatus.IN_PROGRESS;
+            OrderEntity order = new OrderEntity("r" + (i % 100), status, "i" + (i % 50), 1, "Aisle " + i);
+            if (i < 100) {
+                order.setCreatedAt(LocalDateTime.now().minusDays(90));
+                order.setCompletedAt(LocalDateTime.now().minusDays(60));
+            } else if (i < 150) {
+                order.setCompletedAt(LocalDateTime.now());
+            }
+            orders.add(order);
+        }
+        mongoTemplate.insertAll(orders);
+
+        List<StockLedgerEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.add(new StockLedgerEntry(null, "i" + (i % 50), StockOperation.RECEIVE, 1, i / 50 + 1));
+        }
+        mongoTemplate.insertAll(entries);
+    }
+
+    @Test
+    void testOrderRepositoryQueries() {
+        String orderId = orderRepository.findByItemId("i3").get(0).getId();
+
+        assertIndexed(() -> orderRepository.findByRobotId("r7"));
+        assertIndexed(() -> orderRepository.findByStatus(OrderStatus.CANCELED));
+        assertIndexed(() -> orderRepository.findByItemId("i3"));
+        assertIndexed(() -> orderRepository.findById(orderId));
+        assertIndexed(() -> orderRepository.existsByRobotIdAndStatusIn("r7", List.of(OrderStatus.PENDING, OrderStatus.IN_PROGRESS)));
+        assertIndexed(() -> orderRepository.countByStatus(OrderStatus.COMPLETED));
+    }
+
+    @Test
+    void testRobotRepositoryQueries() {
+        assertIndexed(() -> robotRepository.findById("r7"));
+        assertIndexed(() -> robotRepository.findByStatus("ERROR"));
+        assertIndexed(() -> robotRepository.findByCompletedOrders(3));
+    }
+
+    @Test
+    void testInventoryRepositoryQueries() {
+        assertIndexed(() -> inventoryRepository.findById("i7"));
+        assertIndexed(() -> inventoryRepository.findByItemId("i7"));
+        assertIndexed(() -> inventoryRepository.findByName("item-7"));
+        assertIndexed(() -> inventoryRepository.findByStockLessThan(10));
+        assertIndexed(() -> inventoryRepository.findByThresholdLessThan(5));
+    }
+
+    @Test
+    void testListQueriesReadEachDocumentOnce() {
+        // Listing endpoints read the whole collection by design: a scan is expected, wasted reads are not
+        assertFullRead(() -> orderRepository.findAllSummaries());
+        assertFullRead(() -> robotRepository.findAllSummaries());
+    }
+
+    @Test
+    void testOrderServiceQueries() {
+        assertIndexed(() -> orderService.hasActiveOrderForRobot("r7"));
+        assertIndexed(() -> orderService.countCompletedOrders());
+        assertIndexed(() -> orderService.countCanceledOrders());
+    }
+
+    @Test
+    void testArchiverQuery() {
+        List<BsonDocument> commands = commandCapture.capture(() -> orderArchiver.archive());
+        // The archiver moved the orders it read; put them back so the plan is explained on the same data
+        seed();
+        // Batches are read in _id order, so the planner may walk the _id index and skip the orders that
+        // are not archivable: 300 examined for 100 returned with this data
+        assertPlans(commands, false, 3.0);
+    }
+
+    @Test
+    void testStockLedgerQueries() {
+        assertIndexed(() -> stockLedgerService.rebuildStock("i7"));
+        assertIndexed(() -> stockLedgerService.compact());
+    }
+
+    private void assertIndexed(Runnable action) {
+        assertPlans(commandCapture.capture(action), false, DEFAULT_BUDGET);
+    }
+
+    private void assertFullRead(Runnable action) {
+        assertPlans(commandCapture.capture(action), true, 1.0);
+    }
+
+    private void assertPlans(List<BsonDocument> commands, boolean scanAllowed, double budget) {
+        assertFalse(commands.isEmpty(), "No query was sent");
+        for (BsonDocument command : commands) {
+            Document stats = find(explain(command), "executionStats");
+            assertNotNull(stats, "No execution stats for " + command.toJson());
+            if (!scanAllowed) {
+                assertFalse(hasStage(stats.get("executionStages"), "COLLSCAN"), "Collection scan for " + command.toJson());
+            }
+            long examined = ((Number) stats.get("totalDocsExamined")).longValue();
+            long returned = ((Number) stats.get("nReturned")).longValue();
+            assertTrue(examined <= budget * Math.max(1, returned),
+                    "Examined " + examined + " documents for " + returned + " returned by " + command.toJson());
+        }
+    }
+
+    private Document explain(BsonDocument command) {
+        BsonDocument inner = new BsonDocument();
+        command.forEach((key, value) -> {
+            // Session, cluster time and read settings belong to the explain command itself
+            if (!key.startsWith("$") && !Set.of("lsid", "txnNumber", "readConcern", "apiVersion").contains(key)) {
+                inner.put(key, value);
+            }
+        });
+        return mongoTemplate.getDb().runCommand(new Document("explain", inner).append("verbosity", "executionStats"));
+    }
+
+    // The stats sit at the top level for find and count, and under $cursor for aggregations
+    private static Document find(Object node, String key) {
+        if (node instanceof Document document) {
+            if (document.get(key) instanceof Document found) {
+                return found;
+            }
+            for (Object value : document.values()) {
+                Document found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Document found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> hasStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> hasStage(value, stage));
+        }
+        return false;
+    }
+
+    /** Records the read commands sent from the test thread while an action runs; background jobs are ignored. */
+    static class CommandCapture implements CommandListener {
+
+        private static final Set<String> READS = Set.of("find", "count", "aggregate", "distinct");
+
+        private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+        private volatile Thread capturing;
+
+        List<BsonDocument> capture(Runnable action) {
+            commands.clear();
+            capturing = Thread.currentThread();
+            try {
+                action.run();
+            } finally {
+                capturing = null;
+            }
+            return new ArrayList<>(commands);
+        }
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if (capturing == Thread.currentThread() && READS.contains(event.getCommandName())) {
+                commands.add(event.getCommand().clone());
+            }
+        }
+    }
+}
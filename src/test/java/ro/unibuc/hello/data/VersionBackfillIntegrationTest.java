@@ -0,0 +1,60 @@
+package ro.unibuc.hello.data;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ro.unibuc.hello.service.InventoryService;
+import ro.unibuc.hello.service.RobotService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+@Tag("IntegrationTest")
+public class VersionBackfillIntegrationTest {
+
+    @Container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20");
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("mongodb.connection.url", mongoDBContainer::getConnectionString);
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VersionBackfill versionBackfill;
+
+    @Autowired
+    private RobotService robotService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Test
+    void testDocumentsWithoutVersionCanBeUpdatedAfterBackfill() {
+        // Written the way documents were stored before the @Version fields existed
+        mongoTemplate.getCollection("robots").insertOne(new Document("_id", "legacy-robot")
+                .append("status", "IDLE").append("completedOrders", 2));
+        mongoTemplate.getCollection("inventory").insertOne(new Document("_id", "legacy-item")
+                .append("name", "Legacy item").append("stock", 5).append("threshold", 1));
+
+        versionBackfill.backfill();
+
+        assertEquals("ACTIVE", robotService.updateRobotStatus("legacy-robot", "ACTIVE").getStatus());
+        assertEquals(9, inventoryService.updateInventoryStock("legacy-item", 9).getStock());
+        assertEquals(1L, mongoTemplate.findById("legacy-robot", RobotEntity.class).getVersion());
+        assertEquals(1L, mongoTemplate.findById("legacy-item", InventoryEntity.class).getVersion());
+        assertEquals(1, mongoTemplate.getCollection("robots").countDocuments(new Document("_id", "legacy-robot")));
+    }
+}
@@ -0,0 +1,145 @@
+package ro.unibuc.hello.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ro.unibuc.hello.data.OrderStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppendAndReplayAfterReopen() throws IOException {
+        try (OrderEventJournal journal = open(1 << 20)) {
+            journal.append(event(OrderEventType.CREATED, "o1", "robot001", "item1", OrderStatus.PENDING, 5));
+            long seq = journal.append(event(OrderEventType.STATUS_CHANGED, "o1", "robot001", "item1", OrderStatus.COMPLETED, 5));
+            assertTrue(journal.getDurableSequence() >= seq);
+        }
+
+        try (OrderEventJournal journal = open(1 << 20)) {
+            journal.append(event(OrderEventType.DELETED, "o1", "robot001", "item1", null, 5));
+
+            List<OrderEvent> events = new ArrayList<>();
+            assertEquals(3, journal.replay(e -> events.add(e.copy())));
+            assertEquals(OrderEventType.CREATED, events.get(0).getType());
+            assertEquals(OrderStatus.COMPLETED, events.get(1).getStatus());
+            assertNull(events.get(2).getStatus());
+            assertEquals("item1", events.get(2).getItemId());
+        }
+    }
+
+    @Test
+    void testRollsToNewSegmentWhenFull() throws IOException {
+        try (OrderEventJournal journal = open(256)) {
+            for (int i = 0; i < 50; i++) {
+                journal.append(event(OrderEventType.CREATED, "order" + i, "robot001", "item1", OrderStatus.PENDING, i));
+            }
+            assertTrue(segmentCount() > 1);
+            assertEquals(50, journal.replay(e -> { }));
+        }
+    }
+
+    @Test
+    void testOldestSegmentsAreDeletedPastTheLimit() throws IOException {
+        try (OrderEventJournal journal = open(256, 3)) {
+            for (int i = 0; i < 50; i++) {
+                journal.append(event(OrderEventType.CREATED, "order" + i, "robot001", "item1", OrderStatus.PENDING, i));
+            }
+            assertEquals(3, segmentCount());
+
+            List<OrderEvent> events = new ArrayList<>();
+            journal.replay(e -> events.add(e.copy()));
+            assertTrue(events.size() < 50);
+            assertEquals("order49", events.get(events.size() - 1).getOrderId());
+        }
+    }
+
+    @Test
+    void testReplayStopsAtCorruptedRecord() throws IOException {
+        try (OrderEventJournal journal = open(1 << 20)) {
+            journal.append(event(OrderEventType.CREATED, "o1", "robot001", "item1", OrderStatus.PENDING, 1));
+            journal.append(event(OrderEventType.CREATED, "o2", "robot002", "item2", OrderStatus.PENDING, 2));
+        }
+
+        Path segment = firstSegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int firstLength = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt();
+            // Flip a payload byte of the second record
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), 8L + firstLength + 8 + 2);
+        }
+
+        try (OrderEventJournal journal = open(1 << 20)) {
+            assertEquals(1, journal.replay(e -> { }));
+        }
+    }
+
+    @Test
+    void testAwaitDurableGivesUpAfterTheTimeout() throws IOException {
+        try (OrderEventJournal journal = open(1 << 20)) {
+            long seq = journal.append(event(OrderEventType.CREATED, "o1", "robot001", "item1", OrderStatus.PENDING, 1));
+            assertTrue(journal.awaitDurable(seq));
+
+            // Never appended, so no flush can make it durable
+            long start = System.nanoTime();
+            assertFalse(journal.awaitDurable(seq + 1));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertNull(journal.getFlushFailure());
+            assertEquals(seq, journal.getAppendedSequence());
+        }
+    }
+
+    @Test
+    void testProjections() throws IOException {
+        try (OrderEventJournal journal = open(1 << 20)) {
+            journal.append(event(OrderEventType.CREATED, "o1", "robot001", "item1", OrderStatus.PENDING, 5));
+            journal.append(event(OrderEventType.CREATED, "o2", "robot002", "item1", OrderStatus.PENDING, 3));
+            journal.append(event(OrderEventType.STATUS_CHANGED, "o1", "robot001", "item1", OrderStatus.COMPLETED, 5));
+            journal.append(event(OrderEventType.CREATED, "o3", "robot001", "item2", OrderStatus.PENDING, 7));
+
+            List<OrderEvent> history = OrderEventProjections.robotHistory(journal, "robot001");
+            assertEquals(List.of("o1", "o1", "o3"), history.stream().map(OrderEvent::getOrderId).toList());
+            assertEquals(Map.of("item1", 8L, "item2", 7L), OrderEventProjections.itemDemand(journal));
+        }
+    }
+
+    private OrderEventJournal open(int segmentSize) throws IOException {
+        return open(segmentSize, 0);
+    }
+
+    private OrderEventJournal open(int segmentSize, int maxSegments) throws IOException {
+        OrderEventJournal journal = new OrderEventJournal(directory, segmentSize, maxSegments, 1, true, 1000);
+        journal.open();
+        return journal;
+    }
+
+    private static OrderEvent event(OrderEventType type, String orderId, String robotId, String itemId, OrderStatus status, int quantity) {
+        return new OrderEvent(type, System.currentTimeMillis(), orderId, robotId, itemId, status, quantity);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private Path firstSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().findFirst().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ro.unibuc.hello.limit;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.cluster.OwnerProxy;
+import ro.unibuc.hello.limit.ConcurrencyLimiter.Permit;
+import ro.unibuc.hello.limit.ConcurrencyLimiter.Priority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitFilterTest {
+
+    @Spy
+    private ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter();
+
+    @Mock
+    private OwnerProxy ownerProxy;
+
+    @InjectMocks
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(concurrencyLimiter, "initialLimit", 10);
+        ReflectionTestUtils.setField(concurrencyLimiter, "minLimit", 10);
+        ReflectionTestUtils.setField(concurrencyLimiter, "maxLimit", 10);
+        concurrencyLimiter.start();
+    }
+
+    @Test
+    void testClassifiesByPriority() {
+        assertEquals(Priority.CRITICAL, ConcurrencyLimitFilter.classify("PUT", "/robots/robot001/status"));
+        assertEquals(Priority.HIGH, ConcurrencyLimitFilter.classify("POST", "/orders"));
+        assertEquals(Priority.NORMAL, ConcurrencyLimitFilter.classify("GET", "/orders/order001"));
+        assertEquals(Priority.NORMAL, ConcurrencyLimitFilter.classify("POST", "/inventory"));
+        assertEquals(Priority.LOW, ConcurrencyLimitFilter.classify("GET", "/robots"));
+        assertEquals(Priority.LOW, ConcurrencyLimitFilter.classify("GET", "/inventory/export"));
+        assertEquals(Priority.LOW, ConcurrencyLimitFilter.classify("POST", "/inventory/import"));
+        assertNull(ConcurrencyLimitFilter.classify("GET", "/actuator/health"));
+        assertNull(ConcurrencyLimitFilter.classify("GET", "/robotsextra"));
+    }
+
+    @Test
+    void testReleasesThePermitAfterTheRequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", "/robots"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    void testShedsLowPriorityFirst() throws Exception {
+        List<Permit> held = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            held.add(concurrencyLimiter.tryAcquire(Priority.NORMAL));
+        }
+        assertNull(concurrencyLimiter.tryAcquire(Priority.NORMAL));
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", "/orders"), shed, new MockFilterChain());
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader(HttpHeaders.RETRY_AFTER));
+
+        MockHttpServletResponse statusUpdate = new MockHttpServletResponse();
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("PUT", "/robots/robot001/status"), statusUpdate, new MockFilterChain());
+        assertEquals(200, statusUpdate.getStatus());
+
+        held.forEach(Permit::release);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    void testRequestsForwardedByAPeerDoNotTakeASecondPermit() throws Exception {
+        List<Permit> held = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            held.add(concurrencyLimiter.tryAcquire(Priority.NORMAL));
+        }
+        MockHttpServletRequest forwarded = new MockHttpServletRequest("GET", "/orders");
+        forwarded.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+        when(ownerProxy.isForwardedByPeer(forwarded)).thenReturn(true);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        concurrencyLimitFilter.doFilter(forwarded, response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(8, concurrencyLimiter.getInFlight());
+        held.forEach(Permit::release);
+    }
+
+    @Test
+    void testAsyncRequestsHoldTheirPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/inventory/export");
+        request.setAsyncSupported(true);
+        FilterChain startsAsync = (req, res) -> req.startAsync();
+
+        concurrencyLimitFilter.doFilter(request, new MockHttpServletResponse(), startsAsync);
+        assertEquals(1, concurrencyLimiter.getInFlight());
+
+        request.getAsyncContext().complete();
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    void testPermitsAreReleasedOnlyOnce() {
+        Permit permit = concurrencyLimiter.tryAcquire(Priority.LOW);
+        concurrencyLimiter.tryAcquire(Priority.LOW);
+
+        permit.release();
+        permit.release();
+
+        assertEquals(1, concurrencyLimiter.getInFlight());
+    }
+}
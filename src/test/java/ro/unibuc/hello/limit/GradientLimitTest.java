@@ -0,0 +1,56 @@
+package ro.unibuc.hello.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientLimitTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Every sample closes a window
+    private final GradientLimit limit = new GradientLimit(10, 2, 100, 0.2, 1.5, 0, 1);
+    private long now;
+
+    @Test
+    void testGrowsWhileLatencyIsSteady() {
+        feed(50, 10 * MS, 10);
+
+        assertTrue(limit.getLimit() > 10, "limit: " + limit.getLimit());
+        assertTrue(limit.getLimit() <= 100);
+    }
+
+    @Test
+    void testShrinksWhenLatencyClimbs() {
+        feed(5, 10 * MS, 10);
+        int before = limit.getLimit();
+
+        feed(50, 100 * MS, 100);
+
+        assertTrue(limit.getLimit() < before, "limit: " + limit.getLimit());
+        assertTrue(limit.getLimit() >= 2);
+    }
+
+    @Test
+    void testIgnoresWindowsThatBarelyUseTheLimit() {
+        feed(50, 10 * MS, 1);
+        feed(50, 500 * MS, 1);
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void testInvalidBoundsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(1, 2, 100, 0.2, 1.5, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(10, 20, 15, 0.2, 1.5, 0, 1));
+    }
+
+    private void feed(int samples, long rtt, int inFlight) {
+        for (int i = 0; i < samples; i++) {
+            now += MS;
+            limit.onSample(now, rtt, inFlight);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ro.unibuc.hello.limit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.cluster.OwnerProxy;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class RateLimitFilterTest {
+
+    @Spy
+    private RateLimiter rateLimiter = new RateLimiter();
+
+    @Mock
+    private OwnerProxy ownerProxy;
+
+    @InjectMocks
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Slow enough that no token comes back while a test runs
+        ReflectionTestUtils.setField(rateLimiter, "robotStatusPerSecond", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "robotStatusBurst", 2);
+        ReflectionTestUtils.setField(rateLimiter, "readsPerSecond", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "readsBurst", 3);
+        ReflectionTestUtils.setField(rateLimiter, "writesPerSecond", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "writesBurst", 3);
+        rateLimiter.start();
+        ReflectionTestUtils.setField(rateLimitFilter, "apiKeys", Set.of("key-a", "key-b", "key-c"));
+    }
+
+    @Test
+    void testReportsRemainingTokens() throws Exception {
+        MockHttpServletResponse response = perform("GET", "/robots", "key-a");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("3", response.getHeader(RateLimitFilter.RATE_LIMIT_LIMIT));
+        assertEquals("2", response.getHeader(RateLimitFilter.RATE_LIMIT_REMAINING));
+        assertNotNull(response.getHeader(RateLimitFilter.RATE_LIMIT_RESET));
+    }
+
+    @Test
+    void testRejectsOnceTheClientIsOutOfTokens() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform("GET", "/orders", "key-a").getStatus());
+        }
+
+        MockHttpServletResponse rejected = perform("GET", "/orders", "key-a");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("0", rejected.getHeader(RateLimitFilter.RATE_LIMIT_REMAINING));
+        assertNotNull(rejected.getHeader(HttpHeaders.RETRY_AFTER));
+
+        assertEquals(200, perform("GET", "/orders", "key-b").getStatus());
+    }
+
+    @Test
+    void testRobotStatusIsLimitedPerRobotAcrossKeys() throws Exception {
+        assertEquals(200, perform("PUT", "/robots/robot001/status", "key-a").getStatus());
+        assertEquals(200, perform("PUT", "/robots/robot001/status", "key-b").getStatus());
+
+        assertEquals(429, perform("PUT", "/robots/robot001/status", "key-c").getStatus());
+        assertEquals(200, perform("PUT", "/robots/robot002/status", "key-c").getStatus());
+    }
+
+    @Test
+    void testRobotRejectionDoesNotSpendTheClientToken() throws Exception {
+        assertEquals(200, perform("PUT", "/robots/robot001/status", "key-a").getStatus());
+        assertEquals(200, perform("PUT", "/robots/robot001/status", "key-a").getStatus());
+        assertEquals(429, perform("PUT", "/robots/robot001/status", "key-a").getStatus());
+
+        // The rejected update left key-a its third write
+        MockHttpServletResponse response = perform("PUT", "/robots/robot002/status", "key-a");
+        assertEquals(200, response.getStatus());
+        assertEquals("0", response.getHeader(RateLimitFilter.RATE_LIMIT_REMAINING));
+    }
+
+    @Test
+    void testUnknownKeysShareTheAddressBucket() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform("GET", "/orders", "made-up-" + i).getStatus());
+        }
+
+        assertEquals(429, perform("GET", "/orders", "made-up-3").getStatus());
+        assertEquals(200, perform("GET", "/orders", "key-a").getStatus());
+    }
+
+    @Test
+    void testFallsBackToTheClientAddress() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            perform("GET", "/inventory", null);
+        }
+
+        assertEquals(429, perform("GET", "/inventory", null).getStatus());
+    }
+
+    @Test
+    void testOtherPathsAreNotLimited() throws Exception {
+        MockHttpServletResponse response = perform("GET", "/actuator/health", "key-a");
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(RateLimitFilter.RATE_LIMIT_LIMIT));
+    }
+
+    @Test
+    void testRequestsForwardedByAPeerAreNotCountedAgain() throws Exception {
+        MockHttpServletRequest forwarded = request("PUT", "/robots/robot001/status", "key-a");
+        forwarded.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+        forwarded.setRemoteAddr("10.0.0.8");
+        when(ownerProxy.isForwardedByPeer(forwarded)).thenReturn(true);
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = perform(forwarded);
+            assertEquals(200, response.getStatus());
+            assertNull(response.getHeader(RateLimitFilter.RATE_LIMIT_LIMIT));
+        }
+
+        // Neither the robot's nor key-a's tokens were spent by the forwarded updates
+        assertEquals(200, perform("PUT", "/robots/robot001/status", "key-a").getStatus());
+        MockHttpServletResponse direct = perform("PUT", "/robots/robot001/status", "key-a");
+        assertEquals(200, direct.getStatus());
+        assertEquals("1", direct.getHeader(RateLimitFilter.RATE_LIMIT_REMAINING));
+    }
+
+    @Test
+    void testForwardedHeaderFromAnOutsiderIsStillLimited() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest spoofed = request("GET", "/orders", null);
+            spoofed.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+            assertEquals(200, perform(spoofed).getStatus());
+        }
+
+        MockHttpServletRequest spoofed = request("GET", "/orders", null);
+        spoofed.addHeader(OwnerProxy.FORWARDED_HEADER, "true");
+        assertEquals(429, perform(spoofed).getStatus());
+    }
+
+    private MockHttpServletResponse perform(String method, String path, String apiKey) throws Exception {
+        return perform(request(method, path, apiKey));
+    }
+
+    private MockHttpServletRequest request(String method, String path, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,97 @@
+package ro.unibuc.hello.limit;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.limit.TokenBucketTable.Decision;
+import ro.unibuc.hello.limit.TokenBucketTable.Limit;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTableTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBucketTable table = new TokenBucketTable();
+    private final Limit tenPerSecond = new Limit("test", 10, 5);
+
+    @Test
+    void testBurstThenReject() {
+        long now = 1_000 * SECOND;
+        for (int i = 4; i >= 0; i--) {
+            Decision decision = table.tryAcquire("robot001", tenPerSecond, now);
+            assertTrue(decision.isAllowed());
+            assertEquals(i, decision.getRemaining());
+        }
+
+        Decision rejected = table.tryAcquire("robot001", tenPerSecond, now);
+        assertFalse(rejected.isAllowed());
+        assertEquals(SECOND / 10, rejected.getRetryAfterNanos());
+        assertEquals(SECOND / 2, rejected.getResetNanos());
+    }
+
+    @Test
+    void testRefillsLazilyWithTime() {
+        long now = 0;
+        for (int i = 0; i < 5; i++) {
+            table.tryAcquire("robot001", tenPerSecond, now);
+        }
+        assertFalse(table.tryAcquire("robot001", tenPerSecond, now).isAllowed());
+
+        now += SECOND / 10;
+        assertTrue(table.tryAcquire("robot001", tenPerSecond, now).isAllowed());
+        assertFalse(table.tryAcquire("robot001", tenPerSecond, now).isAllowed());
+
+        // Idle for long enough refills to the burst, never beyond it
+        now += 10 * SECOND;
+        assertEquals(4, table.tryAcquire("robot001", tenPerSecond, now).getRemaining());
+    }
+
+    @Test
+    void testKeysAreIndependent() {
+        for (int i = 0; i < 5; i++) {
+            table.tryAcquire("robot001", tenPerSecond, 0);
+        }
+
+        assertFalse(table.tryAcquire("robot001", tenPerSecond, 0).isAllowed());
+        assertTrue(table.tryAcquire("robot002", tenPerSecond, 0).isAllowed());
+    }
+
+    @Test
+    void testEvictsOnlyRefilledBuckets() {
+        table.tryAcquire("robot001", tenPerSecond, 0);
+        table.tryAcquire("robot002", tenPerSecond, SECOND);
+
+        assertEquals(1, table.evictIdle(SECOND));
+        assertEquals(1, table.size());
+        assertEquals(1, table.evictIdle(2 * SECOND));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void testConcurrentTakesNeverExceedTheBurst() throws Exception {
+        Limit slow = new Limit("slow", 0.001, 100);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1_000; i++) {
+            executor.submit(() -> {
+                if (table.tryAcquire("client", slow, 0).isAllowed()) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(100, allowed.get());
+    }
+
+    @Test
+    void testInvalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Limit("bad", 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new Limit("bad", 10, 0));
+    }
+}
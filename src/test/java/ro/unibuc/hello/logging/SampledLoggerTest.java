@@ -0,0 +1,90 @@
+package ro.unibuc.hello.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledLoggerTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SampledLoggerTest.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(null);
+    }
+
+    @Test
+    void testDropsMessagesBeyondTheBurstAndReportsThem() {
+        // One per hour, so no token comes back during the test
+        SampledLogger sampled = new SampledLogger(logger, 1.0 / 3600, 3);
+
+        for (int i = 0; i < 10; i++) {
+            sampled.info("order.created", "Order saved with ID: {}", "o" + i);
+        }
+
+        assertEquals(3, appender.list.size());
+        assertEquals("Order saved with ID: o0", appender.list.get(0).getFormattedMessage());
+        assertEquals(7, sampled.suppressedCount("order.created"));
+    }
+
+    @Test
+    void testKeysHaveTheirOwnBudget() {
+        SampledLogger sampled = new SampledLogger(logger, 1.0 / 3600, 1);
+
+        sampled.info("order.created", "Order saved with ID: {}", "o1");
+        sampled.info("order.created", "Order saved with ID: {}", "o2");
+        sampled.info("order.deleted", "Order {} successfully deleted", "o1");
+
+        assertEquals(2, appender.list.size());
+        assertEquals("Order o1 successfully deleted", appender.list.get(1).getFormattedMessage());
+        assertEquals(0, sampled.suppressedCount("order.deleted"));
+    }
+
+    @Test
+    void testNextMessageCarriesTheSuppressedCount() {
+        SampledLogger sampled = new SampledLogger(logger, 1000, 1);
+
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (sampled.suppressedCount("order.status") == 0 && System.nanoTime() < deadline) {
+            sampled.info("order.status", "Order {} updated to status {}", "o1", "COMPLETED");
+        }
+        appender.list.clear();
+        while (appender.list.isEmpty() && System.nanoTime() < deadline) {
+            sampled.info("order.status", "Order {} updated to status {}", "o2", "COMPLETED");
+        }
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals("suppressed", event.getKeyValuePairs().get(0).key);
+        assertTrue((Long) event.getKeyValuePairs().get(0).value >= 1);
+        assertEquals(0, sampled.suppressedCount("order.status"));
+    }
+
+    @Test
+    void testDisabledLevelSkipsTheBucket() {
+        logger.setLevel(Level.WARN);
+        SampledLogger sampled = new SampledLogger(logger, 1.0 / 3600, 1);
+
+        sampled.info("order.created", "Order saved with ID: {}", "o1");
+        sampled.info("order.created", "Order saved with ID: {}", "o2");
+
+        assertTrue(appender.list.isEmpty());
+        assertEquals(0, sampled.suppressedCount("order.created"));
+    }
+}
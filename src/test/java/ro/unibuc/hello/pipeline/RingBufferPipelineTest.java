@@ -0,0 +1,127 @@
+package ro.unibuc.hello.pipeline;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferPipelineTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 20_000;
+
+    @Test
+    void testRejectsSizeThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(Slot::new, 100, WaitStrategy.of("yielding")));
+    }
+
+    @Test
+    void testUnknownWaitStrategy() {
+        assertThrows(IllegalArgumentException.class, () -> WaitStrategy.of("polling"));
+    }
+
+    @Test
+    void testTryNextGivesUpWhileTheRingStaysFull() {
+        RingBuffer<Slot> ringBuffer = new RingBuffer<>(Slot::new, 4, WaitStrategy.of("sleeping"));
+        // A stage that never consumes anything
+        Sequence stalled = new Sequence();
+        ringBuffer.setGatingSequences(stalled);
+        for (int i = 0; i < 4; i++) {
+            ringBuffer.publish(ringBuffer.tryNext(TimeUnit.MILLISECONDS.toNanos(10)));
+        }
+
+        long start = System.nanoTime();
+        assertEquals(-1, ringBuffer.tryNext(TimeUnit.MILLISECONDS.toNanos(50)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        stalled.set(0);
+        assertEquals(4, ringBuffer.tryNext(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    void testBusySpinDeliversEveryEventToEveryStageInOrder() throws Exception {
+        runPipeline("busy-spin");
+    }
+
+    @Test
+    void testBlockingDeliversEveryEventToEveryStageInOrder() throws Exception {
+        runPipeline("blocking");
+    }
+
+    @Test
+    void testSleepingDeliversEveryEventToEveryStageInOrder() throws Exception {
+        runPipeline("sleeping");
+    }
+
+    private void runPipeline(String waitStrategy) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Small ring so producers regularly wait for the slowest stage
+        RingBuffer<Slot> ringBuffer = new RingBuffer<>(Slot::new, 64, WaitStrategy.of(waitStrategy));
+        long total = (long) PRODUCERS * EVENTS_PER_PRODUCER;
+
+        AtomicLong firstSum = new AtomicLong();
+        List<Long> secondSeen = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        PipelineStage<Slot> first = new PipelineStage<>("first", ringBuffer, new Sequence[0],
+                (slot, sequence, endOfBatch) -> {
+                    slot.doubled = slot.value * 2;
+                    firstSum.addAndGet(slot.value);
+                }, slot -> slot.publishedNanos, meterRegistry);
+        PipelineStage<Slot> second = new PipelineStage<>("second", ringBuffer, new Sequence[] {first.getSequence()},
+                (slot, sequence, endOfBatch) -> {
+                    // Must see what the first stage wrote to the same slot
+                    assertEquals(slot.value * 2, slot.doubled);
+                    secondSeen.add(sequence);
+                    if (sequence == total - 1) {
+                        done.countDown();
+                    }
+                }, slot -> slot.publishedNanos, meterRegistry);
+        ringBuffer.setGatingSequences(second.getSequence());
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(first));
+        threads.add(new Thread(second));
+        for (int p = 0; p < PRODUCERS; p++) {
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= EVENTS_PER_PRODUCER; i++) {
+                    long sequence = ringBuffer.next();
+                    Slot slot = ringBuffer.get(sequence);
+                    slot.value = i;
+                    slot.doubled = 0;
+                    slot.publishedNanos = System.nanoTime();
+                    ringBuffer.publish(sequence);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        first.halt();
+        second.halt();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        long expectedSum = PRODUCERS * ((long) EVENTS_PER_PRODUCER * (EVENTS_PER_PRODUCER + 1) / 2);
+        assertEquals(expectedSum, firstSum.get());
+        assertEquals(total, secondSeen.size());
+        for (int i = 0; i < secondSeen.size(); i++) {
+            assertEquals(i, secondSeen.get(i));
+        }
+        assertEquals(0, meterRegistry.get("pipeline.stage.errors").tag("stage", "second").counter().count());
+        assertEquals(total, meterRegistry.get("pipeline.stage.latency").tag("stage", "first").timer().count());
+    }
+
+    private static class Slot {
+        private long value;
+        private long doubled;
+        private long publishedNanos;
+    }
+}
@@ -0,0 +1,72 @@
+package ro.unibuc.hello.profiling;
+
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEndpointTest {
+
+    private final FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint();
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void testRecordsOrderPhasesAndStreamsTheFile() throws Exception {
+        WebEndpointResponse<Map<String, Object>> started = endpoint.start(null);
+        assertEquals(WebEndpointResponse.STATUS_OK, started.getStatus());
+        assertEquals(RecordingState.RUNNING, started.getBody().get("state"));
+
+        OrderPhaseEvent phase = new OrderPhaseEvent(OrderPhaseEvent.SAVE_ORDER, "robot1", "item1", null);
+        phase.begin();
+        phase.commit();
+        OrderStatusEvent status = new OrderStatusEvent();
+        status.begin();
+        status.set("order1", "robot1", "PENDING", "COMPLETED", 1500);
+        status.commit();
+
+        assertEquals(RecordingState.STOPPED, endpoint.stop().get("state"));
+        WebEndpointResponse<Resource> download = endpoint.download(FlightRecorderEndpoint.FILE_NAME);
+        assertEquals(WebEndpointResponse.STATUS_OK, download.getStatus());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(download.getBody().getFile().toPath());
+        RecordedEvent recordedPhase = events.stream()
+                .filter(e -> e.getEventType().getName().equals("ro.unibuc.hello.OrderPhase"))
+                .findFirst().orElseThrow();
+        assertEquals(OrderPhaseEvent.SAVE_ORDER, recordedPhase.getString("phase"));
+        assertEquals("robot1", recordedPhase.getString("robotId"));
+        RecordedEvent recordedStatus = events.stream()
+                .filter(e -> e.getEventType().getName().equals("ro.unibuc.hello.OrderStatus"))
+                .findFirst().orElseThrow();
+        assertEquals("COMPLETED", recordedStatus.getString("to"));
+        assertEquals(1500, recordedStatus.getLong("sinceCreated"));
+        assertTrue(events.stream().noneMatch(e -> FlightRecorderEndpoint.EXCLUDED_EVENTS.contains(e.getEventType().getName())));
+    }
+
+    @Test
+    void testOnlyOneRecordingAtATime() {
+        endpoint.start(null);
+
+        assertEquals(409, endpoint.start(null).getStatus());
+    }
+
+    @Test
+    void testRejectsUnknownSettingsAndFiles() {
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.start("no-such-settings").getStatus());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download(FlightRecorderEndpoint.FILE_NAME).getStatus());
+
+        endpoint.start(null);
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download("other.jfr").getStatus());
+    }
+}
@@ -0,0 +1,72 @@
+package ro.unibuc.hello.profiling;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import jdk.jfr.Recording;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MongoCommandRecorderTest {
+
+    private final MongoCommandRecorder recorder = new MongoCommandRecorder();
+
+    @Test
+    void testFindsTheCollectionOfACommand() {
+        assertEquals("orders", MongoCommandRecorder.collection(BsonDocument.parse("{find: 'orders', filter: {}}"), "find"));
+        assertEquals("robots", MongoCommandRecorder.collection(BsonDocument.parse("{getMore: {$numberLong: '42'}, collection: 'robots'}"), "getMore"));
+        assertNull(MongoCommandRecorder.collection(BsonDocument.parse("{ping: 1}"), "ping"));
+    }
+
+    @Test
+    void testCountsReturnedDocuments() {
+        assertEquals(2, MongoCommandRecorder.docsReturned(BsonDocument.parse("{cursor: {firstBatch: [{}, {}], id: 0}, ok: 1}")));
+        assertEquals(1, MongoCommandRecorder.docsReturned(BsonDocument.parse("{cursor: {nextBatch: [{}], id: 0}, ok: 1}")));
+        assertEquals(3, MongoCommandRecorder.docsReturned(BsonDocument.parse("{n: 3, ok: 1}")));
+        assertEquals(1, MongoCommandRecorder.docsReturned(BsonDocument.parse("{value: {_id: 'o1'}, ok: 1}")));
+        assertEquals(0, MongoCommandRecorder.docsReturned(BsonDocument.parse("{value: null, ok: 1}")));
+    }
+
+    @Test
+    void testTracksCommandsOnlyWhileRecording() {
+        recorder.commandStarted(started(1));
+        assertEquals(0, recorder.inFlight());
+
+        try (Recording recording = new Recording()) {
+            recording.enable(MongoCommandEvent.class);
+            recording.start();
+
+            recorder.commandStarted(started(2));
+            recorder.commandStarted(started(3));
+            assertEquals(2, recorder.inFlight());
+
+            CommandSucceededEvent succeeded = mock(CommandSucceededEvent.class);
+            when(succeeded.getRequestId()).thenReturn(2);
+            when(succeeded.getResponse()).thenReturn(BsonDocument.parse("{cursor: {firstBatch: [{}], id: 0}, ok: 1}"));
+            recorder.commandSucceeded(succeeded);
+            CommandFailedEvent failed = mock(CommandFailedEvent.class);
+            when(failed.getRequestId()).thenReturn(3);
+            recorder.commandFailed(failed);
+
+            assertEquals(0, recorder.inFlight());
+        }
+    }
+
+    private static CommandStartedEvent started(int requestId) {
+        CommandStartedEvent event = mock(CommandStartedEvent.class);
+        when(event.getRequestId()).thenReturn(requestId);
+        when(event.getDatabaseName()).thenReturn("test");
+        when(event.getCommandName()).thenReturn("find");
+        when(event.getCommand()).thenReturn(BsonDocument.parse("{find: 'orders'}"));
+        when(event.getConnectionDescription()).thenReturn(
+                new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress("localhost", 27017))));
+        return event;
+    }
+}
@@ -0,0 +1,94 @@
+package ro.unibuc.hello.resilience;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.resilience.CircuitBreaker.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private final CircuitBreaker breaker = new CircuitBreaker("orders", 10, 4, 0.5, 1000, 2, clock::get,
+            (from, to) -> transitions.add(from + "->" + to));
+
+    @Test
+    void testStaysClosedBelowTheThreshold() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquire());
+            if (i % 4 == 3) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(0.2, breaker.getFailureRate(), 1e-9);
+    }
+
+    @Test
+    void testWaitsForMinimumCallsBeforeOpening() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void testHalfOpenTrialsCloseTheBreaker() {
+        open();
+        clock.addAndGet(1000);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void testFailedTrialReopens() {
+        open();
+        clock.addAndGet(1000);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void testReleasedTrialCanBeRetaken() {
+        open();
+        clock.addAndGet(1000);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.release();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+        assertEquals(State.OPEN, breaker.getState());
+    }
+}
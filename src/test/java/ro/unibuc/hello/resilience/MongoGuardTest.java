@@ -0,0 +1,198 @@
+package ro.unibuc.hello.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.StoreUnavailableException;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private MongoGuard mongoGuard;
+
+    @BeforeEach
+    void setUp() {
+        mongoGuard = new MongoGuard();
+        ReflectionTestUtils.setField(mongoGuard, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(mongoGuard, "minimumCalls", 2);
+        ReflectionTestUtils.setField(mongoGuard, "permitWaitMs", 10L);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testServesTheLastKnownValueWhenMongoFails() {
+        assertEquals("robot001", mongoGuard.read(MongoGuard.ROBOTS, "robot:1", () -> "robot001"));
+
+        String stale = mongoGuard.read(MongoGuard.ROBOTS, "robot:1", () -> {
+            throw new DataAccessResourceFailureException("connection refused");
+        });
+
+        assertEquals("robot001", stale);
+        assertEquals("STALE", response.getHeader(MongoGuard.CACHE_STATUS_HEADER));
+        assertEquals("0", response.getHeader(HttpHeaders.AGE));
+        assertEquals(1, meterRegistry.counter("mongo.fallback.served", "collection", "robots", "kind", "read").count());
+        assertTrue(MongoGuard.servedStale());
+    }
+
+    @Test
+    void testStaleResponseLosesTheCurrentETag() {
+        mongoGuard.read(MongoGuard.ROBOTS, "robots", () -> "cached");
+        // Set by the conditional GET check before the read
+        response.setHeader(HttpHeaders.ETAG, "\"robots-1\"");
+
+        mongoGuard.read(MongoGuard.ROBOTS, "robots", () -> {
+            throw new DataAccessResourceFailureException("connection refused");
+        });
+
+        assertNotEquals("\"robots-1\"", response.getHeader(HttpHeaders.ETAG));
+        assertTrue(response.getHeader(HttpHeaders.ETAG).startsWith("\"stale-"));
+    }
+
+    @Test
+    void testFreshReadIsNotStale() {
+        mongoGuard.read(MongoGuard.ROBOTS, "robots", () -> "fresh");
+
+        assertFalse(MongoGuard.servedStale());
+        assertNull(response.getHeader(MongoGuard.CACHE_STATUS_HEADER));
+    }
+
+    @Test
+    void testLastKnownValuesStayBounded() {
+        ReflectionTestUtils.setField(mongoGuard, "cacheMaxEntries", 100);
+
+        for (int i = 0; i < 1000; i++) {
+            mongoGuard.read(MongoGuard.ROBOTS, "robot:" + i, () -> "robot");
+        }
+
+        Map<?, ?> lastKnown = (Map<?, ?>) ReflectionTestUtils.getField(mongoGuard, "lastKnown");
+        assertTrue(lastKnown.size() <= 100, "cache grew to " + lastKnown.size());
+    }
+
+    @Test
+    void testOpenCircuitSkipsMongoAndFailsWritesFast() {
+        mongoGuard.read(MongoGuard.ORDERS, "orders", () -> "cached");
+        fail(MongoGuard.ORDERS);
+        fail(MongoGuard.ORDERS);
+        assertEquals(CircuitBreaker.State.OPEN, mongoGuard.breaker(MongoGuard.ORDERS).getState());
+
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("cached", mongoGuard.read(MongoGuard.ORDERS, "orders", () -> "fresh" + calls.incrementAndGet()));
+        assertThrows(StoreUnavailableException.class, () -> mongoGuard.read(MongoGuard.ORDERS, "order:1", calls::incrementAndGet));
+        assertThrows(StoreUnavailableException.class, () -> mongoGuard.write(MongoGuard.ORDERS, calls::incrementAndGet));
+        assertEquals(0, calls.get());
+
+        // Other collections keep working
+        assertEquals("ok", mongoGuard.write(MongoGuard.ROBOTS, () -> "ok"));
+    }
+
+    @Test
+    void testBusinessErrorsDoNotTripTheBreakerAndDropTheCachedValue() {
+        mongoGuard.read(MongoGuard.INVENTORY, "item:1", () -> "item");
+        for (int i = 0; i < 5; i++) {
+            assertThrows(EntityNotFoundException.class, () -> mongoGuard.read(MongoGuard.INVENTORY, "item:1", () -> {
+                throw new EntityNotFoundException("Inventory item with ID 1 not found");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, mongoGuard.breaker(MongoGuard.INVENTORY).getState());
+
+        StoreUnavailableException e = assertThrows(StoreUnavailableException.class,
+                () -> mongoGuard.read(MongoGuard.INVENTORY, "item:1", () -> {
+                    throw new DataAccessResourceFailureException("connection refused");
+                }));
+        assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+    }
+
+    @Test
+    void testFullBulkheadRejectsWithoutWaitingForMongo() throws Exception {
+        ReflectionTestUtils.setField(mongoGuard, "writePermits", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> mongoGuard.write(MongoGuard.ROBOTS, () -> {
+                started.countDown();
+                await(release);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(StoreUnavailableException.class, () -> mongoGuard.write(MongoGuard.ROBOTS, () -> "second"));
+            // Reads have their own pool
+            assertEquals("read", mongoGuard.read(MongoGuard.ROBOTS, "robots", () -> "read"));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testCallerSharingAnotherLoadHoldsNoPermitAndFallsBackItself() {
+        ReflectionTestUtils.setField(mongoGuard, "readPermits", 1);
+        mongoGuard.read(MongoGuard.ROBOTS, "robot:1", () -> "robot001");
+        StoreUnavailableException leaderFailure = new StoreUnavailableException(MongoGuard.ROBOTS, "connection refused", 5, null);
+
+        // Another caller runs the load; this one only waits for its outcome
+        String stale = mongoGuard.read(MongoGuard.ROBOTS, "robot:1", () -> "fresh", load -> {
+            assertEquals(1, mongoGuard.availableReadPermits(MongoGuard.ROBOTS));
+            throw leaderFailure;
+        });
+
+        assertEquals("robot001", stale);
+        assertEquals("STALE", response.getHeader(MongoGuard.CACHE_STATUS_HEADER));
+        assertThrows(StoreUnavailableException.class, () -> mongoGuard.read(MongoGuard.ROBOTS, "robot:2", () -> "fresh", load -> {
+            throw leaderFailure;
+        }));
+    }
+
+    @Test
+    void testHealthReportsAnOpenBreaker() {
+        MongoGuardHealthIndicator indicator = new MongoGuardHealthIndicator();
+        ReflectionTestUtils.setField(indicator, "mongoGuard", mongoGuard);
+        mongoGuard.read(MongoGuard.ROBOTS, "robots", () -> "ok");
+        assertEquals(Status.UP, indicator.health().getStatus());
+
+        fail(MongoGuard.ORDERS);
+        fail(MongoGuard.ORDERS);
+
+        assertEquals(Status.OUT_OF_SERVICE, indicator.health().getStatus());
+        assertNotNull(indicator.health().getDetails().get(MongoGuard.ORDERS));
+    }
+
+    private void fail(String collection) {
+        assertThrows(StoreUnavailableException.class, () -> mongoGuard.write(collection, () -> {
+            throw new DataAccessResourceFailureException("connection refused");
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
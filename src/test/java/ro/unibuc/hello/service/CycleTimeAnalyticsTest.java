@@ -0,0 +1,100 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.dto.CycleTimeStatsDTO;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CycleTimeAnalyticsTest {
+
+    private CycleTimeAnalytics cycleTimeAnalytics;
+
+    @BeforeEach
+    void setUp() {
+        cycleTimeAnalytics = new CycleTimeAnalytics();
+        ReflectionTestUtils.setField(cycleTimeAnalytics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cycleTimeAnalytics, "windowMs", 1000L);
+        ReflectionTestUtils.setField(cycleTimeAnalytics, "windows", 3);
+        cycleTimeAnalytics.registerMetrics();
+    }
+
+    @Test
+    void testPercentilesPerScope() {
+        for (int i = 1; i <= 100; i++) {
+            cycleTimeAnalytics.record("robot001", "item123", Duration.ofSeconds(i));
+        }
+        cycleTimeAnalytics.record("robot002", "item124", Duration.ofMinutes(10));
+
+        CycleTimeStatsDTO robot = cycleTimeAnalytics.getStats("robot001", null);
+        assertEquals(100, robot.getCount());
+        assertEquals(50_000, robot.getP50Ms(), 50);
+        assertEquals(90_000, robot.getP90Ms(), 90);
+        assertEquals(99_000, robot.getP99Ms(), 99);
+        assertEquals(100_000, robot.getMaxMs(), 100);
+
+        CycleTimeStatsDTO item = cycleTimeAnalytics.getStats(null, "item124");
+        assertEquals(1, item.getCount());
+        assertEquals(600_000, item.getMaxMs(), 600);
+
+        CycleTimeStatsDTO global = cycleTimeAnalytics.getStats(null, null);
+        assertEquals(CycleTimeAnalytics.GLOBAL, global.getScope());
+        assertEquals(101, global.getCount());
+        assertEquals(3, global.getWindowSeconds());
+    }
+
+    @Test
+    void testUnknownKeyReturnsEmptyStats() {
+        CycleTimeStatsDTO stats = cycleTimeAnalytics.getStats("robot999", null);
+
+        assertEquals(0, stats.getCount());
+        assertEquals("robot999", stats.getKey());
+    }
+
+    @Test
+    void testBothFiltersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> cycleTimeAnalytics.getStats("robot001", "item123"));
+    }
+
+    @Test
+    void testValuesExpireAfterAllWindowsRotate() {
+        cycleTimeAnalytics.record("robot001", "item123", Duration.ofSeconds(5));
+
+        cycleTimeAnalytics.rotate();
+        cycleTimeAnalytics.rotate();
+        assertEquals(1, cycleTimeAnalytics.getStats("robot001", null).getCount());
+
+        cycleTimeAnalytics.rotate();
+        assertEquals(0, cycleTimeAnalytics.getStats("robot001", null).getCount());
+        assertEquals(0, cycleTimeAnalytics.getStats(null, null).getCount());
+    }
+
+    @Test
+    void testConcurrentRecordingLosesNothing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            String robotId = "robot00" + t;
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cycleTimeAnalytics.record(robotId, "item123", Duration.ofMillis(i));
+                    if (i % 1000 == 0) {
+                        cycleTimeAnalytics.getStats(null, "item123");
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(80_000, cycleTimeAnalytics.getStats(null, null).getCount());
+        assertEquals(80_000, cycleTimeAnalytics.getStats(null, "item123").getCount());
+        assertEquals(10_000, cycleTimeAnalytics.getStats("robot003", null).getCount());
+    }
+}
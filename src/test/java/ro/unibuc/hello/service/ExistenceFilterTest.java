@@ -0,0 +1,97 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.data.RobotEntity;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ExistenceFilterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ExistenceFilter existenceFilter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.getCollectionName(RobotEntity.class)).thenReturn("robots");
+        when(mongoTemplate.getCollectionName(InventoryEntity.class)).thenReturn("inventory");
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("robots")))
+                .thenReturn(Stream.of(new Document("_id", "robot001"), new Document("_id", "robot002")));
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("inventory")))
+                .thenReturn(Stream.of(new Document("_id", "item123")));
+    }
+
+    @Test
+    void testEverythingMayExistBeforeTheFirstBuild() {
+        assertTrue(existenceFilter.mightContainRobot("anything"));
+        assertTrue(existenceFilter.mightContainItem("anything"));
+    }
+
+    @Test
+    void testUnknownIdsAreRejectedAfterBuild() {
+        existenceFilter.rebuild();
+
+        assertTrue(existenceFilter.mightContainRobot("robot001"));
+        assertTrue(existenceFilter.mightContainItem("item123"));
+        assertFalse(existenceFilter.mightContainRobot("robot999"));
+        assertFalse(existenceFilter.mightContainItem("item999"));
+        assertEquals(1, meterRegistry.counter("existence.filter.checks", "collection", "robots", "result", "absent").count());
+    }
+
+    @Test
+    void testInsertsAreVisibleImmediately() {
+        existenceFilter.rebuild();
+
+        existenceFilter.addRobot("robot004");
+
+        assertTrue(existenceFilter.mightContainRobot("robot004"));
+    }
+
+    @Test
+    void testMissesAreConfirmedWhenConfigured() {
+        ReflectionTestUtils.setField(existenceFilter, "confirmMisses", true);
+        existenceFilter.rebuild();
+        when(mongoTemplate.exists(any(Query.class), eq(RobotEntity.class))).thenReturn(true);
+
+        assertTrue(existenceFilter.mightContainRobot("robot-from-other-replica"));
+        verify(mongoTemplate, times(1)).exists(any(Query.class), eq(RobotEntity.class));
+        // Confirmed IDs are added, so the next lookup stays in memory
+        assertTrue(existenceFilter.mightContainRobot("robot-from-other-replica"));
+        verify(mongoTemplate, times(1)).exists(any(Query.class), eq(RobotEntity.class));
+    }
+
+    @Test
+    void testFailedRebuildKeepsAcceptingEverything() {
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("robots"))).thenThrow(new IllegalStateException("down"));
+
+        existenceFilter.rebuild();
+
+        assertTrue(existenceFilter.mightContainRobot("robot999"));
+        assertFalse(existenceFilter.mightContainItem("item999"));
+    }
+}
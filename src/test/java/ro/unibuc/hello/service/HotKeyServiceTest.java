@@ -0,0 +1,106 @@
+package ro.unibuc.hello.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.data.HotKeySketchEntity;
+import ro.unibuc.hello.dto.HotKeyDTO;
+import ro.unibuc.hello.sketch.CountMinSketch;
+import ro.unibuc.hello.sketch.SpaceSaving;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class HotKeyServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private LeaseManager leaseManager;
+
+    @InjectMocks
+    private HotKeyService hotKeyService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(hotKeyService, "width", 256);
+        ReflectionTestUtils.setField(hotKeyService, "capacity", 16);
+        hotKeyService.start();
+        when(leaseManager.getNodeId()).thenReturn("node-a");
+    }
+
+    @Test
+    void testLocalTopItemsAndRobots() {
+        hotKeyService.recordOrderCreated("item123");
+        hotKeyService.recordOrderCreated("item123");
+        hotKeyService.recordOrderCreated("item124");
+        hotKeyService.recordOrderCompleted("robot001");
+
+        List<HotKeyDTO> items = hotKeyService.getHotItems(1);
+        assertEquals(1, items.size());
+        assertEquals("item123", items.get(0).getKey());
+        assertEquals(2, items.get(0).getCount());
+        assertEquals("robot001", hotKeyService.getTopRobots(5).get(0).getKey());
+    }
+
+    @Test
+    void testShareIsSkippedWithoutCluster() {
+        when(leaseManager.isEnabled()).thenReturn(false);
+
+        hotKeyService.share();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testShareMergesOtherReplicas() {
+        when(leaseManager.isEnabled()).thenReturn(true);
+        hotKeyService.recordOrderCreated("item124");
+
+        CountMinSketch counters = new CountMinSketch(4, 256);
+        counters.add("item123", 5);
+        HotKeySketchEntity other = new HotKeySketchEntity();
+        other.setNodeId("node-b");
+        other.setStream(HotKeyService.ITEMS);
+        other.setDepth(4);
+        other.setWidth(256);
+        other.setCounters(counters.toBytes());
+        other.setCapacity(16);
+        other.setHeavyHitters(List.of(new SpaceSaving.Entry("item123", 5, 0)));
+        other.setUpdatedAt(new Date());
+        when(mongoTemplate.find(any(Query.class), eq(HotKeySketchEntity.class))).thenReturn(List.of(other));
+
+        hotKeyService.share();
+
+        ArgumentCaptor<HotKeySketchEntity> saved = ArgumentCaptor.forClass(HotKeySketchEntity.class);
+        verify(mongoTemplate, times(2)).save(saved.capture());
+        assertTrue(saved.getAllValues().stream().allMatch(entity -> entity.getId().startsWith("node-a:")));
+
+        List<HotKeyDTO> items = hotKeyService.getHotItems(2);
+        assertEquals("item123", items.get(0).getKey());
+        assertEquals(5, items.get(0).getCount());
+        assertEquals("item124", items.get(1).getKey());
+    }
+
+    @Test
+    void testLimitMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> hotKeyService.getHotItems(0));
+    }
+}
@@ -0,0 +1,153 @@
+package ro.unibuc.hello.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.dto.InventoryImportReport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class InventoryBulkServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private StockLedgerService stockLedgerService;
+
+    @Mock
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Mock
+    private ExistenceFilter existenceFilter;
+
+    @Spy
+    private InventoryService inventoryService = new InventoryService();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @InjectMocks
+    private InventoryBulkService inventoryBulkService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(InventoryEntity.class))).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void testImportCsv_RejectsInvalidAndDuplicateRows() throws Exception {
+        String csv = "itemId,name,stock,threshold\n"
+                + "item1,\"Bolts, M6\",50,10\n"
+                + "item2,,10,5\n"
+                + "item1,Duplicate,1,1\n"
+                + "item3,Nuts,-1,1\n";
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class))).thenReturn(Collections.emptyList());
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList(), Collections.emptyList()));
+        List<InventoryImportReport> progress = new ArrayList<>();
+
+        InventoryImportReport report = inventoryBulkService.importInventory(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true, progress::add);
+
+        assertTrue(report.isDone());
+        assertEquals(4, report.getProcessed());
+        assertEquals(1, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertEquals(1, progress.size());
+        verify(bulkOperations, times(1)).insert(any(Object.class));
+    }
+
+    @Test
+    void testImportNdjson_SkipsExistingItems() throws Exception {
+        String ndjson = "{\"itemId\":\"item1\",\"name\":\"Item 1\",\"stock\":5,\"threshold\":1}\n"
+                + "{\"itemId\":\"item2\",\"name\":\"Item 2\",\"stock\":5,\"threshold\":1}\n"
+                + "not json\n";
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class)))
+                .thenReturn(List.of(new InventoryEntity("item1", "Item 1", 5, 1)));
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList(), Collections.emptyList()));
+
+        InventoryImportReport report = inventoryBulkService.importInventory(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), false, r -> { });
+
+        assertEquals(3, report.getProcessed());
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getRejected());
+    }
+
+    @Test
+    void testImportNdjson_RejectsNullLine() throws Exception {
+        String ndjson = "null\n"
+                + "{\"itemId\":\"item1\",\"name\":\"Item 1\",\"stock\":5,\"threshold\":1}\n";
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class))).thenReturn(Collections.emptyList());
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList(), Collections.emptyList()));
+
+        InventoryImportReport report = inventoryBulkService.importInventory(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), false, r -> { });
+
+        assertEquals(2, report.getProcessed());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+    }
+
+    @Test
+    void testImportCsv_RejectsValueSpanningLines() throws Exception {
+        String csv = "itemId,name,stock,threshold\n"
+                + "item1,\"Bolts\n"
+                + "M6\",50,10\n";
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class))).thenReturn(Collections.emptyList());
+
+        InventoryImportReport report = inventoryBulkService.importInventory(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true, r -> { });
+
+        assertEquals(2, report.getProcessed());
+        assertEquals(0, report.getImported());
+        assertEquals(2, report.getRejected());
+        verify(bulkOperations, never()).insert(any(Object.class));
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        when(mongoTemplate.stream(any(Query.class), eq(InventoryEntity.class)))
+                .thenReturn(Stream.of(new InventoryEntity("item1", "Bolts, M6", 50, 10)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        inventoryBulkService.exportInventory(output, true);
+
+        assertEquals("itemId,name,stock,threshold\nitem1,\"Bolts, M6\",50,10\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParseCsvLine_QuotedValues() {
+        assertEquals(List.of("a", "b,c", "d\"e", ""), InventoryBulkService.parseCsvLine("a,\"b,c\",\"d\"\"e\","));
+    }
+}
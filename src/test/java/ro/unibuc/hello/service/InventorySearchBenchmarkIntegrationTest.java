@@ -0,0 +1,105 @@
+package ro.unibuc.hello.service;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ro.unibuc.hello.data.InventoryEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares type-ahead latency of the in-memory index against an anchored, case-insensitive Mongo regex
+ * over the same catalog. Results are printed so runs can be compared across changes.
+ */
+@SpringBootTest
+@Testcontainers
+@Tag("IntegrationTest")
+public class InventorySearchBenchmarkIntegrationTest {
+
+    private static final int ITEMS = 50_000;
+    private static final int QUERIES = 500;
+    private static final String[] WORDS = {
+            "hex", "bolt", "nut", "washer", "screw", "bracket", "hinge", "cable", "tie", "drill",
+            "steel", "zinc", "brass", "m4", "m6", "m8", "long", "short", "heavy", "duty"
+    };
+
+    @Container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20")
+            .withExposedPorts(27017)
+            .withSharding();
+
+    @BeforeAll
+    public static void setUp() {
+        mongoDBContainer.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        mongoDBContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        final String MONGO_URL = "mongodb://localhost:";
+        final String PORT = String.valueOf(mongoDBContainer.getMappedPort(27017));
+        registry.add("mongodb.connection.url", () -> MONGO_URL + PORT);
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Test
+    public void benchmarkIndexAgainstMongoRegex() {
+        Random random = new Random(42);
+        List<InventoryEntity> items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            items.add(new InventoryEntity("bench" + i, name, 10, 1));
+        }
+        mongoTemplate.insert(items, InventoryEntity.class);
+        inventorySearchIndex.rebuild();
+
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            queries[i] = word.substring(0, Math.min(word.length(), 1 + random.nextInt(3)));
+        }
+
+        long indexNanos = 0;
+        long regexNanos = 0;
+        for (String q : queries) {
+            long start = System.nanoTime();
+            inventorySearchIndex.search(q, 10);
+            indexNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Query query = new Query(Criteria.where("name").regex("(^|\\s)" + Pattern.quote(q), "i")).limit(10);
+            mongoTemplate.find(query, InventoryEntity.class);
+            regexNanos += System.nanoTime() - start;
+        }
+
+        double indexMicros = indexNanos / 1000.0 / QUERIES;
+        double regexMicros = regexNanos / 1000.0 / QUERIES;
+        System.out.printf("Inventory search over %d items: index %.1f us/query, Mongo regex %.1f us/query, index ~%d KB%n",
+                inventorySearchIndex.size(), indexMicros, regexMicros, inventorySearchIndex.estimatedBytes() / 1024);
+
+        assertTrue(inventorySearchIndex.size() >= ITEMS);
+        assertTrue(indexMicros < regexMicros, "index should answer type-ahead faster than a regex scan");
+    }
+}
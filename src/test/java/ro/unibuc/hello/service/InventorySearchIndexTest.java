@@ -0,0 +1,106 @@
+package ro.unibuc.hello.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.dto.InventorySearchResultDTO;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventorySearchIndexTest {
+
+    private InventorySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InventorySearchIndex();
+        index.add("item1", "Hex Bolt M6");
+        index.add("item2", "Hex Nut M6");
+        index.add("item3", "Bolt Cutter, heavy-duty");
+        index.add("item4", "Washer M6");
+    }
+
+    @Test
+    void testSearch_WordPrefix() {
+        assertEquals(List.of("item3", "item1"), ids(index.search("bol", 10)));
+    }
+
+    @Test
+    void testSearch_AllTermsMustMatch() {
+        assertEquals(List.of("item2"), ids(index.search("hex n", 10)));
+    }
+
+    @Test
+    void testSearch_RanksWholeNamePrefixFirst() {
+        assertEquals("item3", ids(index.search("bolt", 10)).get(0));
+    }
+
+    @Test
+    void testSearch_RespectsLimit() {
+        assertEquals(2, index.search("m6", 2).size());
+    }
+
+    @Test
+    void testRemove() {
+        index.remove("item1");
+
+        assertEquals(List.of("item3"), ids(index.search("bolt", 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testRebuild_SwapsInTheStoredNames() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ReflectionTestUtils.setField(index, "mongoTemplate", mongoTemplate);
+        when(mongoTemplate.stream(any(Query.class), eq(InventoryEntity.class))).thenAnswer(invocation -> {
+            // Queries keep the old names until the new index is complete
+            assertEquals(List.of("item3", "item1"), ids(index.search("bolt", 10)));
+            return Stream.of(new InventoryEntity("item3", "Bolt Cutter, heavy-duty", 1, 0),
+                    new InventoryEntity("item5", "Carriage Bolt M8", 1, 0));
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of("item3", "item5"), ids(index.search("bolt", 10)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testRebuild_KeepsChangesMadeMeanwhile() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ReflectionTestUtils.setField(index, "mongoTemplate", mongoTemplate);
+        when(mongoTemplate.stream(any(Query.class), eq(InventoryEntity.class))).thenAnswer(invocation -> {
+            // Renamed and removed while the names are streamed
+            index.add("item1", "Hex Screw M6");
+            index.remove("item2");
+            return Stream.of(new InventoryEntity("item1", "Hex Bolt M6", 1, 0),
+                    new InventoryEntity("item2", "Hex Nut M6", 1, 0));
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of("item1"), ids(index.search("hex", 10)));
+        assertEquals(List.of(), ids(index.search("bolt", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("bolt cutter heavy duty", InventorySearchIndex.normalize("  Bolt Cutter, heavy-duty "));
+    }
+
+    private static List<String> ids(List<InventorySearchResultDTO> results) {
+        return results.stream().map(InventorySearchResultDTO::getItemId).collect(Collectors.toList());
+    }
+}
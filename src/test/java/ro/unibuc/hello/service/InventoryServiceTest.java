@@ -6,11 +6,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import ro.unibuc.hello.data.InventoryEntity;
 import ro.unibuc.hello.data.InventoryRepository;
 import ro.unibuc.hello.dto.InventoryDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.resilience.MongoGuard;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,6 +28,27 @@ class InventoryServiceTest {
     @Mock
     private InventoryRepository inventoryRepository;
 
+    @Mock
+    private StockLedgerService stockLedgerService;
+
+    @Mock
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Spy
+    private StripedLockManager stripedLockManager = new StripedLockManager(16);
+
+    @Spy
+    private ExistenceFilter existenceFilter = new ExistenceFilter();
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight();
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private MongoGuard mongoGuard = new MongoGuard();
+
     @InjectMocks
     private InventoryService inventoryService;
 
@@ -82,6 +106,15 @@ class InventoryServiceTest {
         assertEquals("Item 1", createdInventoryItem.getName());
     }
 
+    @Test
+    void testCreateInventoryItem_DuplicateIdUnknownToFilter() {
+        InventoryDTO inventoryDTO = new InventoryDTO("item1", "Item 1", 50, 10);
+        when(inventoryRepository.existsById("item1")).thenReturn(true);
+
+        assertThrows(ValidationException.class, () -> inventoryService.createInventoryItem(inventoryDTO));
+        verify(inventoryRepository, never()).save(any(InventoryEntity.class));
+    }
+
     @Test
     void testUpdateInventoryStock_ExistingEntity() throws EntityNotFoundException {
         String itemId = "item1";
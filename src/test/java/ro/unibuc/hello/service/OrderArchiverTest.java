@@ -0,0 +1,120 @@
+package ro.unibuc.hello.service;
+
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.data.OrderEntity;
+import ro.unibuc.hello.data.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class OrderArchiverTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Mock
+    private LeaseManager leaseManager;
+
+    @InjectMocks
+    private OrderArchiver orderArchiver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(orderArchiver, "batchSize", 2);
+        ReflectionTestUtils.setField(orderArchiver, "pauseMs", 0L);
+        orderArchiver.registerMetrics();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderEntity.class, OrderArchiver.ARCHIVE_COLLECTION))
+                .thenReturn(bulkOperations);
+    }
+
+    @Test
+    void testArchivesInBatchesUntilNothingIsLeft() {
+        when(mongoTemplate.find(any(Query.class), eq(OrderEntity.class)))
+                .thenReturn(List.of(order("1", OrderStatus.COMPLETED), order("2", OrderStatus.CANCELED)))
+                .thenReturn(List.of(order("3", OrderStatus.COMPLETED)));
+        when(mongoTemplate.remove(any(Query.class), eq(OrderEntity.class)))
+                .thenReturn(DeleteResult.acknowledged(2))
+                .thenReturn(DeleteResult.acknowledged(1));
+
+        int archived = orderArchiver.archiveOnce(LocalDateTime.now().minusDays(30));
+
+        assertEquals(3, archived);
+        verify(bulkOperations, times(3)).replaceOne(any(Query.class), any(OrderEntity.class), any(FindAndReplaceOptions.class));
+        verify(bulkOperations, times(2)).execute();
+        // The short second batch ends the run without another query
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(OrderEntity.class));
+        assertEquals(3, meterRegistry.get("orders.archived").counter().count());
+        verify(resourceVersions, times(2)).bump(ResourceVersions.ORDERS);
+    }
+
+    @Test
+    void testNothingToArchive() {
+        when(mongoTemplate.find(any(Query.class), eq(OrderEntity.class))).thenReturn(List.of());
+
+        assertEquals(0, orderArchiver.archiveOnce(LocalDateTime.now()));
+        verifyNoInteractions(bulkOperations);
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(OrderEntity.class));
+        verifyNoInteractions(resourceVersions);
+    }
+
+    @Test
+    void testScheduledRunLeavesTheSchedulerThread() throws Exception {
+        when(leaseManager.isLeader()).thenReturn(true);
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        when(mongoTemplate.find(any(Query.class), eq(OrderEntity.class))).thenAnswer(invocation -> {
+            thread.complete(Thread.currentThread().getName());
+            return List.of();
+        });
+
+        orderArchiver.scheduleArchive();
+
+        assertEquals("order-archiver", thread.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testOnlyTheLeaderArchives() {
+        when(leaseManager.isLeader()).thenReturn(false);
+
+        orderArchiver.scheduleArchive();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static OrderEntity order(String id, OrderStatus status) {
+        OrderEntity order = new OrderEntity("robot001", status, "item123", 1, "Aisle 1");
+        order.setId(id);
+        return order;
+    }
+}
@@ -0,0 +1,214 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.OrderEntity;
+import ro.unibuc.hello.data.OrderStatus;
+import ro.unibuc.hello.dto.OrderGroupDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class OrderColumnStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private OrderColumnStore orderColumnStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Small chunks and segments so even these tests scan several of each in parallel
+        ReflectionTestUtils.setField(orderColumnStore, "chunkSize", 3);
+        ReflectionTestUtils.setField(orderColumnStore, "segmentRows", 2);
+        orderColumnStore.start();
+    }
+
+    @Test
+    void testGroupByItemSortsByCount() {
+        orderColumnStore.upsert(order("1", "robot001", "item123", 5, OrderStatus.COMPLETED, 0));
+        orderColumnStore.upsert(order("2", "robot002", "item123", 7, OrderStatus.PENDING, 10));
+        orderColumnStore.upsert(order("3", "robot001", "item124", 1, OrderStatus.COMPLETED, 20));
+        orderColumnStore.upsert(order("4", "robot003", "item123", 2, OrderStatus.CANCELED, 30));
+        orderColumnStore.upsert(order("5", "robot002", "item125", 9, OrderStatus.COMPLETED, 40));
+        orderColumnStore.upsert(order("6", "robot002", "item124", 3, OrderStatus.IN_PROGRESS, 50));
+        orderColumnStore.upsert(order("7", "robot001", "item123", 4, OrderStatus.COMPLETED, 60));
+
+        List<OrderGroupDTO> byItem = orderColumnStore.aggregate(OrderColumnStore.Dimension.ITEM, null, null, null);
+
+        assertEquals(List.of("item123", "item124", "item125"), byItem.stream().map(OrderGroupDTO::getKey).toList());
+        assertEquals(4, byItem.get(0).getCount());
+        assertEquals(18, byItem.get(0).getQuantity());
+        assertEquals(7, orderColumnStore.size());
+    }
+
+    @Test
+    void testStatusAndTimeFilters() {
+        orderColumnStore.upsert(order("1", "robot001", "item123", 5, OrderStatus.COMPLETED, 0));
+        orderColumnStore.upsert(order("2", "robot001", "item123", 7, OrderStatus.COMPLETED, 90));
+        orderColumnStore.upsert(order("3", "robot002", "item123", 1, OrderStatus.COMPLETED, 150));
+        orderColumnStore.upsert(order("4", "robot002", "item123", 2, OrderStatus.PENDING, 100));
+
+        List<OrderGroupDTO> byRobot = orderColumnStore.aggregate(OrderColumnStore.Dimension.ROBOT,
+                OrderStatus.COMPLETED, BASE.plusMinutes(60), BASE.plusMinutes(150));
+
+        assertEquals(1, byRobot.size());
+        assertEquals("robot001", byRobot.get(0).getKey());
+        assertEquals(7, byRobot.get(0).getQuantity());
+    }
+
+    @Test
+    void testGroupByHourIsInTimeOrder() {
+        orderColumnStore.upsert(order("1", "robot001", "item123", 5, OrderStatus.COMPLETED, 130));
+        orderColumnStore.upsert(order("2", "robot001", "item123", 7, OrderStatus.COMPLETED, 10));
+        orderColumnStore.upsert(order("3", "robot002", "item124", 1, OrderStatus.PENDING, 20));
+
+        List<OrderGroupDTO> byHour = orderColumnStore.aggregate(OrderColumnStore.Dimension.HOUR, null, null, null);
+
+        assertEquals(2, byHour.size());
+        assertEquals("2024-05-01T08:00", byHour.get(0).getKey());
+        assertEquals(2, byHour.get(0).getCount());
+        assertEquals("2024-05-01T10:00", byHour.get(1).getKey());
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreReflected() {
+        OrderEntity order = order("1", "robot001", "item123", 5, OrderStatus.PENDING, 0);
+        orderColumnStore.upsert(order);
+        orderColumnStore.upsert(order("2", "robot002", "item124", 3, OrderStatus.PENDING, 0));
+
+        order.setStatus(OrderStatus.COMPLETED);
+        orderColumnStore.upsert(order);
+        orderColumnStore.remove("2");
+
+        List<OrderGroupDTO> byStatus = orderColumnStore.aggregate(OrderColumnStore.Dimension.STATUS, null, null, null);
+        assertEquals(1, byStatus.size());
+        assertEquals("COMPLETED", byStatus.get(0).getKey());
+        assertEquals(1, orderColumnStore.size());
+    }
+
+    @Test
+    void testRebuildReadsLiveAndArchivedOrders() {
+        when(mongoTemplate.getCollectionName(OrderEntity.class)).thenReturn("orders");
+        when(mongoTemplate.stream(any(Query.class), eq(OrderEntity.class), eq("orders")))
+                .thenReturn(Stream.of(order("1", "robot001", "item123", 5, OrderStatus.PENDING, 0)));
+        when(mongoTemplate.stream(any(Query.class), eq(OrderEntity.class), eq(OrderArchiver.ARCHIVE_COLLECTION)))
+                .thenReturn(Stream.of(order("2", "robot001", "item124", 5, OrderStatus.COMPLETED, 0)));
+        orderColumnStore.upsert(order("stale", "robot009", "item999", 1, OrderStatus.PENDING, 0));
+
+        orderColumnStore.rebuild();
+
+        List<OrderGroupDTO> byRobot = orderColumnStore.aggregate(OrderColumnStore.Dimension.ROBOT, null, null, null);
+        assertEquals(1, byRobot.size());
+        assertEquals("robot001", byRobot.get(0).getKey());
+        assertEquals(2, byRobot.get(0).getCount());
+    }
+
+    @Test
+    void testPublishedViewIsNotChangedByLaterWrites() {
+        OrderEntity order = order("1", "robot001", "item123", 5, OrderStatus.PENDING, 0);
+        orderColumnStore.upsert(order);
+        orderColumnStore.upsert(order("2", "robot002", "item124", 3, OrderStatus.PENDING, 0));
+        orderColumnStore.aggregate(OrderColumnStore.Dimension.STATUS, null, null, null);
+        Object published = ReflectionTestUtils.getField(orderColumnStore, "columns");
+
+        order.setStatus(OrderStatus.COMPLETED);
+        orderColumnStore.upsert(order);
+        orderColumnStore.remove("2");
+        orderColumnStore.upsert(order("3", "robot003", "item125", 1, OrderStatus.PENDING, 0));
+
+        // A query still holding the earlier view sees exactly what it saw when it started
+        ReflectionTestUtils.setField(orderColumnStore, "columns", published);
+        ReflectionTestUtils.setField(orderColumnStore, "changed", false);
+        List<OrderGroupDTO> byStatus = orderColumnStore.aggregate(OrderColumnStore.Dimension.STATUS, null, null, null);
+        assertEquals(1, byStatus.size());
+        assertEquals("PENDING", byStatus.get(0).getKey());
+        assertEquals(2, byStatus.get(0).getCount());
+    }
+
+    @Test
+    void testWritesBetweenQueriesCopyASegmentOnlyOnce() {
+        OrderEntity order = order("1", "robot001", "item123", 5, OrderStatus.PENDING, 0);
+        orderColumnStore.upsert(order);
+        orderColumnStore.aggregate(OrderColumnStore.Dimension.STATUS, null, null, null);
+
+        order.setStatus(OrderStatus.IN_PROGRESS);
+        orderColumnStore.upsert(order);
+        Object copied = firstSegment();
+        order.setStatus(OrderStatus.COMPLETED);
+        orderColumnStore.upsert(order);
+        assertSame(copied, firstSegment());
+
+        List<OrderGroupDTO> byStatus = orderColumnStore.aggregate(OrderColumnStore.Dimension.STATUS, null, null, null);
+        assertEquals("COMPLETED", byStatus.get(0).getKey());
+        orderColumnStore.upsert(order);
+        assertNotSame(copied, firstSegment());
+    }
+
+    @Test
+    void testWritesDuringRebuildAreKept() {
+        when(mongoTemplate.getCollectionName(OrderEntity.class)).thenReturn("orders");
+        when(mongoTemplate.stream(any(Query.class), eq(OrderEntity.class), eq("orders"))).thenAnswer(invocation -> {
+            // Updated and created while the history is streamed
+            OrderEntity updated = order("1", "robot001", "item123", 5, OrderStatus.COMPLETED, 0);
+            orderColumnStore.upsert(updated);
+            orderColumnStore.upsert(order("2", "robot002", "item124", 5, OrderStatus.PENDING, 0));
+            return Stream.of(order("1", "robot001", "item123", 5, OrderStatus.PENDING, 0));
+        });
+        when(mongoTemplate.stream(any(Query.class), eq(OrderEntity.class), eq(OrderArchiver.ARCHIVE_COLLECTION)))
+                .thenReturn(Stream.empty());
+
+        orderColumnStore.rebuild();
+
+        List<OrderGroupDTO> byStatus = orderColumnStore.aggregate(OrderColumnStore.Dimension.STATUS, null, null, null);
+        assertEquals(2, byStatus.size());
+        assertEquals(List.of("COMPLETED", "PENDING"), byStatus.stream().map(OrderGroupDTO::getKey).sorted().toList());
+        assertEquals(2, orderColumnStore.size());
+    }
+
+    @Test
+    void testTooManyHourBucketsIsRejected() {
+        ReflectionTestUtils.setField(orderColumnStore, "maxHourBuckets", 24);
+        orderColumnStore.upsert(order("1", "robot001", "item123", 5, OrderStatus.PENDING, 0));
+        orderColumnStore.upsert(order("2", "robot001", "item123", 5, OrderStatus.PENDING, 60 * 48));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> orderColumnStore.aggregate(OrderColumnStore.Dimension.HOUR, null, null, null));
+    }
+
+    private Object firstSegment() {
+        Object table = ReflectionTestUtils.getField(orderColumnStore, "table");
+        return ((Object[]) ReflectionTestUtils.getField(table, "segments"))[0];
+    }
+
+    private static OrderEntity order(String id, String robotId, String itemId, int quantity, OrderStatus status, int minutes) {
+        OrderEntity order = new OrderEntity(robotId, status, itemId, quantity, "Aisle 1");
+        order.setId(id);
+        order.setCreatedAt(BASE.plusMinutes(minutes));
+        return order;
+    }
+}
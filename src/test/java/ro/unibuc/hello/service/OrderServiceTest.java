@@ -1,13 +1,20 @@
 package ro.unibuc.hello.service;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import ro.unibuc.hello.cluster.LeaseManager;
 import ro.unibuc.hello.data.InventoryEntity;
 import ro.unibuc.hello.data.OrderEntity;
 import ro.unibuc.hello.data.OrderRepository;
@@ -23,13 +30,21 @@ import ro.unibuc.hello.exception.InvalidQuantityException;
 import ro.unibuc.hello.exception.ItemNotFoundException;
 import ro.unibuc.hello.exception.RobotBusyException;
 import ro.unibuc.hello.exception.RobotNotFoundException;
+import ro.unibuc.hello.exception.StoreUnavailableException;
+import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.journal.OrderEventType;
+import ro.unibuc.hello.pipeline.LifecyclePipeline;
+import ro.unibuc.hello.resilience.MongoGuard;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -44,6 +59,39 @@ class OrderServiceTest {
     @Mock
     private InventoryRepository inventoryRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private LifecyclePipeline lifecyclePipeline;
+
+    @Mock
+    private LeaseManager leaseManager;
+
+    @Mock
+    private CycleTimeAnalytics cycleTimeAnalytics;
+
+    @Mock
+    private OrderColumnStore orderColumnStore;
+
+    @Mock
+    private HotKeyService hotKeyService;
+
+    @Spy
+    private ExistenceFilter existenceFilter = new ExistenceFilter();
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight();
+
+    @Spy
+    private StripedLockManager stripedLockManager = new StripedLockManager(16);
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private MongoGuard mongoGuard = new MongoGuard();
+
     @InjectMocks
     private OrderService orderService;
 
@@ -59,7 +107,7 @@ class OrderServiceTest {
                 new OrderEntity("worker1", OrderStatus.PENDING, "item1", 10, "location1"),
                 new OrderEntity("worker2", OrderStatus.COMPLETED, "item2", 20, "location2")
         );
-        when(orderRepository.findAll()).thenReturn(entities);
+        when(orderRepository.findAllSummaries()).thenReturn(entities);
 
         // Act
         List<OrderDTO> orders = orderService.getAllOrders();
@@ -70,6 +118,24 @@ class OrderServiceTest {
         assertEquals("worker2", orders.get(1).getRobotId());
     }
 
+    @Test
+    void testGetAllOrders_SparseFieldset() {
+        Document document = new Document("_id", new ObjectId("65f000000000000000000001"))
+                .append("status", "PENDING");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("orders"))).thenReturn(List.of(document));
+
+        List<Map<String, Object>> orders = orderService.getAllOrders(List.of("id", "status"));
+
+        assertEquals(1, orders.size());
+        assertEquals(List.of("id", "status"), List.copyOf(orders.get(0).keySet()));
+        assertEquals("65f000000000000000000001", orders.get(0).get("id"));
+    }
+
+    @Test
+    void testGetAllOrders_UnknownField() {
+        assertThrows(ValidationException.class, () -> orderService.getAllOrders(List.of("createdAt")));
+    }
+
     @Test
     void testGetOrderById_ExistingEntity() throws EntityNotFoundException {
         // Arrange
@@ -87,6 +153,19 @@ class OrderServiceTest {
         assertEquals("worker1", order.getRobotId());
     }
 
+    @Test
+    void testGetOrderById_FallsBackToArchive() {
+        OrderEntity archived = new OrderEntity("robot001", OrderStatus.COMPLETED, "item1", 10, "location1");
+        archived.setId("old");
+        when(orderRepository.findById("old")).thenReturn(Optional.empty());
+        when(mongoTemplate.findById("old", OrderEntity.class, OrderArchiver.ARCHIVE_COLLECTION)).thenReturn(archived);
+
+        OrderDTO order = orderService.getOrderById("old");
+
+        assertEquals("old", order.getId());
+        assertEquals(OrderStatus.COMPLETED, order.getStatus());
+    }
+
     @Test
     void testGetOrderById_NonExistingEntity() {
         // Arrange
@@ -128,6 +207,25 @@ class OrderServiceTest {
         assertNotNull(createdOrder);
         assertEquals("worker1", createdOrder.getRobotId());
         assertEquals("1", createdOrder.getId());
+        verify(lifecyclePipeline, times(1)).publishOrder(eq(OrderEventType.CREATED), any(OrderEntity.class), eq(createdOrder));
+        verify(orderColumnStore, times(1)).upsert(any(OrderEntity.class));
+        verify(hotKeyService, times(1)).recordOrderCreated("item1");
+    }
+
+    @Test
+    void testCreateOrder_InventoryOutageCountsAgainstTheInventoryBreaker() {
+        OrderDTO orderDTO = new OrderDTO(null, "worker1", OrderStatus.PENDING, "item1", 10, "location1");
+        RobotEntity mockRobot = new RobotEntity();
+        mockRobot.setId("worker1");
+        when(robotRepository.findById("worker1")).thenReturn(Optional.of(mockRobot));
+        when(inventoryRepository.findById("item1")).thenThrow(new DataAccessResourceFailureException("inventory down"));
+
+        assertThrows(StoreUnavailableException.class, () -> orderService.createOrder(orderDTO));
+
+        assertEquals(1.0, mongoGuard.breaker(MongoGuard.INVENTORY).getFailureRate());
+        assertEquals(0.0, mongoGuard.breaker(MongoGuard.ROBOTS).getFailureRate());
+        assertEquals(0.0, mongoGuard.breaker(MongoGuard.ORDERS).getFailureRate());
+        verify(orderRepository, never()).save(any(OrderEntity.class));
     }
     
 
@@ -147,6 +245,20 @@ class OrderServiceTest {
         // Assert
         assertNotNull(updatedOrder);
         assertEquals(OrderStatus.COMPLETED, updatedOrder.getStatus());
+        verify(cycleTimeAnalytics, times(1)).record(eq("worker1"), eq("item1"), any(Duration.class));
+        verify(hotKeyService, times(1)).recordOrderCompleted("worker1");
+    }
+
+    @Test
+    void testUpdateOrderStatus_AlreadyCompletedIsNotRecordedAgain() {
+        String id = "1";
+        OrderEntity entity = new OrderEntity("worker1", OrderStatus.COMPLETED, "item1", 10, "location1");
+        entity.setId(id);
+        when(orderRepository.findById(id)).thenReturn(Optional.of(entity));
+
+        orderService.updateOrderStatus(id, "COMPLETED");
+
+        verify(cycleTimeAnalytics, never()).record(any(), any(), any());
     }
 
     @Test
@@ -173,6 +285,8 @@ class OrderServiceTest {
 
         // Assert
         verify(orderRepository, times(1)).delete(entity);
+        verify(lifecyclePipeline, times(1)).publishOrder(OrderEventType.DELETED, entity, null);
+        verify(orderColumnStore, times(1)).remove(id);
     }
 
     @Test
@@ -198,6 +312,25 @@ class OrderServiceTest {
         assertThrows(RobotNotFoundException.class, () -> orderService.createOrder(orderDTO));
     }
 
+    @Test
+    void testUnknownRobotFailsFastWithoutQuery() {
+        OrderDTO orderDTO = new OrderDTO(null, "ghost", OrderStatus.PENDING, "item1", 10, "location1");
+        doReturn(false).when(existenceFilter).mightContainRobot("ghost");
+
+        assertThrows(RobotNotFoundException.class, () -> orderService.createOrder(orderDTO));
+        verify(robotRepository, never()).findById(any());
+        verify(inventoryRepository, never()).findById(any());
+    }
+
+    @Test
+    void testUnknownItemFailsFastWithoutQuery() {
+        OrderDTO orderDTO = new OrderDTO(null, "worker1", OrderStatus.PENDING, "ghost", 10, "location1");
+        doReturn(false).when(existenceFilter).mightContainItem("ghost");
+
+        assertThrows(ItemNotFoundException.class, () -> orderService.createOrder(orderDTO));
+        verify(robotRepository, never()).findById(any());
+    }
+
     @Test
     void testRobotAlreadyHasActiveOrder() {
         // Arrange
@@ -276,8 +409,7 @@ class OrderServiceTest {
     @Test
     void testCountCompletedOrders() {
         // Arrange
-        OrderEntity completedOrder = new OrderEntity("worker1", OrderStatus.COMPLETED, "item1", 10, "location1");
-        when(orderRepository.findAll()).thenReturn(Arrays.asList(completedOrder, new OrderEntity("worker2", OrderStatus.PENDING, "item2", 5, "location2")));
+        when(orderRepository.countByStatus(OrderStatus.COMPLETED)).thenReturn(1L);
 
         // Act
         long count = orderService.countCompletedOrders();
@@ -289,8 +421,7 @@ class OrderServiceTest {
     @Test
     void testCountCanceledOrders() {
         // Arrange
-        OrderEntity canceledOrder = new OrderEntity("worker1", OrderStatus.CANCELED, "item1", 10, "location1");
-        when(orderRepository.findAll()).thenReturn(Arrays.asList(canceledOrder, new OrderEntity("worker2", OrderStatus.PENDING, "item2", 5, "location2")));
+        when(orderRepository.countByStatus(OrderStatus.CANCELED)).thenReturn(1L);
     
         // Act
         long count = orderService.countCanceledOrders();
@@ -333,7 +464,7 @@ class OrderServiceTest {
     
         // Mock repositories
         when(robotRepository.findById(robotId)).thenReturn(Optional.of(mockRobot));
-        when(orderRepository.findAll()).thenReturn(Arrays.asList(activeOrder));
+        when(orderRepository.existsByRobotIdAndStatusIn(robotId, List.of(OrderStatus.PENDING, OrderStatus.IN_PROGRESS))).thenReturn(true);
     
         // Act
         boolean hasActiveOrder = orderService.hasActiveOrderForRobot(robotId);
@@ -0,0 +1,102 @@
+package ro.unibuc.hello.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ro.unibuc.hello.cluster.LeaseManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ResourceVersionsTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private LeaseManager leaseManager;
+
+    @InjectMocks
+    private ResourceVersions resourceVersions;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testCollectionTagChangesOnlyOnWritesToThatCollection() {
+        String robots = resourceVersions.collectionTag(ResourceVersions.ROBOTS, null);
+        String orders = resourceVersions.collectionTag(ResourceVersions.ORDERS, null);
+
+        resourceVersions.bump(ResourceVersions.ORDERS);
+
+        assertEquals(robots, resourceVersions.collectionTag(ResourceVersions.ROBOTS, null));
+        assertNotEquals(orders, resourceVersions.collectionTag(ResourceVersions.ORDERS, null));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testVariantsGetTheirOwnTags() {
+        String full = resourceVersions.collectionTag(ResourceVersions.ROBOTS, null);
+        String ids = resourceVersions.collectionTag(ResourceVersions.ROBOTS, List.of("id"));
+
+        assertNotEquals(full, ids);
+        assertNotEquals(ids, resourceVersions.collectionTag(ResourceVersions.ROBOTS, List.of("id", "status")));
+        assertEquals(ids, resourceVersions.collectionTag(ResourceVersions.ROBOTS, List.of("id")));
+        assertTrue(full.startsWith("\"") && full.endsWith("\""));
+    }
+
+    @Test
+    void testDocumentAndContentTags() {
+        assertEquals("\"robot-1-v2\"", ResourceVersions.documentTag("robot", "1", 2L));
+        assertNull(ResourceVersions.documentTag("robot", "1", null));
+
+        String pending = ResourceVersions.contentTag("order", "1", "robot001", "PENDING", 5);
+        assertEquals(pending, ResourceVersions.contentTag("order", "1", "robot001", "PENDING", 5));
+        assertNotEquals(pending, ResourceVersions.contentTag("order", "1", "robot001", "COMPLETED", 5));
+        assertNotEquals(ResourceVersions.contentTag("order", "1", null, "x"), ResourceVersions.contentTag("order", "1", "x", null));
+    }
+
+    @Test
+    void testClusterWritesFromOtherReplicasChangeTheTag() {
+        when(leaseManager.isEnabled()).thenReturn(true);
+        String before = resourceVersions.collectionTag(ResourceVersions.INVENTORY, null);
+
+        resourceVersions.bump(ResourceVersions.INVENTORY);
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq("collection_versions"));
+
+        String afterLocalWrite = resourceVersions.collectionTag(ResourceVersions.INVENTORY, null);
+        when(mongoTemplate.findAll(Document.class, "collection_versions"))
+                .thenReturn(List.of(new Document("_id", ResourceVersions.INVENTORY).append("version", 7L)));
+        resourceVersions.refreshShared();
+
+        assertNotEquals(before, afterLocalWrite);
+        assertNotEquals(afterLocalWrite, resourceVersions.collectionTag(ResourceVersions.INVENTORY, null));
+    }
+
+    @Test
+    void testSharedCounterFailureKeepsTheLocalBump() {
+        when(leaseManager.isEnabled()).thenReturn(true);
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("collection_versions")))
+                .thenThrow(new IllegalStateException("mongo down"));
+        String before = resourceVersions.collectionTag(ResourceVersions.ORDERS, null);
+
+        resourceVersions.bump(ResourceVersions.ORDERS);
+
+        assertNotEquals(before, resourceVersions.collectionTag(ResourceVersions.ORDERS, null));
+    }
+}
@@ -6,12 +6,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ro.unibuc.hello.cluster.LeaseManager;
 import ro.unibuc.hello.data.RobotEntity;
 import ro.unibuc.hello.data.RobotRepository;
 import ro.unibuc.hello.dto.RobotDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.StoreUnavailableException;
 import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.pipeline.LifecyclePipeline;
+import ro.unibuc.hello.resilience.MongoGuard;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +33,30 @@ class RobotServiceTest {
     @Mock
     private RobotRepository robotRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private LifecyclePipeline lifecyclePipeline;
+
+    @Mock
+    private LeaseManager leaseManager;
+
+    @Spy
+    private StripedLockManager stripedLockManager = new StripedLockManager(16);
+
+    @Spy
+    private ExistenceFilter existenceFilter = new ExistenceFilter();
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight();
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private MongoGuard mongoGuard = new MongoGuard();
+
     @InjectMocks
     private RobotService robotService;
 
@@ -40,7 +71,7 @@ class RobotServiceTest {
                 new RobotEntity("IDLE", null, 5, null),
                 new RobotEntity("IN_PROGRESS", "order2", 10, null)
         );
-        when(robotRepository.findAll()).thenReturn(entities);
+        when(robotRepository.findAllSummaries()).thenReturn(entities);
 
         List<RobotDTO> robots = robotService.getAllRobots();
 
@@ -54,6 +85,7 @@ class RobotServiceTest {
         String id = "1";
         RobotEntity entity = new RobotEntity("IDLE", null, 5, null);
         entity.setId(id);
+        entity.setVersion(4L);
         when(robotRepository.findById(id)).thenReturn(Optional.of(entity));
 
         RobotDTO robot = robotService.getRobotById(id);
@@ -61,6 +93,24 @@ class RobotServiceTest {
         assertNotNull(robot);
         assertEquals(id, robot.getId());
         assertNull(robot.getCurrentOrderId());
+        assertEquals(4L, robot.getVersion());
+    }
+
+    @Test
+    void testGetRobotById_ServedFromLastKnownWhileMongoIsDown() {
+        RobotEntity entity = new RobotEntity("IDLE", null, 5, null);
+        entity.setId("1");
+        when(robotRepository.findById("1"))
+                .thenReturn(Optional.of(entity))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        when(robotRepository.findById("2")).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        robotService.getRobotById("1");
+        RobotDTO stale = robotService.getRobotById("1");
+
+        assertEquals("IDLE", stale.getStatus());
+        assertThrows(StoreUnavailableException.class, () -> robotService.getRobotById("2"));
     }
 
     @Test
@@ -70,6 +120,14 @@ class RobotServiceTest {
         assertThrows(EntityNotFoundException.class, () -> robotService.getRobotById(id));
     }
 
+    @Test
+    void testGetRobotById_FilteredOutWithoutQuery() {
+        doReturn(false).when(existenceFilter).mightContainRobot("ghost");
+
+        assertThrows(EntityNotFoundException.class, () -> robotService.getRobotById("ghost"));
+        verify(robotRepository, never()).findById(any());
+    }
+
     @Test
     void testCreateRobot_Successful() {
         RobotDTO robotDTO = new RobotDTO(null, "IDLE", null, 5, null);
@@ -166,6 +224,7 @@ class RobotServiceTest {
         when(robotRepository.findById(id)).thenReturn(Optional.of(entity));
         robotService.deleteRobot(id);
         verify(robotRepository, times(1)).delete(entity);
+        verify(resourceVersions).bump(ResourceVersions.ROBOTS);
     }
 
     @Test
@@ -0,0 +1,144 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final ResourceVersions resourceVersions = new ResourceVersions();
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(singleFlight, "resourceVersions", resourceVersions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallsShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(ResourceVersions.ROBOTS, "robot:robot001", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "robot001";
+            })));
+        }
+        waitForWaiters("robot", 7);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("robot001", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testDifferentKeysDoNotShare() {
+        assertEquals("a", singleFlight.execute(ResourceVersions.INVENTORY, "item:a", () -> "a"));
+        assertEquals("b", singleFlight.execute(ResourceVersions.INVENTORY, "item:b", () -> "b"));
+        assertEquals(2, meterRegistry.counter("singleflight.calls", "name", "item", "result", "leader").count());
+    }
+
+    @Test
+    void testFailureReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute(ResourceVersions.ROBOTS, "robot:x", () -> {
+            await(release);
+            throw new IllegalStateException("mongo down");
+        }));
+        waitForInFlight();
+        Future<String> follower = executor.submit(() -> singleFlight.execute(ResourceVersions.ROBOTS, "robot:x", () -> "not called"));
+        waitForWaiters("robot", 1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+        assertEquals("mongo down", followerError.getCause().getMessage());
+    }
+
+    @Test
+    void testWaiterLoadsOnItsOwnAfterTimeout() throws Exception {
+        ReflectionTestUtils.setField(singleFlight, "timeoutMs", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute(ResourceVersions.ORDERS, "orderStats:completed", () -> {
+            await(release);
+            return "slow";
+        }));
+        waitForInFlight();
+
+        assertEquals("fast", singleFlight.execute(ResourceVersions.ORDERS, "orderStats:completed", () -> "fast"));
+        assertEquals(1, meterRegistry.counter("singleflight.calls", "name", "orderStats", "result", "timeout").count());
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testReadAfterAWriteDoesNotJoinAnOlderLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> before = executor.submit(() -> singleFlight.execute(ResourceVersions.ROBOTS, "robot:r1", () -> {
+            await(release);
+            return "IDLE";
+        }));
+        waitForInFlight();
+        resourceVersions.bump(ResourceVersions.ROBOTS);
+
+        assertEquals("ACTIVE", singleFlight.execute(ResourceVersions.ROBOTS, "robot:r1", () -> "ACTIVE"));
+        assertEquals(0, meterRegistry.counter("singleflight.calls", "name", "robot", "result", "coalesced").count());
+        release.countDown();
+        assertEquals("IDLE", before.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private void waitForInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.inFlight() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void waitForWaiters(String name, int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("singleflight.calls", "name", name, "result", "coalesced").count() < waiters
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // The counter is bumped just before the waiter blocks
+        Thread.sleep(20);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
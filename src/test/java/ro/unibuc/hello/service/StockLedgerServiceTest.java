@@ -0,0 +1,228 @@
+package ro.unibuc.hello.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.InventoryEntity;
+import ro.unibuc.hello.data.InventoryRepository;
+import ro.unibuc.hello.data.StockLedgerEntry;
+import ro.unibuc.hello.data.StockOperation;
+import ro.unibuc.hello.data.StockSnapshotEntity;
+import ro.unibuc.hello.dto.InventoryDTO;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.InsufficientStockException;
+import ro.unibuc.hello.exception.StoreUnavailableException;
+import ro.unibuc.hello.exception.ValidationException;
+import ro.unibuc.hello.resilience.MongoGuard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class StockLedgerServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private MongoGuard mongoGuard = new MongoGuard();
+
+    @Mock
+    private BulkOperations ledgerInserts;
+
+    @Mock
+    private BulkOperations pendingPulls;
+
+    @InjectMocks
+    private StockLedgerService stockLedgerService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockLedgerEntry.class)).thenReturn(ledgerInserts);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryEntity.class)).thenReturn(pendingPulls);
+    }
+
+    @Test
+    void testReceive_WritesTheLedgerEntryWithTheIncrement() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(InventoryEntity.class)))
+                .thenReturn(new InventoryEntity("item1", "Item 1", 30, 5));
+
+        InventoryDTO result = stockLedgerService.applyDelta("item1", StockOperation.RECEIVE, 10);
+
+        assertEquals(30, result.getStock());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(InventoryEntity.class));
+        assertNotNull(update.getValue().getUpdateObject().get("$inc", Document.class).get("stock"));
+        StockLedgerEntry entry = (StockLedgerEntry) update.getValue().getUpdateObject().get("$push", Document.class).get("pendingLedger");
+        assertEquals(10, entry.getDelta());
+        assertNotNull(entry.getId());
+    }
+
+    @Test
+    void testFlush_MovesPendingEntriesOnceAndSkipsDuplicates() {
+        InventoryEntity item = itemWithPending(35,
+                new StockLedgerEntry("65f000000000000000000001", "item1", StockOperation.RECEIVE, 10, 0),
+                new StockLedgerEntry("65f000000000000000000002", "item1", StockOperation.PICK, -5, 0));
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class))).thenReturn(List.of(item));
+        // The first entry was inserted by an attempt that failed before removing it from the item
+        when(ledgerInserts.execute()).thenThrow(bulkFailure(11000, 0));
+
+        stockLedgerService.written("item1");
+        stockLedgerService.flush();
+
+        assertEquals(40, item.getPendingLedger().get(0).getStockAfter());
+        assertEquals(35, item.getPendingLedger().get(1).getStockAfter());
+        verify(pendingPulls, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(pendingPulls, times(1)).execute();
+
+        // Nothing left to move
+        stockLedgerService.flush();
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(InventoryEntity.class));
+    }
+
+    @Test
+    void testFlush_KeepsEntriesThatFailedOnTheItem() {
+        InventoryEntity item = itemWithPending(10,
+                new StockLedgerEntry("65f000000000000000000001", "item1", StockOperation.RECEIVE, 10, 0));
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class))).thenReturn(List.of(item));
+        when(ledgerInserts.execute()).thenThrow(bulkFailure(91, 0));
+
+        stockLedgerService.written("item1");
+        stockLedgerService.flush();
+
+        verify(pendingPulls, never()).updateOne(any(Query.class), any(Update.class));
+        // Retried on the next flush
+        stockLedgerService.flush();
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(InventoryEntity.class));
+    }
+
+    @Test
+    void testDelta_RefusedWhileTheItemsLedgerIsBackedUp() {
+        ReflectionTestUtils.setField(stockLedgerService, "maxPendingPerItem", 1);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(InventoryEntity.class)))
+                .thenReturn(null);
+        when(inventoryRepository.findById("item1")).thenReturn(Optional.of(itemWithPending(10,
+                new StockLedgerEntry("65f000000000000000000001", "item1", StockOperation.RECEIVE, 10, 0))));
+
+        assertThrows(StoreUnavailableException.class, () -> stockLedgerService.applyDelta("item1", StockOperation.RECEIVE, 1));
+    }
+
+    @Test
+    void testPick_InsufficientStock() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(InventoryEntity.class)))
+                .thenReturn(null);
+        when(inventoryRepository.findById("item1")).thenReturn(Optional.of(new InventoryEntity("item1", "Item 1", 3, 5)));
+
+        assertThrows(InsufficientStockException.class, () -> stockLedgerService.applyDelta("item1", StockOperation.PICK, 10));
+    }
+
+    @Test
+    void testDelta_StoreFailureCountsAgainstTheInventoryBreaker() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(InventoryEntity.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertThrows(StoreUnavailableException.class, () -> stockLedgerService.applyDelta("item1", StockOperation.RECEIVE, 1));
+        assertEquals(1.0, mongoGuard.breaker(MongoGuard.INVENTORY).getFailureRate());
+        verifyNoInteractions(resourceVersions);
+    }
+
+    @Test
+    void testDelta_NonExistingItem() {
+        when(inventoryRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> stockLedgerService.applyDelta("missing", StockOperation.RECEIVE, 1));
+    }
+
+    @Test
+    void testReceive_RejectsNonPositiveQuantity() {
+        assertThrows(ValidationException.class, () -> stockLedgerService.applyDelta("item1", StockOperation.RECEIVE, 0));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testPerSnapshotLimitQueuesTheItemUntilCompactionFoldsIt() {
+        ReflectionTestUtils.setField(stockLedgerService, "maxEntriesPerSnapshot", 2);
+        when(mongoTemplate.find(any(Query.class), eq(InventoryEntity.class))).thenReturn(List.of(itemWithPending(2,
+                new StockLedgerEntry("65f000000000000000000001", "item1", StockOperation.RECEIVE, 1, 0),
+                new StockLedgerEntry("65f000000000000000000002", "item1", StockOperation.RECEIVE, 1, 0))));
+        stockLedgerService.written("item1");
+        stockLedgerService.flush();
+        // Nothing is compacted on the writing thread
+        verify(mongoTemplate, never()).save(any(StockSnapshotEntity.class));
+
+        // Still inside the grace period: nothing to fold, the item stays queued
+        when(mongoTemplate.find(any(Query.class), eq(StockLedgerEntry.class))).thenReturn(List.of());
+        stockLedgerService.compactDue();
+        verify(mongoTemplate, never()).save(any(StockSnapshotEntity.class));
+
+        when(mongoTemplate.find(any(Query.class), eq(StockLedgerEntry.class))).thenReturn(List.of(
+                new StockLedgerEntry("65f000000000000000000001", "item1", StockOperation.RECEIVE, 1, 1),
+                new StockLedgerEntry("65f000000000000000000002", "item1", StockOperation.RECEIVE, 1, 2)
+        ));
+        stockLedgerService.compactDue();
+        verify(mongoTemplate, times(1)).save(any(StockSnapshotEntity.class));
+
+        // Folded, so no longer due
+        stockLedgerService.compactDue();
+        verify(mongoTemplate, times(1)).save(any(StockSnapshotEntity.class));
+    }
+
+    @Test
+    void testRebuildStock_SnapshotPlusNewerEntries() {
+        // One entry is both on the item and in the ledger, the other is not moved yet
+        when(inventoryRepository.findById("item1")).thenReturn(Optional.of(itemWithPending(40,
+                new StockLedgerEntry("65f000000000000000000002", "item1", StockOperation.PICK, -15, 0),
+                new StockLedgerEntry("65f000000000000000000003", "item1", StockOperation.RECEIVE, 5, 0))));
+        when(mongoTemplate.findById("item1", StockSnapshotEntity.class))
+                .thenReturn(new StockSnapshotEntity("item1", 40, "65f000000000000000000000"));
+        when(mongoTemplate.find(any(Query.class), eq(StockLedgerEntry.class))).thenReturn(List.of(
+                new StockLedgerEntry("65f000000000000000000001", "item1", StockOperation.RECEIVE, 10, 50),
+                new StockLedgerEntry("65f000000000000000000002", "item1", StockOperation.PICK, -15, 35)
+        ));
+
+        InventoryDTO rebuilt = stockLedgerService.rebuildStock("item1");
+
+        assertEquals(40, rebuilt.getStock());
+    }
+
+    private static InventoryEntity itemWithPending(int stock, StockLedgerEntry... entries) {
+        InventoryEntity item = new InventoryEntity("item1", "Item 1", stock, 5);
+        item.setPendingLedger(new ArrayList<>(List.of(entries)));
+        return item;
+    }
+
+    private static BulkOperationException bulkFailure(int code, int index) {
+        BulkOperationException failure = mock(BulkOperationException.class);
+        when(failure.getErrors()).thenReturn(List.of(new BulkWriteError(code, "write failed", new BsonDocument(), index)));
+        return failure;
+    }
+}
@@ -0,0 +1,107 @@
+package ro.unibuc.hello.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLockManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StripedLockManager stripedLockManager;
+
+    @BeforeEach
+    void setUp() {
+        stripedLockManager = new StripedLockManager(64);
+        ReflectionTestUtils.setField(stripedLockManager, "meterRegistry", meterRegistry);
+        stripedLockManager.registerMetrics();
+    }
+
+    @Test
+    void testSameKeyIsSerialized() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(executor.submit(() -> stripedLockManager.withLocks(() -> {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                Thread.onSpinWait();
+                return inside.decrementAndGet();
+            }, StripedLockManager.robotKey("robot001"))));
+        }
+        for (Future<Integer> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    void testKeysInOppositeOrderDoNotDeadlock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        String robot = StripedLockManager.robotKey("robot001");
+        String item = StripedLockManager.itemKey("item123");
+        Future<?> first = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 10_000; i++) {
+                stripedLockManager.withLocks(() -> null, robot, item);
+            }
+            return null;
+        });
+        Future<?> second = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 10_000; i++) {
+                stripedLockManager.withLocks(() -> null, item, robot);
+            }
+            return null;
+        });
+        start.countDown();
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    void testRetryOnConflictRetriesUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = stripedLockManager.retryOnConflict("updateRobotStatus", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, meterRegistry.get("locks.optimistic.retries").tag("operation", "updateRobotStatus").counter().count());
+    }
+
+    @Test
+    void testRetryOnConflictGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> stripedLockManager.retryOnConflict("createOrder", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(1, meterRegistry.get("locks.optimistic.failures").tag("operation", "createOrder").counter().count());
+    }
+}
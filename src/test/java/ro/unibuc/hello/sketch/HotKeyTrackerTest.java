@@ -0,0 +1,93 @@
+package ro.unibuc.hello.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotKeyTrackerTest {
+
+    @Test
+    void testCountMinNeverUndercountsAndRoundTrips() {
+        CountMinSketch sketch = new CountMinSketch(4, 256);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("item" + i, i % 7 + 1);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(sketch.estimate("item" + i) >= i % 7 + 1);
+        }
+        CountMinSketch copy = CountMinSketch.fromBytes(4, 256, sketch.toBytes());
+        assertEquals(sketch.estimate("item42"), copy.estimate("item42"));
+    }
+
+    @Test
+    void testCountMinRejectsDifferentShapes() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(4, 256).merge(new CountMinSketch(4, 128)));
+    }
+
+    @Test
+    void testSpaceSavingKeepsHeavyHittersUnderChurn() {
+        SpaceSaving summary = new SpaceSaving(50);
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            summary.offer(i % 4 == 0 ? "hot" : i % 9 == 0 ? "warm" : "cold" + random.nextInt(5000), 1);
+        }
+
+        List<SpaceSaving.Entry> top = summary.top(2);
+        assertEquals("hot", top.get(0).getKey());
+        assertEquals("warm", top.get(1).getKey());
+        assertTrue(top.get(0).getCount() >= 5000);
+        assertTrue(top.get(0).getCount() - top.get(0).getError() <= 5000);
+    }
+
+    @Test
+    void testSpaceSavingMergeAddsCountsAcrossSummaries() {
+        SpaceSaving first = new SpaceSaving(3);
+        SpaceSaving second = new SpaceSaving(3);
+        first.offer("a", 10);
+        first.offer("b", 4);
+        second.offer("a", 5);
+        second.offer("c", 8);
+
+        List<SpaceSaving.Entry> merged = SpaceSaving.merge(3, List.of(first, second)).top(3);
+
+        assertEquals("a", merged.get(0).getKey());
+        assertEquals(15, merged.get(0).getCount());
+        assertEquals("c", merged.get(1).getKey());
+        assertEquals(0, merged.get(1).getError());
+    }
+
+    @Test
+    void testOldWindowsAreDropped() {
+        HotKeyTracker tracker = new HotKeyTracker(2, 4, 256, 8);
+        tracker.add("robot001", 5);
+        tracker.rotate();
+        tracker.add("robot002", 3);
+
+        assertEquals(List.of("robot001", "robot002"),
+                tracker.summary().top(5).stream().map(SpaceSaving.Entry::getKey).toList());
+
+        tracker.rotate();
+        List<SpaceSaving.Entry> top = tracker.summary().top(5);
+        assertEquals(1, top.size());
+        assertEquals("robot002", top.get(0).getKey());
+        assertEquals(3, top.get(0).getCount());
+    }
+
+    @Test
+    void testSummariesOfReplicasMerge() {
+        HotKeyTracker first = new HotKeyTracker(3, 4, 256, 8);
+        HotKeyTracker second = new HotKeyTracker(3, 4, 256, 8);
+        first.add("item123", 4);
+        second.add("item123", 6);
+        second.add("item124", 7);
+
+        List<SpaceSaving.Entry> top = HotKeyTracker.Summary.merge(List.of(first.summary(), second.summary())).top(1);
+
+        assertEquals("item123", top.get(0).getKey());
+        assertEquals(10, top.get(0).getCount());
+    }
+}
@@ -0,0 +1,131 @@
+package ro.unibuc.hello.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import ro.unibuc.hello.cluster.LeaseManager;
+import ro.unibuc.hello.cluster.OwnerProxy;
+import ro.unibuc.hello.data.OrderStatus;
+import ro.unibuc.hello.dto.OrderDTO;
+import ro.unibuc.hello.dto.RobotDTO;
+import ro.unibuc.hello.dto.RobotStreamMessage;
+import ro.unibuc.hello.exception.PartitionNotOwnedException;
+import ro.unibuc.hello.service.OrderService;
+import ro.unibuc.hello.service.RobotService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class RobotStreamHandlerTest {
+
+    @Mock
+    private RobotService robotService;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private RobotSessionRegistry robotSessionRegistry;
+
+    @Mock
+    private LeaseManager leaseManager;
+
+    @Mock
+    private OwnerProxy ownerProxy;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private RobotStreamHandler robotStreamHandler;
+
+    @Mock
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("robotId", "r1");
+        when(session.getAttributes()).thenReturn(attributes);
+    }
+
+    @Test
+    void testMalformedFrameGetsAnErrorReply() throws Exception {
+        robotStreamHandler.handleTextMessage(session, new TextMessage("{not json"));
+
+        RobotStreamMessage reply = sentReply();
+        assertEquals(RobotStreamMessage.ERROR, reply.getType());
+        assertTrue(reply.getError().startsWith("Malformed message"));
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void testOrderOfAnotherRobotIsRejected() throws Exception {
+        when(orderService.getOrderById("o1")).thenReturn(new OrderDTO("o1", "r2", OrderStatus.PENDING, "i1", 1, "A1"));
+
+        robotStreamHandler.handleTextMessage(session, frame(RobotStreamMessage.ORDER_STATUS, "COMPLETED", "o1"));
+
+        RobotStreamMessage reply = sentReply();
+        assertEquals(RobotStreamMessage.ERROR, reply.getType());
+        assertEquals(7L, reply.getSeq());
+        verify(orderService, never()).updateOrderStatus(any(), any());
+    }
+
+    @Test
+    void testOwnOrderIsUpdated() throws Exception {
+        OrderDTO order = new OrderDTO("o1", "r1", OrderStatus.COMPLETED, "i1", 1, "A1");
+        when(orderService.getOrderById("o1")).thenReturn(new OrderDTO("o1", "r1", OrderStatus.IN_PROGRESS, "i1", 1, "A1"));
+        when(orderService.updateOrderStatus("o1", "COMPLETED")).thenReturn(order);
+
+        robotStreamHandler.handleTextMessage(session, frame(RobotStreamMessage.ORDER_STATUS, "COMPLETED", "o1"));
+
+        RobotStreamMessage reply = sentReply();
+        assertEquals(RobotStreamMessage.ACK, reply.getType());
+        assertEquals("o1", reply.getOrder().getId());
+    }
+
+    @Test
+    void testUpdateForAMovedRobotIsAppliedOnTheOwner() throws Exception {
+        when(robotService.updateRobotStatus("r1", "IDLE")).thenThrow(new PartitionNotOwnedException("r1", "http://owner:8080"));
+        when(ownerProxy.forward(eq("http://owner:8080"), eq(HttpMethod.PUT), eq("/robots/r1/status?status=IDLE"), any(), isNull()))
+                .thenReturn(ResponseEntity.ok(objectMapper.writeValueAsBytes(new RobotDTO("r1", "IDLE", null, 0, null))));
+
+        robotStreamHandler.handleTextMessage(session, frame(RobotStreamMessage.STATUS, "IDLE", null));
+
+        RobotStreamMessage reply = sentReply();
+        assertEquals(RobotStreamMessage.ACK, reply.getType());
+        assertEquals("IDLE", reply.getRobot().getStatus());
+        verify(session).close(argThat(status -> status.getCode() == CloseStatus.TRY_AGAIN_LATER.getCode()));
+    }
+
+    private TextMessage frame(String type, String status, String orderId) throws Exception {
+        RobotStreamMessage message = new RobotStreamMessage(type, 7L);
+        message.setStatus(status);
+        message.setOrderId(orderId);
+        return new TextMessage(objectMapper.writeValueAsString(message));
+    }
+
+    private RobotStreamMessage sentReply() {
+        ArgumentCaptor<RobotStreamMessage> reply = ArgumentCaptor.forClass(RobotStreamMessage.class);
+        verify(robotSessionRegistry).send(eq("r1"), reply.capture());
+        return reply.getValue();
+    }
+}
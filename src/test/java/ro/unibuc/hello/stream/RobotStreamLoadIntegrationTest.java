@@ -0,0 +1,112 @@
+package ro.unibuc.hello.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ro.unibuc.hello.dto.RobotStreamMessage;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loopback load test: the same sequence of robot status updates sent over REST and over the robot stream.
+ * Prints updates per second and process CPU time per update for both paths.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+@Tag("IntegrationTest")
+public class RobotStreamLoadIntegrationTest {
+
+    private static final int UPDATES = 2000;
+    private static final String ROBOT_ID = "robot002";
+
+    @Container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20")
+            .withExposedPorts(27017)
+            .withSharding();
+
+    @BeforeAll
+    public static void setUp() {
+        mongoDBContainer.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        mongoDBContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        final String MONGO_URL = "mongodb://localhost:";
+        final String PORT = String.valueOf(mongoDBContainer.getMappedPort(27017));
+        registry.add("mongodb.connection.url", () -> MONGO_URL + PORT);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void compareRestAndStreamStatusUpdates() throws Exception {
+        RestTemplate restTemplate = new RestTemplate();
+        String restUrl = "http://localhost:" + port + "/robots/" + ROBOT_ID + "/status?status={status}";
+
+        long cpuStart = processCpuNanos();
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            restTemplate.put(restUrl, null, i % 2 == 0 ? "ACTIVE" : "INACTIVE");
+        }
+        report("REST", System.nanoTime() - start, processCpuNanos() - cpuStart);
+
+        BlockingQueue<RobotStreamMessage> replies = new LinkedBlockingQueue<>();
+        WebSocketSession session = new StandardWebSocketClient()
+                .execute(new TextWebSocketHandler() {
+                    @Override
+                    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+                        replies.add(objectMapper.readValue(message.getPayload(), RobotStreamMessage.class));
+                    }
+                }, "ws://localhost:" + port + "/stream/robots?robotId=" + ROBOT_ID)
+                .get(5, TimeUnit.SECONDS);
+
+        cpuStart = processCpuNanos();
+        start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            RobotStreamMessage update = new RobotStreamMessage(RobotStreamMessage.STATUS, (long) i);
+            update.setStatus(i % 2 == 0 ? "ACTIVE" : "INACTIVE");
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(update)));
+            RobotStreamMessage reply = replies.poll(5, TimeUnit.SECONDS);
+            assertNotNull(reply);
+            assertEquals(RobotStreamMessage.ACK, reply.getType());
+            assertEquals(i, reply.getSeq());
+        }
+        report("Stream", System.nanoTime() - start, processCpuNanos() - cpuStart);
+        session.close();
+    }
+
+    private static void report(String path, long wallNanos, long cpuNanos) {
+        System.out.printf("%-6s %d updates: %.0f updates/s, %.1f us CPU/update%n",
+                path, UPDATES, UPDATES / (wallNanos / 1e9), cpuNanos / 1000.0 / UPDATES);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}